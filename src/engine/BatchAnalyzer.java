@@ -0,0 +1,388 @@
+package engine;
+
+import models.Board;
+import models.Notation;
+import models.Piece;
+import models.PieceTypes;
+import models.Player;
+import models.PositionFormat;
+import util.Pair;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Analyse positions in PositionFormat on a fixed pool of threads: the number of legal operations, whether the player to
+ * move is in check, mated or stalemated, and the score and best operation found by a Search to a given depth.
+ * <p>
+ * Positions are handed over through a bounded queue, which blocks the submitting threads when the workers fall behind,
+ * and the workers take them in batches. Each worker keeps its TranspositionTable and PawnTable from one position to the
+ * next, so that a position only costs the parsing of its board; positions of the same game also share their subtrees
+ * through the table. Since Zobrist keys do not depend on the size of the board, the tables are cleared when it
+ * changes; since they do not depend on whether a pawn has moved either, the TranspositionTable is also cleared when
+ * the pawns of a position do not fit its entries. Results are kept in a fixed-size cache indexed by the Zobrist key of the position and replaced on collision,
+ * and a position submitted again while it is being analysed waits for the same result instead of being analysed twice.
+ * <p>
+ * Closing cancels every position not yet analysed, whether queued before or concurrently, so that no result is left
+ * waiting forever.
+ */
+public final class BatchAnalyzer implements Closeable {
+
+    public static final String NONE = "-";
+    public static final String CHECK = "check";
+    public static final String MATE = "mate";
+    public static final String STALEMATE = "stalemate";
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int capacity = 4096;
+    private int batch = 32;
+    private int cacheBits = 16;
+    private int tableBits = 18;
+    private BlockingQueue<Job> queue;
+    private AtomicReferenceArray<Analysis> cache;
+    private final Map<String, CompletableFuture<Analysis>> pending = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong analysed = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * @param threads the number of threads analysing positions
+     * @return this instance
+     */
+    public BatchAnalyzer threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * @param capacity the number of positions waiting for a thread before submitting blocks
+     * @return this instance
+     */
+    public BatchAnalyzer capacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        return this;
+    }
+
+    /**
+     * @param batch the number of positions taken by a thread at a time
+     * @return this instance
+     */
+    public BatchAnalyzer batch(int batch) {
+        this.batch = Math.max(1, batch);
+        return this;
+    }
+
+    /**
+     * @param bits the cache holds 2^bits results
+     * @return this instance
+     */
+    public BatchAnalyzer cacheBits(int bits) {
+        this.cacheBits = bits;
+        return this;
+    }
+
+    /**
+     * @param bits the transposition table of each thread holds 2^bits entries
+     * @return this instance
+     */
+    public BatchAnalyzer tableBits(int bits) {
+        this.tableBits = bits;
+        return this;
+    }
+
+    /**
+     * Start the threads
+     *
+     * @return this instance
+     */
+    public BatchAnalyzer start() {
+        if (queue != null) {
+            throw new IllegalStateException("Already started");
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        cache = new AtomicReferenceArray<>(1 << cacheBits);
+        running.set(threads);
+        for (int i = 0; i < threads; i++) {
+            final Thread thread = new Thread(new Worker(), "batch-analyzer-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+        return this;
+    }
+
+    /**
+     * Submit a position, blocking while the queue is full
+     *
+     * @param position the position in PositionFormat
+     * @param depth    the depth of the search, 0 for the static evaluation only
+     * @return the result, completed from a thread of this analyzer or at once if cached
+     * @throws IllegalArgumentException if the position is malformed
+     * @throws IllegalStateException    if the analyzer is not started or closed
+     * @throws InterruptedException     if interrupted while waiting for room in the queue
+     */
+    public CompletableFuture<Analysis> submit(CharSequence position, int depth) throws InterruptedException {
+        if (queue == null || closed) {
+            throw new IllegalStateException("Analyzer not running");
+        }
+        if (depth < 0 || depth >= Search.MAX_PLY) {
+            throw new IllegalArgumentException("Depth out of range: " + depth);
+        }
+        final Pair<Board, Player> parsed = PositionFormat.parse(position);
+        final Board board = parsed.first;
+        final Player toMove = parsed.second;
+        // the written position is normalised, so that equal positions written differently are recognised
+        final String normalised = PositionFormat.write(board, toMove);
+        final long key = board.getKey(toMove);
+        final Analysis cached = cache.get(index(key, depth));
+        if (cached != null && cached.DEPTH == depth && cached.POSITION.equals(normalised)) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+        final CompletableFuture<Analysis> result = new CompletableFuture<>();
+        final CompletableFuture<Analysis> running = pending.putIfAbsent(depth + " " + normalised, result);
+        if (running != null) {
+            hits.incrementAndGet();
+            return running;
+        }
+        final Job job = new Job(board, toMove, depth, normalised, key, result);
+        queue.put(job);
+        // a job queued after close drained the queue, or after the workers stopped, is taken back and cancelled here;
+        // otherwise close, a worker or the last worker stopping completes it
+        if (closed && queue.remove(job)) {
+            cancel(job);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of positions answered from the cache or from a running analysis
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of positions analysed
+     */
+    public long getAnalysed() {
+        return analysed.get();
+    }
+
+    /**
+     * Stop the threads once they finish their batch, and cancel the positions still queued
+     */
+    @Override
+    public synchronized void close() {
+        if (queue == null || closed) {
+            return;
+        }
+        closed = true;
+        cancelQueued();
+        // the workers waiting for a job are woken by the interrupt, the others stop after their batch
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void cancelQueued() {
+        final List<Job> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Job job : remaining) {
+            cancel(job);
+        }
+    }
+
+    private void cancel(Job job) {
+        pending.remove(job.DEPTH + " " + job.POSITION);
+        job.RESULT.completeExceptionally(new CancellationException("Analyzer closed"));
+    }
+
+    private int index(long key, int depth) {
+        final long mixed = key ^ depth * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & (cache.length() - 1);
+    }
+
+    /**
+     * The analysis of a position
+     */
+    public static final class Analysis {
+
+        /**
+         * the position in PositionFormat, normalised
+         */
+        public final String POSITION;
+        public final int DEPTH;
+        /**
+         * the number of legal operations of the player to move
+         */
+        public final int MOVES;
+        /**
+         * NONE, CHECK, MATE or STALEMATE
+         */
+        public final String STATUS;
+        /**
+         * the score from the point of view of the player to move, see Search
+         */
+        public final int SCORE;
+        /**
+         * the best operation in Notation, NONE if there is none or the depth is 0
+         */
+        public final String BEST;
+
+        Analysis(String position, int depth, int moves, String status, int score, String best) {
+            POSITION = position;
+            DEPTH = depth;
+            MOVES = moves;
+            STATUS = status;
+            SCORE = score;
+            BEST = best;
+        }
+
+        /**
+         * @return the fields separated by spaces: moves, status, score and best operation
+         */
+        @Override
+        public String toString() {
+            return MOVES + " " + STATUS + " " + SCORE + " " + BEST;
+        }
+    }
+
+    private static final class Job {
+        private final Board BOARD;
+        private final Player TO_MOVE;
+        private final int DEPTH;
+        private final String POSITION;
+        private final long KEY;
+        private final CompletableFuture<Analysis> RESULT;
+
+        private Job(Board board, Player toMove, int depth, String position, long key, CompletableFuture<Analysis> result) {
+            BOARD = board;
+            TO_MOVE = toMove;
+            DEPTH = depth;
+            POSITION = position;
+            KEY = key;
+            RESULT = result;
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final TranspositionTable table = new TranspositionTable(tableBits);
+        private final PawnTable pawnTable = new PawnTable(14);
+        private final List<Job> jobs = new ArrayList<>(batch);
+        private int cols = 0;
+        private int rows = 0;
+        // the pawns the entries of the table may assume unmoved, by 2 * index + colour, and those of the job at hand
+        private final BitSet unmoved = new BitSet();
+        private final BitSet jobUnmoved = new BitSet();
+        private final BitSet jobMoved = new BitSet();
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    jobs.add(queue.take());
+                    queue.drainTo(jobs, batch - 1);
+                    for (Job job : jobs) {
+                        complete(job);
+                    }
+                    jobs.clear();
+                }
+            } catch (InterruptedException e) {
+                // stop
+            } finally {
+                // the last worker cancels the jobs queued after close drained the queue
+                if (running.decrementAndGet() == 0) {
+                    cancelQueued();
+                }
+            }
+        }
+
+        private void complete(Job job) {
+            try {
+                final Analysis analysis = analyse(job);
+                cache.set(index(job.KEY, job.DEPTH), analysis);
+                analysed.incrementAndGet();
+                job.RESULT.complete(analysis);
+            } catch (RuntimeException e) {
+                job.RESULT.completeExceptionally(e);
+            } finally {
+                pending.remove(job.DEPTH + " " + job.POSITION);
+            }
+        }
+
+        private Analysis analyse(Job job) {
+            final Board board = job.BOARD;
+            final Player player = job.TO_MOVE;
+            final boolean resized = board.N_COLS != cols || board.N_ROWS != rows;
+            pawns(board);
+            if (resized || !fits()) {
+                table.clear();
+                unmoved.clear();
+                unmoved.or(jobUnmoved);
+            }
+            if (resized) {
+                cols = board.N_COLS;
+                rows = board.N_ROWS;
+                pawnTable.clear();
+            }
+            final int moves = (int) board.generateMoves(player).count();
+            final boolean inCheck = board.inCheck(player);
+            if (moves == 0) {
+                return new Analysis(job.POSITION, job.DEPTH, 0, inCheck ? MATE : STALEMATE, inCheck ? -Search.MATE : 0, NONE);
+            }
+            final IncrementalEvaluation evaluation = new IncrementalEvaluation(board, pawnTable);
+            try {
+                if (job.DEPTH == 0) {
+                    return new Analysis(job.POSITION, 0, moves, inCheck ? CHECK : NONE, evaluation.evaluate(board, player), NONE);
+                }
+                final Search search = new Search(board, evaluation, table);
+                final int score = search.iterate(player, job.DEPTH);
+                final Board.Operation best = search.getBestMove();
+                return new Analysis(job.POSITION, job.DEPTH, moves, inCheck ? CHECK : NONE, score,
+                        best == null ? NONE : Notation.toSan(board, best, player));
+            } finally {
+                evaluation.detach();
+            }
+        }
+
+        /**
+         * Zobrist keys ignore whether a pawn has moved, on which its double step depends, so the entries of the table
+         * only fit a job with no unmoved pawn where they may have seen a moved one, and no moved pawn where they may
+         * have seen an unmoved one. Since pawns never step back, the positions of a game keep fitting the table.
+         */
+        private boolean fits() {
+            for (int bit = jobUnmoved.nextSetBit(0); bit >= 0; bit = jobUnmoved.nextSetBit(bit + 1)) {
+                if (!unmoved.get(bit)) {
+                    return false;
+                }
+            }
+            return !jobMoved.intersects(unmoved);
+        }
+
+        private void pawns(Board board) {
+            jobUnmoved.clear();
+            jobMoved.clear();
+            for (int index = 0; index < board.size(); index++) {
+                final Piece piece = board.get(index);
+                if (piece != null && piece.TYPE == PieceTypes.PAWN) {
+                    (piece.getNumOperations() == 0 ? jobUnmoved : jobMoved).set(2 * index + (piece.PLAYER == board.WHITE ? 1 : 0));
+                }
+            }
+        }
+    }
+}
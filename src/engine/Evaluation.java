@@ -0,0 +1,18 @@
+package engine;
+
+import models.Board;
+import models.Player;
+
+/**
+ * A static evaluation of the position on a board
+ */
+@FunctionalInterface
+public interface Evaluation {
+
+    /**
+     * @param board  a board
+     * @param player the player from whose point of view the position is evaluated
+     * @return the score of the position in centipawns, positive if it favours player
+     */
+    int evaluate(Board board, Player player);
+}
@@ -0,0 +1,161 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.PieceType;
+import models.PieceTypes;
+import models.Player;
+
+import java.awt.*;
+
+import static util.Shorthand.pt;
+
+/**
+ * An evaluation made of material and piece-square terms, kept up to date as pieces are put on and taken off the board
+ * instead of being recomputed at every leaf. Evaluating a position costs O(1).
+ * <p>
+ * The piece-square tables are generated for the size of the board, from the point of view of a player whose pieces move
+ * up. They are oriented for each player through Player.apply, so that a rank is always counted from the player's own
+ * side of the board.
+ * <p>
+ * The pawn structure is added on top, read from a PawnTable keyed by the pawn key of the board, so it is only evaluated
+ * when a pawn has moved or has been captured since the same structure was last seen.
+ */
+public class IncrementalEvaluation implements Evaluation, Board.PieceListener {
+
+    private static final PieceTypes[] TYPES = PieceTypes.values();
+
+    private final Board board;
+    /**
+     * material and piece-square value of every type of piece at every location, indexed by [side][type][index]
+     */
+    private final int[][][] tables;
+    private final int[] scores = new int[2];
+    private final PawnTable pawnTable;
+
+    /**
+     * Construct the evaluation of a board and register it as a listener of the board
+     *
+     * @param board the board to be evaluated
+     */
+    public IncrementalEvaluation(Board board) {
+        this(board, new PawnTable(14));
+    }
+
+    /**
+     * Construct the evaluation of a board and register it as a listener of the board
+     *
+     * @param board     the board to be evaluated
+     * @param pawnTable the cache of pawn structure scores
+     */
+    public IncrementalEvaluation(Board board, PawnTable pawnTable) {
+        this.board = board;
+        this.pawnTable = pawnTable;
+        this.tables = new int[2][TYPES.length + 1][board.size()];
+        for (Player player : new Player[]{board.BLACK, board.WHITE}) {
+            final boolean forward = player.apply(pt(0, 1)).y > 0;
+            for (int index = 0; index < board.size(); index++) {
+                final Point p = board.point(index);
+                final int rank = forward ? p.y : board.N_ROWS - 1 - p.y;
+                for (int type = 0; type <= TYPES.length; type++) {
+                    final PieceType pieceType = type < TYPES.length ? TYPES[type] : null;
+                    tables[side(player)][type][index] = value(pieceType) + bonus(pieceType, p.x, rank, board.N_COLS, board.N_ROWS);
+                }
+            }
+        }
+        board.forEach(piece -> {
+            if (piece != null) {
+                placed(piece, board.coord(piece.getLocation()));
+            }
+        });
+        board.addPieceListener(this);
+    }
+
+    /**
+     * The positional bonus of a type of piece, in centipawns
+     *
+     * @param type the type of piece, null for a type not listed in PieceTypes
+     * @param x    the column
+     * @param rank the row counted from the side of the owner of the piece
+     * @param cols the number of columns of the board
+     * @param rows the number of rows of the board
+     * @return the bonus
+     */
+    private static int bonus(PieceType type, int x, int rank, int cols, int rows) {
+        // distances to the centre in half squares, 0 on the central location(s)
+        final int dx = Math.abs(2 * x - (cols - 1)) / 2;
+        final int dy = Math.abs(2 * rank - (rows - 1)) / 2;
+        final int center = -(dx + dy);
+        final int advance = rows > 1 ? rank * 6 / (rows - 1) : 0;
+        if (!(type instanceof PieceTypes)) {
+            return 2 * center;
+        }
+        switch ((PieceTypes) type) {
+            case PAWN:
+                return advance * 8 + (dx == 0 && rank > 1 ? 10 : 0);
+            case KNIGHT:
+                return 8 * center;
+            case BISHOP:
+                return 4 * center;
+            case ROOK:
+                return (rank == rows - 2 ? 20 : 0) - 2 * dx;
+            case QUEEN:
+                return 2 * center;
+            case KING:
+                return -10 * rank + 4 * Math.min(dx, 3);
+            case ARTILLERY:
+                return 3 * center + 2 * advance;
+            case ARCHER:
+                return 2 * center + 6 * advance;
+            default:
+                return 0;
+        }
+    }
+
+    private static int value(PieceType type) {
+        if (type == PieceTypes.KING) {
+            return 0;
+        }
+        return type == null ? PieceValues.UNKNOWN : PieceValues.of(type);
+    }
+
+    private static int type(PieceType type) {
+        return type instanceof PieceTypes ? ((PieceTypes) type).ordinal() : TYPES.length;
+    }
+
+    @Override
+    public int evaluate(Board board, Player player) {
+        assert board == this.board;
+        final int side = side(player);
+        final int pawns = pawnTable.probe(board);
+        return scores[side] - scores[1 - side] + (side == 1 ? pawns : -pawns);
+    }
+
+    @Override
+    public void placed(Piece piece, int index) {
+        scores[side(piece.PLAYER)] += tables[side(piece.PLAYER)][type(piece.TYPE)][index];
+    }
+
+    @Override
+    public void removed(Piece piece, int index) {
+        scores[side(piece.PLAYER)] -= tables[side(piece.PLAYER)][type(piece.TYPE)][index];
+    }
+
+    /**
+     * @return the cache of pawn structure scores
+     */
+    public PawnTable getPawnTable() {
+        return pawnTable;
+    }
+
+    /**
+     * Stop following the changes of the board
+     */
+    public void detach() {
+        board.removePieceListener(this);
+    }
+
+    private int side(Player player) {
+        return player == board.WHITE ? 1 : 0;
+    }
+}
@@ -0,0 +1,280 @@
+package engine;
+
+import models.Board;
+import models.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A mate-in-N solver by depth-first proof-number search (df-pn). The attacker has to mate within a given number of its
+ * own operations whatever the defender does: positions where the attacker moves are OR nodes, proven if one child is,
+ * and positions where the defender moves are AND nodes, proven if all children are. The search always expands the most
+ * proving node, which favours forcing lines, and stays in depth-first order by passing proof and disproof thresholds
+ * down.
+ * <p>
+ * Only the legal operations of Board.generateMoves(Player) and Board.inCheck(Player) are used, so the solver works on
+ * boards of any size and with any PieceType. Proof and disproof numbers are kept in a transposition table indexed by the
+ * key of the position and the number of plies left; since the plies left decrease along every path, repeated positions
+ * cannot form cycles.
+ */
+public class MateSolver {
+
+    /**
+     * the proof or disproof number of a solved node
+     */
+    public static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private static final long PLY_KEY = 0x9E3779B97F4A7C15L;
+
+    private final Board board;
+    private final long[] keys;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final int mask;
+    private long nodes = 0;
+    private long nodeLimit = Long.MAX_VALUE;
+    private int proof;
+    private int disproof;
+
+    /**
+     * Construct a solver with a transposition table of 2^20 entries
+     *
+     * @param board the board to be solved; operations are executed and undone on it
+     */
+    public MateSolver(Board board) {
+        this(board, 20);
+    }
+
+    /**
+     * Construct a solver
+     *
+     * @param board the board to be solved; operations are executed and undone on it
+     * @param bits  the transposition table holds 2^bits entries
+     */
+    public MateSolver(Board board, int bits) {
+        this.board = board;
+        keys = new long[1 << bits];
+        proofs = new int[1 << bits];
+        disproofs = new int[1 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * @param nodeLimit the number of nodes after which a search gives up, see Status.UNKNOWN
+     * @return this instance
+     */
+    public MateSolver nodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+        return this;
+    }
+
+    /**
+     * @return the number of nodes visited by the last call to solve(Player, int)
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Find the shortest mate of attacker in at most n of its operations
+     *
+     * @param attacker the player to move, who has to mate
+     * @param n        the maximum number of operations of attacker
+     * @return the result, with the mating line if there is one
+     */
+    public Result solve(Player attacker, int n) {
+        nodes = 0;
+        for (int moves = 1; moves <= n; moves++) {
+            mid(attacker, true, 2 * moves - 1, INFINITY, INFINITY);
+            if (nodes >= nodeLimit) {
+                return new Result(Status.UNKNOWN, Collections.emptyList(), nodes);
+            }
+            if (proof == 0) {
+                final List<Board.Operation> line = new ArrayList<>();
+                line(attacker, true, 2 * moves - 1, line);
+                return new Result(Status.PROVEN, line, nodes);
+            }
+        }
+        return new Result(Status.DISPROVEN, Collections.emptyList(), nodes);
+    }
+
+    /**
+     * Expand the node until its proof number reaches thresholdProof or its disproof number reaches thresholdDisproof.
+     * The numbers of the node are left in proof and disproof, and stored in the table.
+     *
+     * @param player the player to move
+     * @param or     whether player is the attacker
+     * @param plies  the number of plies left
+     */
+    private void mid(Player player, boolean or, int plies, int thresholdProof, int thresholdDisproof) {
+        nodes++;
+        final long key = board.getKey(player) ^ plies * PLY_KEY;
+        final List<Board.Operation> ops = board.generateMoves(player).collect(Collectors.toList());
+        if (ops.isEmpty() || plies == 0) {
+            final boolean mated = ops.isEmpty() && !or && board.inCheck(player);
+            set(mated ? 0 : INFINITY, mated ? INFINITY : 0);
+            store(key);
+            return;
+        }
+        final Player enemy = board.theOther(player);
+        final int[] childProofs = new int[ops.size()];
+        final int[] childDisproofs = new int[ops.size()];
+        for (int i = 0; i < ops.size(); i++) {
+            board.execute(ops.get(i), player);
+            final int slot = slot(board.getKey(enemy) ^ (plies - 1) * PLY_KEY);
+            if (slot == -1) {
+                childProofs[i] = 1;
+                childDisproofs[i] = 1;
+            } else {
+                childProofs[i] = proofs[slot];
+                childDisproofs[i] = disproofs[slot];
+            }
+            board.undo();
+        }
+        while (true) {
+            // in OR nodes, the proof number is the minimum and the disproof number the sum, and conversely in AND nodes
+            final int[] minimized = or ? childProofs : childDisproofs;
+            final int[] summed = or ? childDisproofs : childProofs;
+            int best = -1, min = INFINITY, second = INFINITY, sum = 0;
+            for (int i = 0; i < ops.size(); i++) {
+                if (minimized[i] < min) {
+                    second = min;
+                    min = minimized[i];
+                    best = i;
+                } else if (minimized[i] < second) {
+                    second = minimized[i];
+                }
+                sum = Math.min(sum + summed[i], INFINITY);
+            }
+            if (best == -1) {
+                best = 0;
+            }
+            if (or) {
+                set(min, sum);
+            } else {
+                set(sum, min);
+            }
+            if (proof >= thresholdProof || disproof >= thresholdDisproof || nodes >= nodeLimit) {
+                store(key);
+                return;
+            }
+            final int childThresholdProof, childThresholdDisproof;
+            if (or) {
+                childThresholdProof = Math.min(thresholdProof, Math.min(second, INFINITY - 1) + 1);
+                childThresholdDisproof = Math.min(thresholdDisproof - disproof + childDisproofs[best], INFINITY);
+            } else {
+                childThresholdProof = Math.min(thresholdProof - proof + childProofs[best], INFINITY);
+                childThresholdDisproof = Math.min(thresholdDisproof, Math.min(second, INFINITY - 1) + 1);
+            }
+            board.execute(ops.get(best), player);
+            mid(enemy, !or, plies - 1, childThresholdProof, childThresholdDisproof);
+            board.undo();
+            childProofs[best] = proof;
+            childDisproofs[best] = disproof;
+        }
+    }
+
+    /**
+     * Build the main line of a proven node: the attacker plays its fastest mate and the defender the slowest defence
+     */
+    private void line(Player player, boolean or, int plies, List<Board.Operation> line) {
+        if (plies == 0) {
+            return;
+        }
+        final Player enemy = board.theOther(player);
+        Board.Operation chosen = null;
+        int chosenPlies = -1;
+        for (Board.Operation op : board.generateMoves(player).collect(Collectors.toList())) {
+            board.execute(op, player);
+            final int needed = shortest(enemy, !or, plies - 1);
+            board.undo();
+            if (or ? needed != -1 && (chosen == null || needed < chosenPlies) : needed > chosenPlies) {
+                chosen = op;
+                chosenPlies = needed;
+            }
+        }
+        if (chosen == null) {
+            return;
+        }
+        line.add(chosen);
+        board.execute(chosen, player);
+        line(enemy, !or, chosenPlies, line);
+        board.undo();
+    }
+
+    /**
+     * @return the fewest plies left, at most plies, in which the node is proven, -1 if it is not
+     */
+    private int shortest(Player player, boolean or, int plies) {
+        for (int n = or ? 1 : 0; n <= plies; n += 2) {
+            mid(player, or, n, INFINITY, INFINITY);
+            if (proof == 0) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    private void set(int proof, int disproof) {
+        this.proof = proof;
+        this.disproof = disproof;
+    }
+
+    private int slot(long key) {
+        final int slot = (int) (key ^ key >>> 32) & mask;
+        return keys[slot] == key && (proofs[slot] | disproofs[slot]) != 0 ? slot : -1;
+    }
+
+    private void store(long key) {
+        final int slot = (int) (key ^ key >>> 32) & mask;
+        keys[slot] = key;
+        proofs[slot] = proof;
+        disproofs[slot] = disproof;
+    }
+
+    /**
+     * The outcomes of solve(Player, int)
+     */
+    public enum Status {
+        /**
+         * the attacker mates in at most N operations, see Result.LINE
+         */
+        PROVEN,
+        /**
+         * the attacker cannot force mate in N operations
+         */
+        DISPROVEN,
+        /**
+         * the node limit was reached first
+         */
+        UNKNOWN
+    }
+
+    /**
+     * The result of solve(Player, int)
+     */
+    public static class Result {
+        public final Status STATUS;
+        /**
+         * the mating line, starting with an operation of the attacker and ending with mate, empty unless PROVEN
+         */
+        public final List<Board.Operation> LINE;
+        public final long NODES;
+
+        Result(Status STATUS, List<Board.Operation> LINE, long NODES) {
+            this.STATUS = STATUS;
+            this.LINE = Collections.unmodifiableList(LINE);
+            this.NODES = NODES;
+        }
+
+        /**
+         * @return the number of operations of the attacker in the mating line
+         */
+        public int getMoves() {
+            return (LINE.size() + 1) / 2;
+        }
+    }
+}
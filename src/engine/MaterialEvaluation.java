@@ -0,0 +1,25 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.PieceTypes;
+import models.Player;
+
+/**
+ * An evaluation counting the material of both players from scratch, see PieceValues. Kings are not counted.
+ */
+public class MaterialEvaluation implements Evaluation {
+
+    @Override
+    public int evaluate(Board board, Player player) {
+        return material(player) - material(board.theOther(player));
+    }
+
+    private static int material(Player player) {
+        return player.getPieces().filter(piece -> piece.TYPE != PieceTypes.KING).mapToInt(MaterialEvaluation::value).sum();
+    }
+
+    private static int value(Piece piece) {
+        return PieceValues.of(piece.TYPE);
+    }
+}
@@ -0,0 +1,329 @@
+package engine;
+
+import models.Board;
+import models.Player;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A Monte Carlo tree search with UCT selection. It needs no knowledge of the pieces beyond their movement rules: the
+ * leaves of the tree are valued by random playouts, which follow the turn counts of the players and therefore the
+ * preconditions of rules such as the one of ARTILLERY. An Evaluation can optionally value the playouts that reach the
+ * ply limit instead of counting them as draws.
+ * <p>
+ * Playouts run in parallel, each thread on its own copy of the board. The threads share the tree: nodes are expanded
+ * under their lock and their statistics are atomic. A thread passing through a node adds a virtual loss to it until the
+ * result of its playout is backed up, which steers the other threads towards different lines in the meantime.
+ * <p>
+ * The tree is kept between moves: advance(Operation) moves the root to the child of the played operation, so that the
+ * playouts already spent below it count for the next search.
+ */
+public class MonteCarloSearch {
+
+    /**
+     * the value of a win; values are fixed point numbers from 0 (loss) to WIN, from the point of view of a player
+     */
+    public static final int WIN = 1 << 16;
+
+    private static final int DRAW = WIN / 2;
+
+    private final Board board;
+    private Player toMove;
+    private Node root = new Node(-1);
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int playoutLimit = 80;
+    private double exploration = Math.sqrt(2);
+    private Function<Board, Evaluation> evaluations = null;
+    private final AtomicLong playouts = new AtomicLong();
+
+    /**
+     * Construct a search of the position of board, which is copied
+     *
+     * @param board  the board
+     * @param toMove the player to move
+     */
+    public MonteCarloSearch(Board board, Player toMove) {
+        this.board = board.copy();
+        this.toMove = toMove == board.WHITE ? this.board.WHITE : this.board.BLACK;
+    }
+
+    /**
+     * @param threads the number of threads running playouts, by default the number of processors
+     * @return this instance
+     */
+    public MonteCarloSearch threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param playoutLimit the number of plies after which a playout stops
+     * @return this instance
+     */
+    public MonteCarloSearch playoutLimit(int playoutLimit) {
+        this.playoutLimit = playoutLimit;
+        return this;
+    }
+
+    /**
+     * @param exploration the exploration constant of UCT
+     * @return this instance
+     */
+    public MonteCarloSearch exploration(double exploration) {
+        this.exploration = exploration;
+        return this;
+    }
+
+    /**
+     * @param evaluations the factory of the evaluation of the playouts that reach the ply limit, applied to the board of
+     *                    every thread; null to count them as draws
+     * @return this instance
+     */
+    public MonteCarloSearch evaluation(Function<Board, Evaluation> evaluations) {
+        this.evaluations = evaluations;
+        return this;
+    }
+
+    /**
+     * Run playouts for a given time
+     *
+     * @param millis the time to search, in milliseconds
+     * @return the most visited operation at the root, null if the player to move has none
+     */
+    public Board.Operation search(long millis) {
+        return run(System.nanoTime() + millis * 1000000, Long.MAX_VALUE);
+    }
+
+    /**
+     * Run a given number of playouts, in total over all threads
+     *
+     * @param count the number of playouts
+     * @return the most visited operation at the root, null if the player to move has none
+     */
+    public Board.Operation playouts(long count) {
+        return run(Long.MAX_VALUE, count);
+    }
+
+    /**
+     * Play an operation of the player to move, keeping the subtree of its child if it has been searched
+     *
+     * @param op the operation
+     */
+    public void advance(Board.Operation op) {
+        final int code = board.encode(op);
+        final Node[] children = root.children;
+        Node next = null;
+        if (children != null) {
+            for (Node child : children) {
+                if (child.code == code) {
+                    next = child;
+                }
+            }
+        }
+        root = next != null ? next : new Node(code);
+        board.execute(board.decode(code), toMove);
+        toMove = board.theOther(toMove);
+    }
+
+    /**
+     * @return the number of playouts through the root, including those of earlier searches kept by advance(Operation)
+     */
+    public int getVisits() {
+        return root.visits.get();
+    }
+
+    /**
+     * @return the number of playouts run by the last search
+     */
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    /**
+     * @return the value of the root from the point of view of the player to move, between 0 and 1
+     */
+    public double getValue() {
+        final int visits = root.visits.get();
+        return visits == 0 ? 0.5 : 1 - (double) root.value.get() / visits / WIN;
+    }
+
+    private Board.Operation run(long deadline, long count) {
+        playouts.set(0);
+        final Thread[] workers = new Thread[Math.max(threads, 1)];
+        for (int i = 0; i < workers.length; i++) {
+            final Board local = board.copy();
+            final Player player = toMove == board.WHITE ? local.WHITE : local.BLACK;
+            final Evaluation evaluation = evaluations == null ? null : evaluations.apply(local);
+            final SplittableRandom random = new SplittableRandom(i * 0x9E3779B97F4A7C15L + System.nanoTime());
+            workers[i] = new Thread(() -> {
+                while (System.nanoTime() < deadline && playouts.getAndIncrement() < count) {
+                    playout(local, player, evaluation, random);
+                }
+            }, "playout-" + i);
+            workers[i].start();
+        }
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        playouts.set(Math.min(playouts.get(), count));
+        return best();
+    }
+
+    /**
+     * @return the most visited child of the root
+     */
+    private Board.Operation best() {
+        final Node[] children = root.children;
+        if (children == null) {
+            return board.generateMoves(toMove).findFirst().orElse(null);
+        }
+        Node best = null;
+        for (Node child : children) {
+            if (best == null || child.visits.get() > best.visits.get()) {
+                best = child;
+            }
+        }
+        return best == null ? null : board.decode(best.code);
+    }
+
+    /**
+     * Select a leaf, expand it, run a playout from it and back up the result, then restore the board
+     */
+    private void playout(Board local, Player player, Evaluation evaluation, SplittableRandom random) {
+        final Node[] path = new Node[Search.MAX_PLY + 1];
+        int length = 0;
+        Node node = root;
+        node.virtual.incrementAndGet();
+        path[length++] = node;
+        int result;
+        while (true) {
+            Node[] children = node.children;
+            if (children == null) {
+                if (node != root && node.visits.get() == 0) {
+                    result = rollout(local, player, evaluation, random);
+                    break;
+                }
+                children = node.expand(local, player);
+            }
+            if (children.length == 0) {
+                result = local.inCheck(player) ? 0 : DRAW;
+                break;
+            }
+            if (length > Search.MAX_PLY) {
+                result = DRAW;
+                break;
+            }
+            node = select(node, children);
+            node.virtual.incrementAndGet();
+            path[length++] = node;
+            local.execute(local.decode(node.code), player);
+            player = local.theOther(player);
+        }
+        // result is from the point of view of the player to move at the leaf, who did not make the operation of the leaf
+        for (int i = length - 1; i >= 0; i--) {
+            result = WIN - result;
+            path[i].value.addAndGet(result);
+            path[i].visits.incrementAndGet();
+            path[i].virtual.decrementAndGet();
+            if (i > 0) {
+                local.undo();
+            }
+        }
+    }
+
+    /**
+     * Pick the child with the highest upper confidence bound, counting virtual losses as visits without value
+     */
+    private Node select(Node parent, Node[] children) {
+        final double logVisits = Math.log(Math.max(parent.visits.get() + parent.virtual.get(), 1));
+        Node best = null;
+        double bestBound = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            final int visits = child.visits.get() + child.virtual.get();
+            final double bound = visits == 0 ? Double.MAX_VALUE
+                    : (double) child.value.get() / visits / WIN + exploration * Math.sqrt(logVisits / visits);
+            if (bound > bestBound) {
+                bestBound = bound;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Play random operations until the game ends or the ply limit is reached, then restore the board
+     *
+     * @return the result from the point of view of player
+     */
+    private int rollout(Board local, Player player, Evaluation evaluation, SplittableRandom random) {
+        final Player us = player;
+        int plies = 0;
+        int result;
+        while (true) {
+            final List<Board.Operation> ops = local.generateMoves(player).collect(Collectors.toList());
+            if (ops.isEmpty()) {
+                result = local.inCheck(player) ? 0 : DRAW;
+                break;
+            }
+            if (plies >= playoutLimit) {
+                result = evaluation == null ? DRAW : probability(evaluation.evaluate(local, player));
+                break;
+            }
+            local.execute(ops.get(random.nextInt(ops.size())), player);
+            player = local.theOther(player);
+            plies++;
+        }
+        for (int i = 0; i < plies; i++) {
+            local.undo();
+        }
+        return player == us ? result : WIN - result;
+    }
+
+    /**
+     * Map a score in centipawns to an expected result
+     */
+    private static int probability(int score) {
+        return (int) (WIN / (1 + Math.exp(-score / 400.0)));
+    }
+
+    private static final class Node {
+        /**
+         * the operation leading to this node, encoded by Board.encode(Operation)
+         */
+        final int code;
+        /**
+         * the sum of the results of the playouts through this node, from the point of view of the player who made its
+         * operation
+         */
+        final AtomicLong value = new AtomicLong();
+        final AtomicInteger visits = new AtomicInteger();
+        final AtomicInteger virtual = new AtomicInteger();
+        volatile Node[] children = null;
+
+        Node(int code) {
+            this.code = code;
+        }
+
+        synchronized Node[] expand(Board board, Player player) {
+            if (children == null) {
+                children = board.generateMoves(player).map(op -> new Node(board.encode(op))).toArray(Node[]::new);
+            }
+            return children;
+        }
+    }
+}
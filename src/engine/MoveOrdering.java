@@ -0,0 +1,163 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.Player;
+
+import java.util.Arrays;
+
+/**
+ * The heuristics deciding in which order a search tries the operations of a node: captures are scored by most valuable
+ * victim and least valuable attacker (MVV-LVA), quiet moves that caused a cutoff are remembered as killer moves per ply,
+ * and every cutoff is credited to a butterfly history table indexed by the source and destination of the move.
+ * An instance belongs to a single board, as the tables are sized after it.
+ */
+public class MoveOrdering {
+
+    /**
+     * the deepest ply killer moves are tracked for
+     */
+    public static final int MAX_PLY = 128;
+    /**
+     * the number of killer moves remembered per ply
+     */
+    public static final int KILLERS_PER_PLY = 2;
+
+    private static final int HISTORY_LIMIT = 1 << 20;
+    private static final int NONE = -1;
+
+    private final Board board;
+    private final int[] killers = new int[MAX_PLY * KILLERS_PER_PLY];
+    private final int[][] history;
+
+    /**
+     * Construct empty tables for a board
+     *
+     * @param board the board the ordered operations operate on
+     */
+    public MoveOrdering(Board board) {
+        this.board = board;
+        this.history = new int[2][board.size() * board.size()];
+        Arrays.fill(killers, NONE);
+    }
+
+    /**
+     * Score a capture by MVV-LVA, aka. by the value of its victim first and then by the inverse value of its attacker
+     *
+     * @param board the board op operates on
+     * @param op    an attack
+     * @return a score where higher means the capture should be tried earlier
+     */
+    public static int mvvLva(Board board, Board.Operation op) {
+        final Piece victim = board.get(op.TO);
+        final Piece attacker = board.get(op.FROM);
+        return (PieceValues.of(victim.TYPE) << 16) - PieceValues.of(attacker.TYPE);
+    }
+
+    /**
+     * @param ply  the distance from the root of the search
+     * @param slot 0 for the most recent killer move, up to KILLERS_PER_PLY - 1
+     * @return the encoded killer move, see Board.encode(Operation), or -1 if there is none
+     */
+    public int killer(int ply, int slot) {
+        return ply < MAX_PLY ? killers[ply * KILLERS_PER_PLY + slot] : NONE;
+    }
+
+    /**
+     * @param ply the distance from the root of the search
+     * @param op  an operation
+     * @return whether op is one of the killer moves at ply
+     */
+    public boolean isKiller(int ply, Board.Operation op) {
+        if (ply >= MAX_PLY) {
+            return false;
+        }
+        final int code = board.encode(op);
+        for (int slot = 0; slot < KILLERS_PER_PLY; slot++) {
+            if (killers[ply * KILLERS_PER_PLY + slot] == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remember a quiet move that caused a cutoff at ply. Captures are ignored because they are ordered by MVV-LVA anyway.
+     *
+     * @param ply the distance from the root of the search
+     * @param op  the move
+     */
+    public void storeKiller(int ply, Board.Operation op) {
+        if (ply >= MAX_PLY || op.getClass() != Board.Operation.Move.class) {
+            return;
+        }
+        final int code = board.encode(op);
+        final int base = ply * KILLERS_PER_PLY;
+        if (killers[base] == code) {
+            return;
+        }
+        System.arraycopy(killers, base, killers, base + 1, KILLERS_PER_PLY - 1);
+        killers[base] = code;
+    }
+
+    /**
+     * @param player the player from which op executes
+     * @param op     an operation
+     * @return the history score of op
+     */
+    public int history(Player player, Board.Operation op) {
+        return history[side(player)][board.encode(op)];
+    }
+
+    /**
+     * Credit a quiet move that caused a cutoff, weighted by the remaining depth of the search
+     *
+     * @param player the player from which op executes
+     * @param op     the move
+     * @param depth  the remaining depth at which op caused the cutoff
+     */
+    public void updateHistory(Player player, Board.Operation op, int depth) {
+        if (op.getClass() != Board.Operation.Move.class) {
+            return;
+        }
+        final int[] table = history[side(player)];
+        final int code = board.encode(op);
+        table[code] += depth * depth;
+        if (table[code] > HISTORY_LIMIT) {
+            halveHistory();
+        }
+    }
+
+    /**
+     * Halve the history scores and forget the killer moves, usually between two searches
+     */
+    public void age() {
+        halveHistory();
+        Arrays.fill(killers, NONE);
+    }
+
+    /**
+     * Halve the history scores only, so that the killer moves survive when a score overflows in the middle of a search
+     */
+    private void halveHistory() {
+        for (int[] table : history) {
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Reset all tables
+     */
+    public void clear() {
+        for (int[] table : history) {
+            Arrays.fill(table, 0);
+        }
+        Arrays.fill(killers, NONE);
+    }
+
+    private int side(Player player) {
+        return player == board.WHITE ? 1 : 0;
+    }
+}
@@ -0,0 +1,220 @@
+package engine;
+
+import models.Board;
+import models.Player;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * A staged generator of the legal operations of a node. Operations are handed out in the order: the hash move, captures
+ * that do not lose material by MVV-LVA, killer moves, the remaining quiet moves by history score, then the captures that
+ * lose material according to StaticExchange. A stage is only generated once the previous
+ * ones are exhausted and sorted lazily, by selecting the best remaining operation when it is asked for, and check
+ * conditions are only tested for the operation being handed out. A search that cuts off early thus pays neither for
+ * generating nor for validating the rest.
+ * <p>
+ * A picker created by captures(Board, Player) only hands out the captures that do not lose material, as needed by a
+ * quiescence search.
+ */
+public class MovePicker implements Iterator<Board.Operation> {
+
+    private static final int NONE = -1;
+
+    private final Board board;
+    private final Player player;
+    private final MoveOrdering ordering;
+    private final int ply;
+    private final int hashMove;
+    private final int[] killers = new int[MoveOrdering.KILLERS_PER_PLY];
+    private final boolean capturesOnly;
+    private final List<Board.Operation> badCaptures = new ArrayList<>();
+    private List<Board.Operation> ops;
+    private int[] scores;
+    private int index = 0;
+    private Stage stage = Stage.HASH;
+    private Board.Operation next = null;
+
+    /**
+     * Construct a picker for the operations of player
+     *
+     * @param board    the board the operations operate on
+     * @param player   the player from which the operations execute
+     * @param ordering the ordering heuristics
+     * @param ply      the distance from the root of the search
+     * @param hashMove the encoded best operation known for this position, see Board.encode(Operation), or -1 if none
+     */
+    public MovePicker(Board board, Player player, MoveOrdering ordering, int ply, int hashMove) {
+        this(board, player, ordering, ply, hashMove, false);
+    }
+
+    private MovePicker(Board board, Player player, MoveOrdering ordering, int ply, int hashMove, boolean capturesOnly) {
+        this.capturesOnly = capturesOnly;
+        this.board = board;
+        this.player = player;
+        this.ordering = ordering;
+        this.ply = ply;
+        this.hashMove = hashMove;
+        for (int slot = 0; slot < killers.length; slot++) {
+            killers[slot] = NONE;
+        }
+    }
+
+    /**
+     * Construct a picker handing out only the captures of player that do not lose material, by MVV-LVA
+     *
+     * @param board  the board the operations operate on
+     * @param player the player from which the operations execute
+     * @return the picker
+     */
+    public static MovePicker captures(Board board, Player player) {
+        return new MovePicker(board, player, null, 0, NONE, true);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Board.Operation next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Board.Operation ret = next;
+        next = null;
+        return ret;
+    }
+
+    private Board.Operation advance() {
+        while (true) {
+            switch (stage) {
+                case HASH:
+                    stage = Stage.GENERATE_CAPTURES;
+                    if (hashMove != NONE) {
+                        final Board.Operation op = board.decode(hashMove);
+                        if (board.isLegal(op, player)) {
+                            return op;
+                        }
+                    }
+                    break;
+                case GENERATE_CAPTURES:
+                    ops = board.generateAttacks(player, false).collect(Collectors.toList());
+                    scores = new int[ops.size()];
+                    for (int i = 0; i < scores.length; i++) {
+                        scores[i] = MoveOrdering.mvvLva(board, ops.get(i));
+                    }
+                    index = 0;
+                    stage = Stage.CAPTURES;
+                    break;
+                case CAPTURES:
+                    while (index < ops.size()) {
+                        final Board.Operation op = pick();
+                        if (!isFresh(op)) {
+                            continue;
+                        }
+                        if (!StaticExchange.isNonLosing(board, op, player)) {
+                            if (!capturesOnly) {
+                                badCaptures.add(op);
+                            }
+                        } else if (!board.leavesInCheck(op, player)) {
+                            return op;
+                        }
+                    }
+                    index = 0;
+                    stage = capturesOnly ? Stage.DONE : Stage.KILLERS;
+                    break;
+                case KILLERS:
+                    while (index < killers.length) {
+                        final int killer = ordering.killer(ply, index++);
+                        if (killer == NONE || killer == hashMove) {
+                            continue;
+                        }
+                        final Board.Operation op = board.decode(killer);
+                        if (op.getClass() == Board.Operation.Move.class && board.isLegal(op, player)) {
+                            killers[index - 1] = killer;
+                            return op;
+                        }
+                    }
+                    stage = Stage.GENERATE_QUIETS;
+                    break;
+                case GENERATE_QUIETS:
+                    ops = board.generateQuiets(player, false).collect(Collectors.toList());
+                    scores = new int[ops.size()];
+                    for (int i = 0; i < scores.length; i++) {
+                        scores[i] = ordering.history(player, ops.get(i));
+                    }
+                    index = 0;
+                    stage = Stage.QUIETS;
+                    break;
+                case QUIETS:
+                    while (index < ops.size()) {
+                        final Board.Operation op = pick();
+                        if (isFresh(op) && !board.leavesInCheck(op, player)) {
+                            return op;
+                        }
+                    }
+                    index = 0;
+                    stage = Stage.BAD_CAPTURES;
+                    break;
+                case BAD_CAPTURES:
+                    while (index < badCaptures.size()) {
+                        final Board.Operation op = badCaptures.get(index++);
+                        if (!board.leavesInCheck(op, player)) {
+                            return op;
+                        }
+                    }
+                    stage = Stage.DONE;
+                    break;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * @return false if op has already been handed out as the hash move or as a killer move
+     */
+    private boolean isFresh(Board.Operation op) {
+        final int code = board.encode(op);
+        if (code == hashMove) {
+            return false;
+        }
+        for (int killer : killers) {
+            if (code == killer) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Selection step: swap the best remaining operation of the current stage to the current index and return it
+     */
+    private Board.Operation pick() {
+        int best = index;
+        for (int i = index + 1; i < ops.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        final Board.Operation ret = ops.get(best);
+        ops.set(best, ops.get(index));
+        ops.set(index, ret);
+        final int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        index++;
+        return ret;
+    }
+
+    private enum Stage {
+        HASH, GENERATE_CAPTURES, CAPTURES, KILLERS, GENERATE_QUIETS, QUIETS, BAD_CAPTURES, DONE
+    }
+}
@@ -0,0 +1,105 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.Player;
+
+import java.awt.*;
+
+import static util.Shorthand.pt;
+
+/**
+ * An evaluation by a NeuralNetwork whose first layer is kept up to date incrementally. The accumulators of both
+ * perspectives are only adjusted by the weights of the features that change as pieces are put on and taken off the
+ * board, so undoing an operation restores them exactly, and only the small dense layers run at every leaf.
+ */
+public class NeuralEvaluation implements Evaluation, Board.PieceListener {
+
+    private final Board board;
+    private final NeuralNetwork network;
+    /**
+     * the accumulators of the perspectives of black and white
+     */
+    private final int[][] accumulators;
+    /**
+     * the location of each index as oriented for black and white
+     */
+    private final int[][] oriented;
+    private final int[] input;
+
+    /**
+     * Construct the evaluation of a board and register it as a listener of the board
+     *
+     * @param board   the board to be evaluated
+     * @param network the weights, which may be shared by the evaluations of several boards
+     * @throws IllegalArgumentException if network was not made for the size of board
+     */
+    public NeuralEvaluation(Board board, NeuralNetwork network) {
+        if (!network.fits(board)) {
+            throw new IllegalArgumentException(String.format("Network is for %dx%d boards, got %dx%d",
+                    network.N_COLS, network.N_ROWS, board.N_COLS, board.N_ROWS));
+        }
+        this.board = board;
+        this.network = network;
+        this.accumulators = new int[2][network.HIDDEN];
+        this.oriented = new int[2][board.size()];
+        this.input = new int[2 * network.HIDDEN];
+        for (Player player : new Player[]{board.BLACK, board.WHITE}) {
+            final boolean forward = player.apply(pt(0, 1)).y > 0;
+            for (int index = 0; index < board.size(); index++) {
+                final Point p = board.point(index);
+                oriented[side(player)][index] = forward ? index : board.coord(p.x, board.N_ROWS - 1 - p.y);
+            }
+            for (int i = 0; i < network.HIDDEN; i++) {
+                accumulators[side(player)][i] = network.featureBiases[i];
+            }
+        }
+        board.forEach(piece -> {
+            if (piece != null) {
+                placed(piece, board.coord(piece.getLocation()));
+            }
+        });
+        board.addPieceListener(this);
+    }
+
+    @Override
+    public int evaluate(Board board, Player player) {
+        assert board == this.board;
+        final int side = side(player);
+        return network.propagate(accumulators[side], accumulators[1 - side], input);
+    }
+
+    @Override
+    public void placed(Piece piece, int index) {
+        update(piece, index, 1);
+    }
+
+    @Override
+    public void removed(Piece piece, int index) {
+        update(piece, index, -1);
+    }
+
+    private void update(Piece piece, int index, int sign) {
+        final int hidden = network.HIDDEN;
+        final short[] weights = network.featureWeights;
+        for (int side = 0; side < 2; side++) {
+            final boolean own = side(piece.PLAYER) == side;
+            final int base = network.feature(piece.TYPE, own, oriented[side][index]) * hidden;
+            final int[] accumulator = accumulators[side];
+            for (int i = 0; i < hidden; i++) {
+                accumulator[i] += sign * weights[base + i];
+            }
+        }
+    }
+
+    /**
+     * Stop following the changes of the board
+     */
+    public void detach() {
+        board.removePieceListener(this);
+    }
+
+    private int side(Player player) {
+        return player == board.WHITE ? 1 : 0;
+    }
+}
@@ -0,0 +1,231 @@
+package engine;
+
+import models.Board;
+import models.PieceType;
+import models.PieceTypes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * The weights of an efficiently updatable neural network (NNUE) evaluating positions on boards of a given size.
+ * <p>
+ * Its input features are the pieces on the board seen from one player's perspective: a feature is active for each piece,
+ * identified by its type, whether it belongs to the perspective's player, and its location as oriented for that player.
+ * The first layer maps the features of each perspective to an accumulator of HIDDEN values, kept up to date by
+ * NeuralEvaluation. The accumulators of the side to move and of its rival are clipped and concatenated, then go through
+ * a dense layer of L1 neurons and a single output neuron. All arithmetic is done on integers, in plain loops over flat
+ * arrays that the JIT compiler can vectorize.
+ * <p>
+ * The file format is little-endian: the int MAGIC, the board's number of columns and rows, the number of types of
+ * piece, HIDDEN, L1 and the output shift, followed by the feature weights and biases as shorts, the L1 weights as shorts,
+ * the L1 biases as ints, the output weights as shorts and the output bias as an int.
+ */
+public final class NeuralNetwork {
+
+    public static final int MAGIC = 0x45554E4E;
+    /**
+     * the number of types of piece with their own features: every constant of PieceTypes plus one for other types
+     */
+    public static final int TYPES = PieceTypes.values().length + 1;
+    /**
+     * the upper bound of the clipped ReLU activation
+     */
+    public static final int CLIP = 127;
+
+    public final int N_COLS;
+    public final int N_ROWS;
+    public final int HIDDEN;
+    public final int L1;
+    public final int SHIFT;
+
+    final short[] featureWeights;
+    final short[] featureBiases;
+    final short[] l1Weights;
+    final int[] l1Biases;
+    final short[] outWeights;
+    final int outBias;
+
+    private NeuralNetwork(int n_COLS, int n_ROWS, int hidden, int l1, int shift, short[] featureWeights, short[] featureBiases,
+                          short[] l1Weights, int[] l1Biases, short[] outWeights, int outBias) {
+        N_COLS = n_COLS;
+        N_ROWS = n_ROWS;
+        HIDDEN = hidden;
+        L1 = l1;
+        SHIFT = shift;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.l1Weights = l1Weights;
+        this.l1Biases = l1Biases;
+        this.outWeights = outWeights;
+        this.outBias = outBias;
+    }
+
+    /**
+     * @return the number of input features for each perspective
+     */
+    public int features() {
+        return TYPES * 2 * N_COLS * N_ROWS;
+    }
+
+    /**
+     * @param type     the type of a piece
+     * @param own      whether the piece belongs to the player of the perspective
+     * @param oriented the index of the location of the piece as oriented for the player of the perspective
+     * @return the index of the feature
+     */
+    int feature(PieceType type, boolean own, int oriented) {
+        final int typeIndex = type instanceof PieceTypes ? ((PieceTypes) type).ordinal() : TYPES - 1;
+        return (typeIndex * 2 + (own ? 0 : 1)) * N_ROWS * N_COLS + oriented;
+    }
+
+    /**
+     * Check whether this network evaluates positions on a board
+     *
+     * @param board a board
+     * @return true if board has the size this network was trained for
+     */
+    public boolean fits(Board board) {
+        return board.N_COLS == N_COLS && board.N_ROWS == N_ROWS;
+    }
+
+    /**
+     * Run the dense layers on the clipped accumulators
+     *
+     * @param us    the accumulator of the side to move
+     * @param them  the accumulator of its rival
+     * @param input a scratch array of 2 * HIDDEN ints
+     * @return the output of the network
+     */
+    int propagate(int[] us, int[] them, int[] input) {
+        for (int i = 0; i < HIDDEN; i++) {
+            input[i] = Math.min(Math.max(us[i], 0), CLIP);
+            input[HIDDEN + i] = Math.min(Math.max(them[i], 0), CLIP);
+        }
+        int out = outBias;
+        for (int o = 0; o < L1; o++) {
+            final int base = o * 2 * HIDDEN;
+            int sum = l1Biases[o];
+            for (int i = 0; i < 2 * HIDDEN; i++) {
+                sum += input[i] * l1Weights[base + i];
+            }
+            out += Math.min(Math.max(sum >> SHIFT, 0), CLIP) * outWeights[o];
+        }
+        return out >> SHIFT;
+    }
+
+    /**
+     * Load the weights of a network from a local file
+     *
+     * @param path the path to the file
+     * @return the network
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not in the expected format
+     */
+    public static NeuralNetwork load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 7 * Integer.BYTES || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a network file: " + path);
+            }
+            final int cols = buffer.getInt(), rows = buffer.getInt(), types = buffer.getInt();
+            final int hidden = buffer.getInt(), l1 = buffer.getInt(), shift = buffer.getInt();
+            if (types != TYPES) {
+                throw new IllegalArgumentException(String.format("Network has %d types of piece, expected %d", types, TYPES));
+            }
+            final int features = types * 2 * cols * rows;
+            final long expected = 2L * features * hidden + 2L * hidden + 2L * 2 * hidden * l1 + 4L * l1 + 2L * l1 + 4;
+            if (buffer.remaining() != expected) {
+                throw new IllegalArgumentException("Truncated or oversized network file: " + path);
+            }
+            final short[] featureWeights = new short[features * hidden];
+            final short[] featureBiases = new short[hidden];
+            final short[] l1Weights = new short[2 * hidden * l1];
+            final int[] l1Biases = new int[l1];
+            final short[] outWeights = new short[l1];
+            buffer.asShortBuffer().get(featureWeights);
+            buffer.position(buffer.position() + 2 * featureWeights.length);
+            buffer.asShortBuffer().get(featureBiases);
+            buffer.position(buffer.position() + 2 * featureBiases.length);
+            buffer.asShortBuffer().get(l1Weights);
+            buffer.position(buffer.position() + 2 * l1Weights.length);
+            buffer.asIntBuffer().get(l1Biases);
+            buffer.position(buffer.position() + 4 * l1Biases.length);
+            buffer.asShortBuffer().get(outWeights);
+            buffer.position(buffer.position() + 2 * outWeights.length);
+            final int outBias = buffer.getInt();
+            return new NeuralNetwork(cols, rows, hidden, l1, shift, featureWeights, featureBiases, l1Weights, l1Biases, outWeights, outBias);
+        }
+    }
+
+    /**
+     * Write the weights of this network to a local file, in the format read by load(Path)
+     *
+     * @param path the path to the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        final int size = 7 * Integer.BYTES + 2 * featureWeights.length + 2 * featureBiases.length + 2 * l1Weights.length
+                + 4 * l1Biases.length + 2 * outWeights.length + 4;
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(N_COLS).putInt(N_ROWS).putInt(TYPES).putInt(HIDDEN).putInt(L1).putInt(SHIFT);
+        for (short w : featureWeights) {
+            buffer.putShort(w);
+        }
+        for (short b : featureBiases) {
+            buffer.putShort(b);
+        }
+        for (short w : l1Weights) {
+            buffer.putShort(w);
+        }
+        for (int b : l1Biases) {
+            buffer.putInt(b);
+        }
+        for (short w : outWeights) {
+            buffer.putShort(w);
+        }
+        buffer.putInt(outBias);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Create a network with small random weights, as the starting point of training or for testing
+     *
+     * @param n_COLS the number of columns of the boards to be evaluated
+     * @param n_ROWS the number of rows of the boards to be evaluated
+     * @param hidden the size of the accumulator of each perspective
+     * @param l1     the number of neurons of the dense layer
+     * @param seed   the seed of the random weights
+     * @return the network
+     */
+    public static NeuralNetwork random(int n_COLS, int n_ROWS, int hidden, int l1, long seed) {
+        final Random random = new Random(seed);
+        final int features = TYPES * 2 * n_COLS * n_ROWS;
+        final short[] featureWeights = new short[features * hidden];
+        final short[] featureBiases = new short[hidden];
+        final short[] l1Weights = new short[2 * hidden * l1];
+        final int[] l1Biases = new int[l1];
+        final short[] outWeights = new short[l1];
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(33) - 16);
+        }
+        for (int i = 0; i < l1Weights.length; i++) {
+            l1Weights[i] = (short) (random.nextInt(17) - 8);
+        }
+        for (int i = 0; i < outWeights.length; i++) {
+            outWeights[i] = (short) (random.nextInt(65) - 32);
+        }
+        return new NeuralNetwork(n_COLS, n_ROWS, hidden, l1, 6, featureWeights, featureBiases, l1Weights, l1Biases, outWeights, 0);
+    }
+}
@@ -0,0 +1,158 @@
+package engine;
+
+import models.Board;
+import models.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An opening book mapped from a file, see OpeningBookBuilder. The file is a little-endian header made of MAGIC, the
+ * number of columns and of rows of the board and the number of entries, followed by the entries sorted by key and by
+ * decreasing weight. Each entry holds the key of a position, see Board.getKey(Player), an operation encoded by
+ * Board.encode(Operation) and its weight.
+ * <p>
+ * Entries are found by binary search directly in the mapped file, so probing allocates nothing.
+ */
+public final class OpeningBook {
+
+    public static final int MAGIC = 0x4B4F4F42;
+    static final int HEADER = 4 * Integer.BYTES;
+    static final int ENTRY = Long.BYTES + 2 * Integer.BYTES;
+
+    public final int N_COLS;
+    public final int N_ROWS;
+    private final ByteBuffer data;
+    private final int entries;
+
+    private OpeningBook(int n_COLS, int n_ROWS, ByteBuffer data, int entries) {
+        N_COLS = n_COLS;
+        N_ROWS = n_ROWS;
+        this.data = data;
+        this.entries = entries;
+    }
+
+    /**
+     * Map a book into memory
+     *
+     * @param path the book file
+     * @return the book
+     * @throws IOException if the file cannot be read
+     */
+    public static OpeningBook load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER || buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not an opening book file: " + path);
+            }
+            final int entries = buffer.getInt(3 * Integer.BYTES);
+            if (buffer.remaining() != HEADER + (long) entries * ENTRY) {
+                throw new IllegalArgumentException("Truncated or oversized opening book file: " + path);
+            }
+            return new OpeningBook(buffer.getInt(Integer.BYTES), buffer.getInt(2 * Integer.BYTES), buffer, entries);
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * @param key the key of a position
+     * @return the first entry of the position, the one of highest weight, or -1 if the position is not in the book
+     */
+    public int probe(long key) {
+        int low = 0, high = entries;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (Long.compare(key(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < entries && key(low) == key ? low : -1;
+    }
+
+    /**
+     * @param entry an entry
+     * @return whether the next entry belongs to the same position
+     */
+    public boolean hasNext(int entry) {
+        return entry + 1 < entries && key(entry + 1) == key(entry);
+    }
+
+    public long key(int entry) {
+        return data.getLong(HEADER + entry * ENTRY);
+    }
+
+    /**
+     * @return the encoded operation of an entry, see Board.decode(int)
+     */
+    public int move(int entry) {
+        return data.getInt(HEADER + entry * ENTRY + Long.BYTES);
+    }
+
+    public int weight(int entry) {
+        return data.getInt(HEADER + entry * ENTRY + Long.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * @param board a board
+     * @return whether the book was built for the size of board
+     */
+    public boolean fits(Board board) {
+        return board.N_COLS == N_COLS && board.N_ROWS == N_ROWS;
+    }
+
+    /**
+     * Pick a book operation at random, in proportion to the weights
+     *
+     * @param board  the board
+     * @param player the player to move
+     * @param random the source of randomness
+     * @return a legal operation, or null if the position is not in the book
+     */
+    public Board.Operation choose(Board board, Player player, Random random) {
+        if (!fits(board)) {
+            return null;
+        }
+        final int first = probe(board.getKey(player));
+        if (first == -1) {
+            return null;
+        }
+        // entries illegal on this board, e.g. on a collision of keys, are left out of the draw
+        final List<Board.Operation> legal = new ArrayList<>();
+        final List<Integer> weights = new ArrayList<>();
+        long total = 0;
+        for (int entry = first; ; entry++) {
+            final Board.Operation op = board.decode(move(entry));
+            if (board.isLegal(op, player)) {
+                legal.add(op);
+                weights.add(weight(entry));
+                total += weight(entry);
+            }
+            if (!hasNext(entry)) {
+                break;
+            }
+        }
+        long pick = total <= 0 ? 0 : (long) (random.nextDouble() * total);
+        for (int i = 0; i < legal.size(); i++) {
+            pick -= weights.get(i);
+            if (pick < 0 || i == legal.size() - 1) {
+                return legal.get(i);
+            }
+        }
+        return null;
+    }
+}
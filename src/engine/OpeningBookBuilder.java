@@ -0,0 +1,179 @@
+package engine;
+
+import models.Board;
+import models.Player;
+import util.Pair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Create or extend an OpeningBook from games, either imported or played by the engine against itself. Every operation
+ * played in the first plies of a game adds to the weight of its entry.
+ */
+public class OpeningBookBuilder {
+
+    private final int cols;
+    private final int rows;
+    private final TreeMap<Long, Map<Integer, Integer>> positions = new TreeMap<>(Long::compare);
+    private int maxPlies = 16;
+
+    /**
+     * Construct a builder of a book for boards of a given size
+     *
+     * @param cols the number of columns of the boards
+     * @param rows the number of rows of the boards
+     */
+    public OpeningBookBuilder(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    /**
+     * Construct a builder extending an existing book
+     *
+     * @param book the book
+     */
+    public OpeningBookBuilder(OpeningBook book) {
+        this(book.N_COLS, book.N_ROWS);
+        for (int entry = 0; entry < book.size(); entry++) {
+            add(book.key(entry), book.move(entry), book.weight(entry));
+        }
+    }
+
+    /**
+     * @param maxPlies the number of plies of a game added to the book
+     * @return this instance
+     */
+    public OpeningBookBuilder maxPlies(int maxPlies) {
+        this.maxPlies = maxPlies;
+        return this;
+    }
+
+    /**
+     * Add weight to an operation in a position
+     *
+     * @param board  the board
+     * @param player the player to move
+     * @param op     the operation
+     * @param weight the weight added
+     * @return this instance
+     */
+    public OpeningBookBuilder add(Board board, Player player, Board.Operation op, int weight) {
+        if (board.N_COLS != cols || board.N_ROWS != rows) {
+            throw new IllegalArgumentException(String.format("Expected a %dx%d board, got %dx%d", cols, rows, board.N_COLS, board.N_ROWS));
+        }
+        return add(board.getKey(player), board.encode(op), weight);
+    }
+
+    private OpeningBookBuilder add(long key, int move, int weight) {
+        positions.computeIfAbsent(key, k -> new HashMap<>()).merge(move, weight, Integer::sum);
+        return this;
+    }
+
+    /**
+     * Add the first plies of a game
+     *
+     * @param start the starting position, the default board or one set up by Board.addPiece; it is not modified
+     * @param moves the operations of the game and the players from which they operate
+     * @return this instance
+     */
+    public OpeningBookBuilder addGame(Board start, Stream<Pair<Board.Operation, Player>> moves) {
+        final Board board = start.copy();
+        for (Pair<Board.Operation, Player> move : moves.limit(maxPlies).collect(Collectors.toList())) {
+            final Player player = move.second == start.WHITE ? board.WHITE : board.BLACK;
+            final Board.Operation op = board.decode(start.encode(move.first));
+            if (!board.isLegal(op, player)) {
+                throw new IllegalArgumentException("Illegal operation in game: " + move.first);
+            }
+            add(board, player, op, 1);
+            board.execute(op, player);
+        }
+        return this;
+    }
+
+    /**
+     * Play games of the engine against itself and add them. Each game starts with a random operation, then both sides
+     * play the best operation of a fixed depth search.
+     *
+     * @param start    the starting position; it is not modified
+     * @param first    the player to move first
+     * @param games    the number of games
+     * @param depth    the depth of the searches
+     * @param searches the factory of the search of a board
+     * @param random   the source of randomness
+     * @return this instance
+     */
+    public OpeningBookBuilder selfPlay(Board start, Player first, int games, int depth, Function<Board, Search> searches,
+                                       Random random) {
+        for (int game = 0; game < games; game++) {
+            final Board board = start.copy();
+            final Search search = searches.apply(board);
+            Player player = first == start.WHITE ? board.WHITE : board.BLACK;
+            for (int ply = 0; ply < maxPlies; ply++) {
+                final Board.Operation op;
+                if (ply == 0) {
+                    final List<Board.Operation> ops = board.generateMoves(player).collect(Collectors.toList());
+                    op = ops.isEmpty() ? null : ops.get(random.nextInt(ops.size()));
+                } else {
+                    search.iterate(player, depth);
+                    op = search.getBestMove();
+                }
+                if (op == null) {
+                    break;
+                }
+                add(board, player, op, 1);
+                board.execute(op, player);
+                player = board.theOther(player);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of entries of the book
+     */
+    public int size() {
+        return positions.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Write the book, see OpeningBook for the format
+     *
+     * @param path the book file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        final int entries = size();
+        final ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER + entries * OpeningBook.ENTRY).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(OpeningBook.MAGIC).putInt(cols).putInt(rows).putInt(entries);
+        for (Map.Entry<Long, Map<Integer, Integer>> position : positions.entrySet()) {
+            final List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(position.getValue().entrySet());
+            moves.sort((a, b) -> b.getValue().equals(a.getValue())
+                    ? Integer.compare(a.getKey(), b.getKey()) : Integer.compare(b.getValue(), a.getValue()));
+            for (Map.Entry<Integer, Integer> move : moves) {
+                buffer.putLong(position.getKey()).putInt(move.getKey()).putInt(move.getValue());
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.PieceType;
+import models.PieceTypes;
+import models.Player;
+import util.Vector2D;
+
+import java.awt.*;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The evaluation of the pawns of both players: doubled, isolated and passed pawns, and pawn chains. Directions are taken
+ * from the MovementRules of PAWN as oriented by Player.apply, so a pawn is passed when no enemy pawn can block or attack
+ * it on its way forward, and a pawn is part of a chain when a friendly pawn attacks its location.
+ * As the result depends on the locations of the pawns only, it is usually cached in a PawnTable.
+ */
+public class PawnStructure {
+
+    public static final int DOUBLED = -15;
+    public static final int ISOLATED = -12;
+    public static final int CHAIN = 8;
+    /**
+     * the bonus of a passed pawn per row it has advanced
+     */
+    public static final int PASSED = 10;
+
+    private static final List<Point> ADVANCES = vectors(PieceTypes.PAWN, PieceType.MovementRule.Mode.MOVE_ONLY);
+    private static final List<Point> CAPTURES = vectors(PieceTypes.PAWN, PieceType.MovementRule.Mode.ATTACK_ONLY);
+
+    private static List<Point> vectors(PieceType type, PieceType.MovementRule.Mode mode) {
+        return type.getMovementRules().filter(rule -> rule.MODE == mode).map(rule -> rule.UNIT_VEC).distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * @param board a board
+     * @return the score of the pawns on board from the point of view of the white player
+     */
+    public static int evaluate(Board board) {
+        return evaluate(board, board.WHITE) - evaluate(board, board.BLACK);
+    }
+
+    private static int evaluate(Board board, Player player) {
+        final int[] files = new int[board.N_COLS];
+        final int[] enemyFiles = new int[board.N_COLS];
+        player.getPieces().filter(PawnStructure::isPawn).forEach(pawn -> files[pawn.getLocation().x]++);
+        board.theOther(player).getPieces().filter(PawnStructure::isPawn).forEach(pawn -> enemyFiles[pawn.getLocation().x]++);
+        int score = 0;
+        for (int x = 0; x < board.N_COLS; x++) {
+            if (files[x] > 1) {
+                score += DOUBLED * (files[x] - 1);
+            }
+            if (files[x] > 0 && (x == 0 || files[x - 1] == 0) && (x == board.N_COLS - 1 || files[x + 1] == 0)) {
+                score += ISOLATED * files[x];
+            }
+        }
+        score += player.getPieces().filter(PawnStructure::isPawn).mapToInt(pawn -> {
+            final Point loc = pawn.getLocation();
+            int bonus = 0;
+            for (Point capture : CAPTURES) {
+                final Point from = Vector2D.subtract(loc, player.apply(capture));
+                final Piece defender = board.inBound(from) ? board.get(from) : null;
+                if (defender != null && defender.PLAYER == player && isPawn(defender)) {
+                    bonus += CHAIN;
+                    break;
+                }
+            }
+            final int lo = Math.max(0, loc.x - 1), hi = Math.min(board.N_COLS - 1, loc.x + 1);
+            boolean passed = true;
+            for (int x = lo; passed && x <= hi; x++) {
+                passed = enemyFiles[x] == 0 || !hasEnemyPawnAhead(board, player, loc, x);
+            }
+            if (passed) {
+                bonus += PASSED * advancement(board, player, loc);
+            }
+            return bonus;
+        }).sum();
+        return score;
+    }
+
+    /**
+     * @return whether an enemy pawn stands on column x ahead of loc in the direction the pawns of player advance
+     */
+    private static boolean hasEnemyPawnAhead(Board board, Player player, Point loc, int x) {
+        final int dy = forward(player);
+        for (int y = loc.y + dy; 0 <= y && y < board.N_ROWS; y += dy) {
+            final Piece piece = board.get(x, y);
+            if (piece != null && piece.PLAYER != player && isPawn(piece)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of rows a pawn at loc has advanced from the side of player
+     */
+    private static int advancement(Board board, Player player, Point loc) {
+        return forward(player) > 0 ? loc.y : board.N_ROWS - 1 - loc.y;
+    }
+
+    /**
+     * @return 1 if the pawns of player advance up, -1 if they advance down
+     */
+    private static int forward(Player player) {
+        return player.apply(ADVANCES.get(0)).y > 0 ? 1 : -1;
+    }
+
+    private static boolean isPawn(Piece piece) {
+        return piece.TYPE == PieceTypes.PAWN;
+    }
+}
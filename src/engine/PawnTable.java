@@ -0,0 +1,65 @@
+package engine;
+
+import models.Board;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache from the pawn key of a position, see Board.getPawnKey(), to the score of its pawn structure,
+ * see PawnStructure. Entries are indexed by the low bits of the key and replaced on collision. An empty entry has key
+ * 0 and score 0, which is also the correct entry for a position without pawns.
+ */
+public class PawnTable {
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+    private long hits = 0;
+    private long probes = 0;
+
+    /**
+     * Construct an empty table
+     *
+     * @param bits the table holds 2^bits entries
+     */
+    public PawnTable(int bits) {
+        keys = new long[1 << bits];
+        scores = new int[1 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Look up the pawn structure of a board, evaluating and storing it on a miss
+     *
+     * @param board a board
+     * @return the score of the pawns on board from the point of view of the white player
+     */
+    public int probe(Board board) {
+        final long key = board.getPawnKey();
+        final int index = (int) (key ^ (key >>> 32)) & mask;
+        probes++;
+        if (keys[index] == key) {
+            hits++;
+            return scores[index];
+        }
+        final int score = PawnStructure.evaluate(board);
+        keys[index] = key;
+        scores[index] = score;
+        return score;
+    }
+
+    /**
+     * Empty the table
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(scores, 0);
+    }
+
+    /**
+     * @return the ratio of probes answered from the table
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+}
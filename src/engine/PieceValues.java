@@ -0,0 +1,53 @@
+package engine;
+
+import models.PieceType;
+import models.PieceTypes;
+
+/**
+ * Material values of the types of piece in centipawns, used by move ordering and evaluation
+ */
+public class PieceValues {
+
+    public static final int PAWN = 100;
+    public static final int KNIGHT = 320;
+    public static final int BISHOP = 330;
+    public static final int ROOK = 500;
+    public static final int QUEEN = 900;
+    public static final int KING = 20000;
+    public static final int ARTILLERY = 450;
+    public static final int ARCHER = 250;
+    /**
+     * the value assumed for a type of piece not listed in PieceTypes
+     */
+    public static final int UNKNOWN = 300;
+
+    /**
+     * @param type a type of piece
+     * @return the material value of type
+     */
+    public static int of(PieceType type) {
+        if (!(type instanceof PieceTypes)) {
+            return UNKNOWN;
+        }
+        switch ((PieceTypes) type) {
+            case PAWN:
+                return PAWN;
+            case KNIGHT:
+                return KNIGHT;
+            case BISHOP:
+                return BISHOP;
+            case ROOK:
+                return ROOK;
+            case QUEEN:
+                return QUEEN;
+            case KING:
+                return KING;
+            case ARTILLERY:
+                return ARTILLERY;
+            case ARCHER:
+                return ARCHER;
+            default:
+                return UNKNOWN;
+        }
+    }
+}
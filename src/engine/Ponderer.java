@@ -0,0 +1,147 @@
+package engine;
+
+import models.Board;
+import models.Player;
+
+import java.util.function.Function;
+
+/**
+ * Search on the opponent's time. After playing its move, the engine predicts the reply of the opponent and searches the
+ * position after it in a background thread, on a copy of the board, until the opponent moves.
+ * <p>
+ * If the opponent plays the predicted operation (a ponder hit), the background search is given a time manager and
+ * becomes the search of the move, so that the iterations finished while pondering are not searched again. Otherwise (a
+ * ponder miss) it is stopped, and the search of the move starts over, still finding the work of the ponder search in
+ * the transposition table they share.
+ */
+public class Ponderer {
+
+    private final TranspositionTable table;
+    private final Function<Board, Evaluation> evaluations;
+    private Search search = null;
+    private Thread thread = null;
+    private int predicted;
+
+    /**
+     * Construct a ponderer
+     *
+     * @param table       the transposition table shared with the search of the moves
+     * @param evaluations the factory of the evaluation of a board, since the background search has its own board
+     */
+    public Ponderer(TranspositionTable table, Function<Board, Evaluation> evaluations) {
+        this.table = table;
+        this.evaluations = evaluations;
+    }
+
+    /**
+     * Predict the reply to the operation of player from the transposition table
+     *
+     * @param board  the board before the operation
+     * @param player the player to move
+     * @param op     the operation of player
+     * @param table  the transposition table of the search that chose op
+     * @return the predicted reply, null if there is none in the table
+     */
+    public static Board.Operation predict(Board board, Player player, Board.Operation op, TranspositionTable table) {
+        final Player enemy = board.theOther(player);
+        board.execute(op, player);
+        try {
+            // the search may have stored the position under its own key or under its canonical key
+            int slot = table.probe(board.getKey(enemy));
+            final boolean mirrored = slot == -1 && !board.isCanonical(enemy);
+            if (slot == -1) {
+                slot = table.probe(board.getCanonicalKey(enemy));
+            }
+            if (slot == -1 || table.move(slot) == -1) {
+                return null;
+            }
+            final Board.Operation reply = board.decode(mirrored ? board.mirrorCode(table.move(slot)) : table.move(slot));
+            return board.isLegal(reply, enemy) ? reply : null;
+        } finally {
+            board.undo();
+        }
+    }
+
+    /**
+     * Start pondering on the position after the predicted operation of the opponent. A ponder search in progress is
+     * stopped first.
+     *
+     * @param board     the board, with the opponent to move; it is copied and may change while pondering
+     * @param opponent  the opponent
+     * @param predicted the predicted operation of the opponent
+     */
+    public void start(Board board, Player opponent, Board.Operation predicted) {
+        stop();
+        final Board copy = board.copy();
+        final Player enemy = opponent == board.WHITE ? copy.WHITE : copy.BLACK;
+        this.predicted = board.encode(predicted);
+        copy.execute(copy.decode(this.predicted), enemy);
+        final Player us = copy.theOther(enemy);
+        final Search search = new Search(copy, evaluations.apply(copy), table);
+        this.search = search;
+        thread = new Thread(() -> search.iterate(us, Search.MAX_PLY - 1), "ponder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return whether a ponder search is in progress or waiting for the reply of the opponent
+     */
+    public boolean isPondering() {
+        return thread != null;
+    }
+
+    /**
+     * Tell the ponderer the operation the opponent has played. On a ponder hit, the ponder search continues under the
+     * budget of manager and its best operation is returned; otherwise it is stopped.
+     *
+     * @param board   the board before the operation of the opponent
+     * @param played  the operation of the opponent
+     * @param manager the time manager of the move, started by this method on a hit
+     * @return the best operation on a hit, to be executed after played; otherwise null and the move has to be searched
+     * as usual
+     * @throws InterruptedException if interrupted while waiting for the ponder search
+     */
+    public Board.Operation respond(Board board, Board.Operation played, TimeManager manager) throws InterruptedException {
+        if (thread == null) {
+            return null;
+        }
+        if (board.encode(played) != predicted) {
+            stop();
+            return null;
+        }
+        manager.start();
+        search.setTimeManager(manager);
+        thread.join();
+        thread = null;
+        final Board.Operation best = search.getBestMove();
+        if (best == null) {
+            return null;
+        }
+        // the operations of the copy may hold its pieces, see Attack
+        return best instanceof Board.Operation.Attack
+                ? Board.Operation.attack(best.FROM, best.TO) : Board.Operation.move(best.FROM, best.TO);
+    }
+
+    /**
+     * Stop the ponder search in progress, if any, and wait for it
+     */
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        search.stop();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
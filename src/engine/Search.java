@@ -0,0 +1,528 @@
+package engine;
+
+import models.Board;
+import models.PieceTypes;
+import models.Player;
+
+import java.util.EnumSet;
+import java.util.Iterator;
+
+/**
+ * An alpha-beta search in negamax form with principal variation search. Its leaves are extended by a quiescence search
+ * that only follows captures, so that the position is not evaluated in the middle of an exchange. The quiescence search
+ * stands pat on the static evaluation, skips captures that cannot raise the score above alpha even by winning the
+ * captured piece (delta pruning), and never follows captures that lose material according to StaticExchange.
+ * <p>
+ * On top of the full-width search, the selective techniques listed in Feature can be enabled or disabled one by one to
+ * measure their contribution. Operations are executed and undone on the searched board itself.
+ * <p>
+ * A search in progress can be stopped from another thread by stop(), or by the TimeManager given to it, in which case
+ * the unfinished iteration is discarded and the best operation of the last finished one is kept.
+ */
+public class Search {
+
+    /**
+     * the score of a checkmate at the root, checkmates further away score less by one per ply
+     */
+    public static final int MATE = 100000;
+    /**
+     * a bound larger than every score
+     */
+    public static final int INFINITY = MATE + 1;
+    /**
+     * the deepest ply the search can reach, including the quiescence search
+     */
+    public static final int MAX_PLY = MoveOrdering.MAX_PLY;
+
+    private static final int DELTA_MARGIN = 200;
+    private static final int[] FUTILITY_MARGINS = {0, 200, 300, 500};
+    private static final int ASPIRATION_WINDOW = 40;
+    private static final int NULL_MOVE_VERIFICATION_DEPTH = 6;
+    private static final int NONE = -1;
+    private static final int POLL_INTERVAL = 1024;
+    private static final int[][] REDUCTIONS = new int[MAX_PLY][64];
+
+    static {
+        // reductions grow with both the remaining depth and the number of moves tried before
+        for (int depth = 1; depth < MAX_PLY; depth++) {
+            for (int count = 1; count < 64; count++) {
+                REDUCTIONS[depth][count] = (int) (0.75 + Math.log(depth) * Math.log(count) / 2.25);
+            }
+        }
+    }
+
+    private final Board board;
+    private final Evaluation evaluation;
+    private final MoveOrdering ordering;
+    private final TranspositionTable table;
+    private final EnumSet<Feature> features = EnumSet.allOf(Feature.class);
+    private long nodes = 0;
+    private Board.Operation bestMove = null;
+    private Board.Operation rootMove = null;
+    private volatile TimeManager timeManager = null;
+    private Tablebases tablebases = null;
+    private volatile boolean stopped = false;
+
+    /**
+     * Construct a search on a board with a transposition table of 2^20 entries
+     *
+     * @param board      the board to be searched
+     * @param evaluation the evaluation applied at the leaves
+     */
+    public Search(Board board, Evaluation evaluation) {
+        this(board, evaluation, new TranspositionTable(20));
+    }
+
+    /**
+     * Construct a search on a board
+     *
+     * @param board      the board to be searched
+     * @param evaluation the evaluation applied at the leaves
+     * @param table      the transposition table
+     */
+    public Search(Board board, Evaluation evaluation, TranspositionTable table) {
+        this.board = board;
+        this.evaluation = evaluation;
+        this.ordering = new MoveOrdering(board);
+        this.table = table;
+    }
+
+    /**
+     * @param feature a selective search technique
+     * @return this instance
+     */
+    public Search enable(Feature feature) {
+        features.add(feature);
+        return this;
+    }
+
+    /**
+     * @param feature a selective search technique
+     * @return this instance
+     */
+    public Search disable(Feature feature) {
+        features.remove(feature);
+        return this;
+    }
+
+    public boolean isEnabled(Feature feature) {
+        return features.contains(feature);
+    }
+
+    /**
+     * Search the position for player to a fixed depth with a full window
+     *
+     * @param player the player to move
+     * @param depth  the depth in plies before the quiescence search starts
+     * @return the score of the position from the point of view of player
+     */
+    public int search(Player player, int depth) {
+        nodes = 0;
+        ordering.age();
+        try {
+            final int score = root(player, depth, -INFINITY, INFINITY);
+            bestMove = rootMove;
+            return score;
+        } finally {
+            stopped = false;
+        }
+    }
+
+    /**
+     * Search the position for player by iterative deepening, using aspiration windows around the score of the previous
+     * iteration if enabled. After every iteration the time manager, if any, decides whether to start the next one.
+     *
+     * @param player   the player to move
+     * @param maxDepth the depth of the last iteration
+     * @return the score of the last finished iteration from the point of view of player
+     */
+    public int iterate(Player player, int maxDepth) {
+        nodes = 0;
+        ordering.age();
+        bestMove = null;
+        final int rootMoves = (int) board.generateMoves(player).limit(2).count();
+        int score = 0;
+        try {
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                final int result = aspiration(player, depth, score);
+                if (stopped) {
+                    break;
+                }
+                score = result;
+                bestMove = rootMove;
+                final TimeManager manager = timeManager;
+                if (manager != null && !manager.shouldContinue(depth, score, bestMove, rootMoves)) {
+                    break;
+                }
+            }
+            if (bestMove == null) {
+                // stopped before the first iteration finished
+                bestMove = rootMove != null ? rootMove : board.generateMoves(player).findFirst().orElse(null);
+            }
+            return score;
+        } finally {
+            stopped = false;
+        }
+    }
+
+    /**
+     * Search the position for player by iterative deepening under the budget of manager, which is started first
+     *
+     * @param player   the player to move
+     * @param maxDepth the depth of the last iteration
+     * @param manager  the time manager
+     * @return the score of the last finished iteration from the point of view of player
+     */
+    public int iterate(Player player, int maxDepth, TimeManager manager) {
+        manager.start();
+        setTimeManager(manager);
+        return iterate(player, maxDepth);
+    }
+
+    /**
+     * Set the time manager consulted by the search in progress, if any, and by later searches. Setting it while a
+     * search without one is running turns that search into a timed one, which is how pondering ends on a hit.
+     *
+     * @param manager the time manager, null to search without a time limit
+     */
+    public void setTimeManager(TimeManager manager) {
+        timeManager = manager;
+    }
+
+    /**
+     * @return the time manager of this search, null if none
+     */
+    public TimeManager getTimeManager() {
+        return timeManager;
+    }
+
+    /**
+     * @param tablebases the endgame tables probed below the root, null to probe none
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Stop the search in progress as soon as possible. This method may be called from any thread. If no search is in
+     * progress, the next one stops immediately.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return the best operation found by the last search, null if the player had none
+     */
+    public Board.Operation getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the number of nodes visited by the last search, including the quiescence search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the transposition table of this search
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    private int aspiration(Player player, int depth, int previous) {
+        if (!isEnabled(Feature.ASPIRATION) || depth < 3 || Math.abs(previous) >= MATE - MAX_PLY) {
+            return root(player, depth, -INFINITY, INFINITY);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = previous - delta, beta = previous + delta;
+        while (true) {
+            final int score = root(player, depth, alpha, beta);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha) {
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta) {
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+            delta *= 2;
+        }
+    }
+
+    private int root(Player player, int depth, int alpha, int beta) {
+        rootMove = null;
+        return alphaBeta(player, depth, alpha, beta, 0, false);
+    }
+
+    private int alphaBeta(Player player, int depth, int alpha, int beta, int ply, boolean allowNull) {
+        if (depth <= 0) {
+            return quiesce(player, alpha, beta, ply);
+        }
+        if (poll()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluation.evaluate(board, player);
+        }
+        if (tablebases != null && ply > 0) {
+            final int value = tablebases.probe(board, player);
+            if (value != Tablebase.NONE) {
+                return value == 0 ? 0 : Tablebase.isWin(value)
+                        ? MATE - ply - Tablebase.distance(value) : -MATE + ply + Tablebase.distance(value);
+            }
+        }
+        final boolean pv = beta - alpha > 1;
+        final boolean flip = isEnabled(Feature.COLOUR_FLIP);
+        final boolean mirrored = flip && !board.isCanonical(player);
+        final long key = flip ? board.getCanonicalKey(player) : board.getKey(player);
+        int hashMove = NONE;
+        if (isEnabled(Feature.TRANSPOSITION_TABLE)) {
+            final int slot = table.probe(key);
+            if (slot != -1) {
+                hashMove = mirrored && table.move(slot) != NONE ? board.mirrorCode(table.move(slot)) : table.move(slot);
+                if (!pv && ply > 0 && table.depth(slot) >= depth) {
+                    final int score = fromTable(table.score(slot), ply);
+                    final byte bound = table.bound(slot);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        final Player enemy = board.theOther(player);
+        final boolean inCheck = board.inCheck(player);
+        final int staticEval = inCheck ? -INFINITY : evaluation.evaluate(board, player);
+
+        // the static evaluation is so far above beta that a quiet move is not going to bring it back below
+        if (isEnabled(Feature.FUTILITY) && !pv && !inCheck && depth < FUTILITY_MARGINS.length
+                && Math.abs(beta) < MATE - MAX_PLY && staticEval - FUTILITY_MARGINS[depth] >= beta) {
+            return staticEval - FUTILITY_MARGINS[depth];
+        }
+
+        if (isEnabled(Feature.NULL_MOVE) && allowNull && !pv && !inCheck && depth >= 3 && staticEval >= beta
+                && Math.abs(beta) < MATE - MAX_PLY && hasPieces(player)) {
+            final int reduction = Math.min(3 + depth / 6, depth - 1);
+            // passing counts as a turn, so that rules depending on turn counts stay consistent
+            player.increment();
+            int score = -alphaBeta(enemy, depth - 1 - reduction, -beta, -beta + 1, ply + 1, false);
+            player.decrement();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                if (score >= MATE - MAX_PLY) {
+                    score = beta;
+                }
+                // in deep searches, guard against zugzwang by verifying the cutoff without null moves
+                if (depth < NULL_MOVE_VERIFICATION_DEPTH
+                        || alphaBeta(player, depth - reduction, beta - 1, beta, ply, false) >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        final boolean frontier = isEnabled(Feature.FUTILITY) && !pv && !inCheck && depth < FUTILITY_MARGINS.length
+                && Math.abs(alpha) < MATE - MAX_PLY;
+        final boolean futile = frontier && staticEval + FUTILITY_MARGINS[depth] <= alpha;
+
+        final MovePicker picker = new MovePicker(board, player, ordering, ply, hashMove);
+        final int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestCode = NONE;
+        int count = 0;
+        while (picker.hasNext()) {
+            final Board.Operation op = picker.next();
+            final int code = board.encode(op);
+            count++;
+            board.execute(op, player);
+            // checking moves are neither pruned nor reduced
+            final boolean quiet = op.getClass() == Board.Operation.Move.class && code != hashMove
+                    && !ordering.isKiller(ply, op) && !board.inCheck(enemy);
+            // close to the leaves, the quiet moves ordered last are not worth searching either
+            if (frontier && quiet && count > 1 && (futile || count > 3 + depth * depth)) {
+                board.undo();
+                if (futile) {
+                    best = Math.max(best, staticEval + FUTILITY_MARGINS[depth]);
+                }
+                continue;
+            }
+            int score;
+            if (count == 1) {
+                score = -alphaBeta(enemy, depth - 1, -beta, -alpha, ply + 1, true);
+            } else {
+                int reduction = 0;
+                if (isEnabled(Feature.LATE_MOVE_REDUCTIONS) && quiet && !inCheck && depth >= 3 && count > 2) {
+                    reduction = Math.max(0, Math.min(REDUCTIONS[depth][Math.min(count, 63)] - (pv ? 1 : 0), depth - 2));
+                }
+                score = -alphaBeta(enemy, depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, true);
+                if (score > alpha && reduction > 0) {
+                    score = -alphaBeta(enemy, depth - 1, -alpha - 1, -alpha, ply + 1, true);
+                }
+                if (score > alpha && score < beta) {
+                    score = -alphaBeta(enemy, depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            board.undo();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestCode = code;
+                if (ply == 0 && (score > alpha || rootMove == null)) {
+                    rootMove = op;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                ordering.storeKiller(ply, op);
+                ordering.updateHistory(player, op, depth);
+                break;
+            }
+        }
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (isEnabled(Feature.TRANSPOSITION_TABLE)) {
+            final byte bound = best >= beta ? TranspositionTable.LOWER
+                    : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, mirrored && bestCode != NONE ? board.mirrorCode(bestCode) : bestCode, toTable(best, ply), depth, bound);
+        }
+        return best;
+    }
+
+    /**
+     * Search captures only until the position is quiet. A player in check may not stand pat and searches all of its
+     * operations instead.
+     *
+     * @param player the player to move
+     * @param alpha  the lower bound
+     * @param beta   the upper bound
+     * @param ply    the distance from the root
+     * @return the score of the position from the point of view of player
+     */
+    public int quiesce(Player player, int alpha, int beta, int ply) {
+        if (poll()) {
+            return 0;
+        }
+        final boolean inCheck = board.inCheck(player);
+        if (ply >= MAX_PLY) {
+            return evaluation.evaluate(board, player);
+        }
+        final Iterator<Board.Operation> picker;
+        int standPat = -INFINITY;
+        int best;
+        if (inCheck) {
+            best = -MATE + ply;
+            picker = new MovePicker(board, player, ordering, ply, NONE);
+        } else {
+            standPat = evaluation.evaluate(board, player);
+            if (standPat >= beta || standPat + PieceValues.QUEEN + DELTA_MARGIN <= alpha) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            best = standPat;
+            picker = MovePicker.captures(board, player);
+        }
+        final Player enemy = board.theOther(player);
+        while (picker.hasNext()) {
+            final Board.Operation op = picker.next();
+            if (!inCheck && standPat + PieceValues.of(board.get(op.TO).TYPE) + DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            board.execute(op, player);
+            final int score = -quiesce(enemy, -beta, -alpha, ply + 1);
+            board.undo();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Count a node, and check the time every POLL_INTERVAL nodes
+     *
+     * @return whether the search has been stopped
+     */
+    private boolean poll() {
+        if (++nodes % POLL_INTERVAL == 0) {
+            final TimeManager manager = timeManager;
+            if (manager != null && manager.isOutOfTime()) {
+                stopped = true;
+            }
+        }
+        return stopped;
+    }
+
+    /**
+     * @return whether player has a piece other than pawns and its king, below which null moves are unsafe
+     */
+    private static boolean hasPieces(Player player) {
+        return player.getPieces().anyMatch(piece -> piece.TYPE != PieceTypes.PAWN && piece.TYPE != PieceTypes.KING);
+    }
+
+    /**
+     * Mate scores are stored relative to the position rather than to the root
+     */
+    private static int toTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    /**
+     * The selective search techniques
+     */
+    public enum Feature {
+        /**
+         * cut off on, and order by, the results of earlier searches of the same position
+         */
+        TRANSPOSITION_TABLE,
+        /**
+         * let the player to move pass at reduced depth and cut off if it still fails high, except when in check, when
+         * it has only pawns and its king left, or when a verification search disagrees
+         */
+        NULL_MOVE,
+        /**
+         * search late quiet moves at a depth reduced the more the deeper the search and the later the move, and
+         * re-search them at full depth if they raise alpha
+         */
+        LATE_MOVE_REDUCTIONS,
+        /**
+         * close to the leaves, cut off when the static evaluation is far above beta, skip quiet moves when it is far
+         * below alpha, and skip the quiet moves ordered last
+         */
+        FUTILITY,
+        /**
+         * search the root with a narrow window around the score of the previous iteration, see iterate(Player, int)
+         */
+        ASPIRATION,
+        /**
+         * share the entries of the transposition table between a position and its colour-flipped mirror, see
+         * Board.getCanonicalKey(Player)
+         */
+        COLOUR_FLIP
+    }
+}
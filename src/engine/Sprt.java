@@ -0,0 +1,169 @@
+package engine;
+
+/**
+ * A sequential probability ratio test of the Elo difference between two engines, updated game by game. It weighs the
+ * hypothesis that the first engine is stronger by ELO1 against the hypothesis that it is stronger by ELO0, with the
+ * log-likelihood ratio of the results approximated from their mean and variance, counting wins, draws and losses
+ * separately. The test stops as soon as the ratio leaves the bounds given by the error rates ALPHA and BETA, which
+ * usually takes far fewer games than a match of fixed length with the same error rates.
+ * <p>
+ * Results are added and read from several threads at once.
+ */
+public final class Sprt {
+
+    public enum Decision {
+        /**
+         * the difference is ELO0 or less, the first engine is not better
+         */
+        H0,
+        /**
+         * the difference is ELO1 or more, the first engine is better
+         */
+        H1,
+        /**
+         * more games are needed
+         */
+        CONTINUE
+    }
+
+    public final double ELO0;
+    public final double ELO1;
+    /**
+     * the probability of accepting H1 when H0 holds
+     */
+    public final double ALPHA;
+    /**
+     * the probability of accepting H0 when H1 holds
+     */
+    public final double BETA;
+    private int wins = 0;
+    private int draws = 0;
+    private int losses = 0;
+
+    /**
+     * @param elo0  the Elo difference of the null hypothesis
+     * @param elo1  the Elo difference of the alternative hypothesis, larger than elo0
+     * @param alpha the rate of false positives
+     * @param beta  the rate of false negatives
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0 || alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+            throw new IllegalArgumentException("Invalid test");
+        }
+        ELO0 = elo0;
+        ELO1 = elo1;
+        ALPHA = alpha;
+        BETA = beta;
+    }
+
+    /**
+     * @param score the score of the first engine in a game: 1 for a win, 0.5 for a draw, 0 for a loss
+     */
+    public synchronized void add(double score) {
+        if (score == 1) {
+            wins++;
+        } else if (score == 0.5) {
+            draws++;
+        } else if (score == 0) {
+            losses++;
+        } else {
+            throw new IllegalArgumentException("Invalid score " + score);
+        }
+    }
+
+    public synchronized int getWins() {
+        return wins;
+    }
+
+    public synchronized int getDraws() {
+        return draws;
+    }
+
+    public synchronized int getLosses() {
+        return losses;
+    }
+
+    public synchronized int getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * @return the log-likelihood ratio of H1 against H0, 0 until the results vary
+     */
+    public synchronized double llr() {
+        final int n = wins + draws + losses;
+        if (n == 0) {
+            return 0;
+        }
+        final double score = score();
+        final double variance = variance(score);
+        if (variance == 0) {
+            return 0;
+        }
+        final double s0 = expected(ELO0), s1 = expected(ELO1);
+        return n * (s1 - s0) * (2 * score - s0 - s1) / (2 * variance);
+    }
+
+    /**
+     * @return the bound below which H0 is accepted
+     */
+    public double lowerBound() {
+        return Math.log(BETA / (1 - ALPHA));
+    }
+
+    /**
+     * @return the bound above which H1 is accepted
+     */
+    public double upperBound() {
+        return Math.log((1 - BETA) / ALPHA);
+    }
+
+    public synchronized Decision decide() {
+        final double llr = llr();
+        return llr >= upperBound() ? Decision.H1 : llr <= lowerBound() ? Decision.H0 : Decision.CONTINUE;
+    }
+
+    /**
+     * @return the estimated Elo difference of the first engine over the second, infinite if it won or lost every game
+     */
+    public synchronized double elo() {
+        return elo(score());
+    }
+
+    /**
+     * @return the half width of the 95% confidence interval of elo()
+     */
+    public synchronized double eloMargin() {
+        final int n = wins + draws + losses;
+        if (n == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double score = score();
+        final double deviation = Math.sqrt(variance(score) / n);
+        return (elo(Math.min(1, score + 1.96 * deviation)) - elo(Math.max(0, score - 1.96 * deviation))) / 2;
+    }
+
+    private double score() {
+        final int n = wins + draws + losses;
+        return n == 0 ? 0.5 : (wins + 0.5 * draws) / n;
+    }
+
+    private double variance(double score) {
+        final int n = wins + draws + losses;
+        return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses * score * score) / n;
+    }
+
+    private static double expected(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d-%d-%d elo %.1f +- %.1f llr %.2f [%.2f, %.2f]", wins, draws, losses, elo(), eloMargin(),
+                llr(), lowerBound(), upperBound());
+    }
+}
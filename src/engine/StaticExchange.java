@@ -0,0 +1,77 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.Player;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+
+/**
+ * Static exchange evaluation (SEE): the material balance of the sequence of captures on a single location that starts
+ * with a given attack, where each side recaptures with its least valuable attacker and may stop whenever continuing would
+ * lose material. Captures are actually executed on the board and undone afterwards, so pieces that skip other pieces,
+ * pieces uncovered behind a capturer and rules that depend on turn counts are all taken into account.
+ * Pins are ignored.
+ */
+public class StaticExchange {
+
+    private static final Comparator<Piece> BY_VALUE = Comparator.comparingInt(piece -> PieceValues.of(piece.TYPE));
+
+    /**
+     * @param board  the board op operates on
+     * @param op     an attack available to player
+     * @param player the player from which op executes
+     * @return the material player is expected to win (positive) or lose (negative) by starting the exchange with op
+     */
+    public static int evaluate(Board board, Board.Operation op, Player player) {
+        final Point target = op.TO;
+        int[] gain = new int[8];
+        int depth = 0;
+        gain[0] = PieceValues.of(board.get(target).TYPE);
+        board.execute(op, player);
+        int executed = 1;
+        Player side = board.theOther(player);
+        while (true) {
+            final Optional<Piece> attacker = board.attackersTo(target, side).min(BY_VALUE);
+            if (!attacker.isPresent()) {
+                break;
+            }
+            if (++depth == gain.length) {
+                gain = Arrays.copyOf(gain, gain.length * 2);
+            }
+            gain[depth] = PieceValues.of(board.get(target).TYPE) - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                break;
+            }
+            board.execute(Board.Operation.attack(attacker.get().getLocation(), target), side);
+            executed++;
+            side = board.theOther(side);
+        }
+        while (executed-- > 0) {
+            board.undo();
+        }
+        for (; depth > 0; depth--) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
+    }
+
+    /**
+     * A cheaper test than evaluate(Board, Operation, Player) &gt;= 0, which skips the exchange when the victim is worth at
+     * least as much as the attacker
+     *
+     * @param board  the board op operates on
+     * @param op     an attack available to player
+     * @param player the player from which op executes
+     * @return true if op does not lose material
+     */
+    public static boolean isNonLosing(Board board, Board.Operation op, Player player) {
+        if (PieceValues.of(board.get(op.TO).TYPE) >= PieceValues.of(board.get(op.FROM).TYPE)) {
+            return true;
+        }
+        return evaluate(board, op, player) >= 0;
+    }
+}
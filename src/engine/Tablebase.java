@@ -0,0 +1,299 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.PieceTypes;
+import models.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An endgame table of one material signature on one board size, holding the distance to mate of every position, see
+ * TablebaseGenerator.
+ * <p>
+ * A position is indexed by the locations of its pieces, in the order of the signature, the player to move and the
+ * parity of its turn count, on which the preconditions of rules such as the one of ARTILLERY depend. The turn counts of
+ * the two players are assumed to alternate as in a game. Every position takes one byte: 0 for a draw, d &gt; 0 if the
+ * player to move mates in d plies, and -(d + 1) if it is mated in d plies. Pieces are assumed to have moved, so pawns
+ * never advance two rows: a position with a pawn that has not moved yet is not in the table.
+ * <p>
+ * The file format is a little-endian header made of MAGIC, the number of columns, of rows and of pieces, then a byte
+ * per piece holding the ordinal of its PieceTypes, plus 0x80 for white pieces, followed by the positions. load(Path)
+ * maps the file rather than reading it, so that tables larger than the heap can be probed.
+ */
+public final class Tablebase {
+
+    public static final int MAGIC = 0x31424C54;
+    /**
+     * the result of probe(Board, Player) for a position not in the table
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final int WHITE_FLAG = 0x80;
+
+    public final int N_COLS;
+    public final int N_ROWS;
+    private final PieceTypes[] types;
+    private final boolean[] whites;
+    private final ByteBuffer data;
+
+    Tablebase(int n_COLS, int n_ROWS, PieceTypes[] types, boolean[] whites, ByteBuffer data) {
+        N_COLS = n_COLS;
+        N_ROWS = n_ROWS;
+        this.types = types;
+        this.whites = whites;
+        this.data = data;
+    }
+
+    /**
+     * @param types  the types of the pieces
+     * @param whites whether each piece is white
+     * @return the signature of a material, e.g. KQvK, white first, each side ordered as PieceTypes
+     */
+    public static String signature(PieceTypes[] types, boolean[] whites) {
+        final StringBuilder white = new StringBuilder(), black = new StringBuilder();
+        for (PieceTypes type : PieceTypes.values()) {
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == type) {
+                    (whites[i] ? white : black).append(type);
+                }
+            }
+        }
+        return white + "v" + black;
+    }
+
+    /**
+     * @param board a board
+     * @return the signature of the material on board, null if it has a piece whose type is not one of PieceTypes
+     */
+    public static String signature(Board board) {
+        final int[] white = new int[PieceTypes.values().length], black = new int[PieceTypes.values().length];
+        for (Piece piece : board) {
+            if (piece != null) {
+                if (!(piece.TYPE instanceof PieceTypes)) {
+                    return null;
+                }
+                (piece.PLAYER == board.WHITE ? white : black)[((PieceTypes) piece.TYPE).ordinal()]++;
+            }
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (int[] side : new int[][]{white, black}) {
+            if (side == black) {
+                builder.append('v');
+            }
+            for (PieceTypes type : PieceTypes.values()) {
+                for (int i = 0; i < side[type.ordinal()]; i++) {
+                    builder.append(type);
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param signature the signature of a material
+     * @return the signature of the material with the colours swapped, e.g. KvKQ for KQvK
+     */
+    public static String flip(String signature) {
+        final int separator = signature.indexOf('v');
+        return signature.substring(separator + 1) + "v" + signature.substring(0, separator);
+    }
+
+    /**
+     * @return the signature of the material of this table
+     */
+    public String getSignature() {
+        return signature(types, whites);
+    }
+
+    /**
+     * @return the number of pieces, including the kings
+     */
+    public int getPieces() {
+        return types.length;
+    }
+
+    PieceTypes type(int piece) {
+        return types[piece];
+    }
+
+    boolean isWhite(int piece) {
+        return whites[piece];
+    }
+
+    /**
+     * @return the number of positions, including those where pieces overlap
+     */
+    public int size() {
+        return size(N_COLS * N_ROWS, types.length);
+    }
+
+    static int size(int squares, int pieces) {
+        long size = 4;
+        for (int i = 0; i < pieces; i++) {
+            size *= squares;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("%d pieces on %d squares do not fit a table", pieces, squares));
+        }
+        return (int) size;
+    }
+
+    /**
+     * @param board  a board
+     * @param toMove the player to move
+     * @return the index of the position, -1 if the board does not fit this table
+     */
+    public int index(Board board, Player toMove) {
+        return index(board, toMove, false);
+    }
+
+    /**
+     * @param board    a board
+     * @param toMove   the player to move
+     * @param mirrored whether to index the colour-flipped mirror of the position, see Board.getMirrorKey(Player)
+     * @return the index of the position, -1 if the board does not fit this table
+     */
+    public int index(Board board, Player toMove, boolean mirrored) {
+        if (board.N_COLS != N_COLS || board.N_ROWS != N_ROWS) {
+            return -1;
+        }
+        final int squares = N_COLS * N_ROWS;
+        final int[] locations = new int[types.length];
+        Arrays.fill(locations, -1);
+        int found = 0;
+        for (int index = 0; index < board.size(); index++) {
+            final Piece piece = board.get(index);
+            if (piece == null) {
+                continue;
+            }
+            if (piece.TYPE == PieceTypes.PAWN && piece.getNumOperations() == 0) {
+                return -1;
+            }
+            int slot = 0;
+            while (slot < types.length && (locations[slot] != -1 || types[slot] != piece.TYPE
+                    || whites[slot] != (piece.PLAYER == board.WHITE ^ mirrored))) {
+                slot++;
+            }
+            if (slot == types.length) {
+                return -1;
+            }
+            locations[slot] = mirrored ? board.mirror(index) : index;
+            found++;
+        }
+        if (found != types.length) {
+            return -1;
+        }
+        int index = (toMove.getTurnCount() & 1) * 2 + (toMove == board.WHITE ^ mirrored ? 1 : 0);
+        for (int i = types.length - 1; i >= 0; i--) {
+            index = index * squares + locations[i];
+        }
+        return index;
+    }
+
+    /**
+     * @param board  a board
+     * @param toMove the player to move
+     * @return the value of the position, see Tablebase, or NONE if the board does not fit this table
+     */
+    public int probe(Board board, Player toMove) {
+        return probe(board, toMove, false);
+    }
+
+    /**
+     * @param board    a board
+     * @param toMove   the player to move
+     * @param mirrored whether to probe the colour-flipped mirror of the position, which has the same value
+     * @return the value of the position, see Tablebase, or NONE if the board does not fit this table
+     */
+    public int probe(Board board, Player toMove, boolean mirrored) {
+        final int index = index(board, toMove, mirrored);
+        return index == -1 ? NONE : data.get(index);
+    }
+
+    /**
+     * @param value a value of probe(Board, Player)
+     * @return whether the player to move mates
+     */
+    public static boolean isWin(int value) {
+        return value > 0 && value != NONE;
+    }
+
+    /**
+     * @param value a value of probe(Board, Player)
+     * @return whether the player to move is mated
+     */
+    public static boolean isLoss(int value) {
+        return value < 0 && value != NONE;
+    }
+
+    /**
+     * @param value a value of probe(Board, Player), other than a draw or NONE
+     * @return the number of plies to mate
+     */
+    public static int distance(int value) {
+        return value > 0 ? value : -value - 1;
+    }
+
+    /**
+     * Map a table into memory
+     *
+     * @param path the table file
+     * @return the table
+     * @throws IOException if the file cannot be read
+     */
+    public static Tablebase load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < 4 * Integer.BYTES || buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a tablebase file: " + path);
+            }
+            final int cols = buffer.getInt(), rows = buffer.getInt(), pieces = buffer.getInt();
+            if (pieces < 2 || buffer.remaining() < pieces) {
+                throw new IllegalArgumentException("Truncated tablebase file: " + path);
+            }
+            final PieceTypes[] types = new PieceTypes[pieces];
+            final boolean[] whites = new boolean[pieces];
+            for (int i = 0; i < pieces; i++) {
+                final int piece = buffer.get() & 0xFF;
+                types[i] = PieceTypes.values()[piece & ~WHITE_FLAG];
+                whites[i] = (piece & WHITE_FLAG) != 0;
+            }
+            if (buffer.remaining() != size(cols * rows, pieces)) {
+                throw new IllegalArgumentException("Truncated or oversized tablebase file: " + path);
+            }
+            // the mapping stays valid after the channel is closed
+            return new Tablebase(cols, rows, types, whites, buffer.slice());
+        }
+    }
+
+    /**
+     * @param path the table file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES + types.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(N_COLS).putInt(N_ROWS).putInt(types.length);
+        for (int i = 0; i < types.length; i++) {
+            header.put((byte) (types[i].ordinal() | (whites[i] ? WHITE_FLAG : 0)));
+        }
+        header.flip();
+        final ByteBuffer positions = data.duplicate();
+        positions.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (positions.hasRemaining()) {
+                channel.write(positions);
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package engine;
+
+import models.Board;
+import models.Piece;
+import models.PieceType;
+import models.PieceTypes;
+import models.Player;
+import util.Vector2D;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+
+import static models.Board.Operation.move;
+
+/**
+ * Generate a Tablebase by retrograde analysis.
+ * <p>
+ * A first pass finds the checkmates and stalemates, values the captures from the tables of the smaller materials and
+ * counts the other operations of every position. Then, level by level, the positions mated in d plies make their
+ * predecessors win in d + 1 plies, and the positions winning in d plies decrement the counters of their predecessors, a
+ * predecessor being mated in d + 1 plies when none of its operations is left. Predecessors are found by un-moves: the
+ * rules of every piece of the player who just moved are walked backwards, and each candidate is confirmed by
+ * Board.isLegal(Operation, Player) so that preconditions and path rules need no separate backward definition.
+ * <p>
+ * Every pass is split across threads, each with its own board, over contiguous ranges of positions; the shared state
+ * is kept in atomic arrays.
+ */
+final class TablebaseGenerator {
+
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int INVALID = Integer.MIN_VALUE + 1;
+    private static final int NEVER = Integer.MAX_VALUE;
+    /**
+     * added to the counter of a position that cannot be mated since it has a drawing or winning capture
+     */
+    private static final int ESCAPE = 1 << 24;
+    private static final int MAX_DISTANCE = Byte.MAX_VALUE - 1;
+
+    private final int cols;
+    private final int rows;
+    private final int squares;
+    private final PieceTypes[] types;
+    private final boolean[] whites;
+    private final Tablebases smaller;
+    private final int threads;
+    private final int positions;
+    private final AtomicIntegerArray values;
+    private final AtomicIntegerArray counters;
+    private final AtomicIntegerArray wins;
+    private final AtomicIntegerArray losses;
+    private final int[] captureLosses;
+    private final AtomicInteger horizon = new AtomicInteger(-1);
+
+    private TablebaseGenerator(int cols, int rows, PieceTypes[] types, boolean[] whites, Tablebases smaller, int threads) {
+        this.cols = cols;
+        this.rows = rows;
+        this.squares = cols * rows;
+        this.types = types;
+        this.whites = whites;
+        this.smaller = smaller;
+        this.threads = Math.max(threads, 1);
+        positions = Tablebase.size(squares, types.length);
+        values = new AtomicIntegerArray(positions);
+        counters = new AtomicIntegerArray(positions);
+        wins = new AtomicIntegerArray(positions);
+        losses = new AtomicIntegerArray(positions);
+        captureLosses = new int[positions];
+    }
+
+    /**
+     * @param cols    the number of columns of the board
+     * @param rows    the number of rows of the board
+     * @param types   the types of the pieces, with exactly one KING of each colour
+     * @param whites  whether each piece is white
+     * @param smaller the tables the captures lead to
+     * @param threads the number of threads
+     * @return the table
+     */
+    static Tablebase generate(int cols, int rows, PieceTypes[] types, boolean[] whites, Tablebases smaller, int threads) {
+        return new TablebaseGenerator(cols, rows, types, whites, smaller, threads).run();
+    }
+
+    private Tablebase run() {
+        for (int i = 0; i < positions; i++) {
+            values.set(i, UNKNOWN);
+            wins.set(i, NEVER);
+            losses.set(i, NEVER);
+        }
+        parallel(this::initialize);
+        for (int level = 0; level <= horizon.get(); level++) {
+            if (level > MAX_DISTANCE) {
+                throw new IllegalStateException("Distance to mate does not fit a byte in " + Tablebase.signature(types, whites));
+            }
+            final int current = level;
+            parallel((worker, index) -> resolve(index, current));
+            parallel((worker, index) -> propagate(worker, index, current));
+        }
+        final ByteBuffer data = ByteBuffer.allocate(positions);
+        for (int i = 0; i < positions; i++) {
+            final int value = values.get(i);
+            data.put(i, (byte) (value == UNKNOWN || value == INVALID ? 0 : value));
+        }
+        return new Tablebase(cols, rows, types, whites, data);
+    }
+
+    private void initialize(Worker worker, int index) {
+        if (!worker.place(index)) {
+            values.set(index, INVALID);
+            return;
+        }
+        final Board board = worker.board;
+        final Player player = worker.toMove, enemy = board.theOther(player);
+        final List<Board.Operation> ops = board.generateMoves(player).distinct().collect(Collectors.toList());
+        if (ops.isEmpty()) {
+            if (board.inCheck(player)) {
+                schedule(losses, index, 0);
+            } else {
+                values.set(index, 0);
+            }
+            return;
+        }
+        int counter = 0, captureLoss = -1;
+        boolean escape = false;
+        for (Board.Operation op : ops) {
+            if (board.get(op.TO) == null) {
+                counter++;
+                continue;
+            }
+            board.execute(op, player);
+            final int value = smaller.probe(board, enemy);
+            board.undo();
+            if (value == Tablebase.NONE) {
+                throw new IllegalStateException("Missing table for a capture in " + Tablebase.signature(types, whites));
+            }
+            if (Tablebase.isLoss(value)) {
+                schedule(wins, index, Tablebase.distance(value) + 1);
+                escape = true;
+            } else if (Tablebase.isWin(value)) {
+                captureLoss = Math.max(captureLoss, Tablebase.distance(value));
+            } else {
+                escape = true;
+            }
+        }
+        captureLosses[index] = captureLoss;
+        counters.set(index, counter + (escape ? ESCAPE : 0));
+        if (counter == 0 && !escape) {
+            schedule(losses, index, captureLoss + 1);
+        }
+    }
+
+    /**
+     * Settle the positions scheduled at level
+     */
+    private void resolve(int index, int level) {
+        if (values.get(index) != UNKNOWN) {
+            return;
+        }
+        if (wins.get(index) == level) {
+            values.set(index, level);
+        } else if (losses.get(index) == level) {
+            values.set(index, -level - 1);
+        }
+    }
+
+    /**
+     * Schedule the predecessors of a position settled at level
+     */
+    private void propagate(Worker worker, int index, int level) {
+        final int value = values.get(index);
+        if (value == UNKNOWN || value == INVALID || value == 0 || Tablebase.distance(value) != level) {
+            return;
+        }
+        worker.place(index);
+        for (int predecessor : worker.predecessors()) {
+            if (values.get(predecessor) != UNKNOWN) {
+                continue;
+            }
+            if (Tablebase.isLoss(value)) {
+                schedule(wins, predecessor, level + 1);
+            } else if (counters.decrementAndGet(predecessor) == 0) {
+                schedule(losses, predecessor, Math.max(level, captureLosses[predecessor]) + 1);
+            }
+        }
+    }
+
+    private void schedule(AtomicIntegerArray levels, int index, int level) {
+        levels.accumulateAndGet(index, level, Math::min);
+        horizon.accumulateAndGet(level, Math::max);
+    }
+
+    /**
+     * Run task on every position, splitting them into contiguous ranges across threads
+     */
+    private void parallel(ObjIntConsumer<Worker> task) {
+        final Thread[] workers = new Thread[threads];
+        final int chunk = (positions + threads - 1) / threads;
+        final RuntimeException[] failure = new RuntimeException[1];
+        for (int t = 0; t < threads; t++) {
+            final int from = t * chunk, to = Math.min(positions, from + chunk);
+            workers[t] = new Thread(() -> {
+                try {
+                    final Worker worker = new Worker();
+                    for (int index = from; index < to; index++) {
+                        task.accept(worker, index);
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "tablebase-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating a tablebase", e);
+            }
+        }
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    /**
+     * The board of a thread, whose pieces are moved around to set up positions by index
+     */
+    private final class Worker {
+        final Board board = new Board(cols, rows, Player.black(), Player.white());
+        final Piece[] pieces = new Piece[types.length];
+        final int[] locations = new int[types.length];
+        Player toMove;
+
+        Worker() {
+            for (int i = 0; i < types.length; i++) {
+                pieces[i] = new Piece(types[i], whites[i] ? board.WHITE : board.BLACK, board.point(0));
+                pieces[i].incrementNumOperations();
+                locations[i] = -1;
+            }
+        }
+
+        /**
+         * Set up the position of index
+         *
+         * @return false if pieces overlap or the player not to move is in check
+         */
+        boolean place(int index) {
+            for (int i = 0; i < types.length; i++) {
+                if (locations[i] != -1) {
+                    board.remove(locations[i]);
+                }
+            }
+            int rest = index;
+            for (int i = 0; i < types.length; i++) {
+                locations[i] = rest % squares;
+                rest /= squares;
+            }
+            final boolean white = (rest & 1) == 1;
+            final int parity = rest >> 1;
+            toMove = white ? board.WHITE : board.BLACK;
+            // the turn counts alternate as in a game, see Tablebase
+            turns(board.WHITE, 2 + parity + (white ? 0 : 1));
+            turns(board.BLACK, 2 + parity);
+            boolean valid = true;
+            for (int i = 0; i < types.length; i++) {
+                if (board.get(locations[i]) != null) {
+                    valid = false;
+                    locations[i] = -1;
+                } else {
+                    pieces[i].setLocation(board.point(locations[i]));
+                    board.set(locations[i], pieces[i]);
+                }
+            }
+            return valid && !board.inCheck(board.theOther(toMove));
+        }
+
+        private void turns(Player player, int count) {
+            while (player.getTurnCount() < count) {
+                player.increment();
+            }
+            while (player.getTurnCount() > count) {
+                player.decrement();
+            }
+        }
+
+        /**
+         * @return the distinct indices of the legal positions from which the player not to move reaches this one by a
+         * non-capturing operation
+         */
+        int[] predecessors() {
+            final Player mover = board.theOther(toMove);
+            int[] result = new int[16];
+            int count = 0;
+            for (int i = 0; i < types.length; i++) {
+                if (pieces[i].PLAYER != mover) {
+                    continue;
+                }
+                final PieceType type = types[i];
+                final Point to = board.point(locations[i]);
+                for (PieceType.MovementRule rule : type.getMovementRules().collect(Collectors.toList())) {
+                    if (rule.MODE == PieceType.MovementRule.Mode.ATTACK_ONLY) {
+                        continue;
+                    }
+                    final Point unit = mover.apply(rule.UNIT_VEC);
+                    for (int k = 1; rule.MAX_MOVES == -1 || k <= rule.MAX_MOVES; k++) {
+                        final Point from = Vector2D.add(to, Vector2D.scalarMult(unit, -k));
+                        if (!board.inBound(from)) {
+                            break;
+                        }
+                        if (board.get(from) != null) {
+                            if (rule.SKIPPING) {
+                                continue;
+                            }
+                            break;
+                        }
+                        final int predecessor = unmove(i, to, from, mover);
+                        if (predecessor != -1 && !contains(result, count, predecessor)) {
+                            if (count == result.length) {
+                                result = Arrays.copyOf(result, 2 * count);
+                            }
+                            result[count++] = predecessor;
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        /**
+         * Move piece i back from to to from and check that the operation from from to to is legal there
+         *
+         * @return the index of the predecessor, -1 if it is not a legal position or the operation is not legal in it
+         */
+        private int unmove(int i, Point to, Point from, Player mover) {
+            final int origin = locations[i];
+            board.remove(origin);
+            pieces[i].setLocation(from);
+            board.set(board.coord(from), pieces[i]);
+            locations[i] = board.coord(from);
+            mover.decrement();
+            final boolean legal = !board.inCheck(toMove) && board.isLegal(move(from, to), mover);
+            final int index = legal ? index(mover == board.WHITE ? 1 : 0) : -1;
+            mover.increment();
+            board.remove(locations[i]);
+            pieces[i].setLocation(to);
+            board.set(origin, pieces[i]);
+            locations[i] = origin;
+            return index;
+        }
+
+        private int index(int white) {
+            final Player player = white == 1 ? board.WHITE : board.BLACK;
+            int index = (player.getTurnCount() & 1) * 2 + white;
+            for (int i = types.length - 1; i >= 0; i--) {
+                index = index * squares + locations[i];
+            }
+            return index;
+        }
+    }
+
+    private static boolean contains(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
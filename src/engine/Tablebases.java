@@ -0,0 +1,178 @@
+package engine;
+
+import models.Board;
+import models.PieceTypes;
+import models.Player;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of Tablebases of different materials and board sizes, probed by the material on the board. Tables are stored
+ * in a directory, one file per table named after its board size and signature, e.g. 8x8-KQvK.tb.
+ * <p>
+ * A material and its colour-flipped mirror share one table: KvKQ is probed in the table of KQvK by mirroring the
+ * position, see Board.getMirrorKey(Player).
+ */
+public class Tablebases {
+
+    public static final String EXTENSION = ".tb";
+
+    private final Map<String, Tablebase> tables = new ConcurrentHashMap<>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private volatile int maxPieces = 0;
+
+    /**
+     * @param threads the number of threads generating a table, by default the number of processors
+     * @return this instance
+     */
+    public Tablebases threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Generate the table of a material, and those of the materials its captures lead to if they are missing. Nothing is
+     * generated if the table of the colour-flipped material exists.
+     *
+     * @param cols      the number of columns of the board
+     * @param rows      the number of rows of the board
+     * @param signature the material, e.g. KRvK, see Tablebase.signature(PieceTypes[], boolean[])
+     * @return the table, or that of the colour-flipped material
+     * @throws IllegalArgumentException if the signature has an unknown piece or not one king on each side
+     */
+    public Tablebase generate(int cols, int rows, String signature) {
+        final int separator = signature.indexOf('v');
+        if (separator == -1) {
+            throw new IllegalArgumentException("Missing 'v' between the white and the black pieces: " + signature);
+        }
+        final PieceTypes[] types = new PieceTypes[signature.length() - 1];
+        final boolean[] whites = new boolean[types.length];
+        int kings = 0;
+        for (int i = 0, j = 0; i < signature.length(); i++) {
+            if (i == separator) {
+                continue;
+            }
+            types[j] = parse(signature.charAt(i));
+            whites[j] = i < separator;
+            if (types[j] == PieceTypes.KING) {
+                kings += whites[j] ? 1 : 16;
+            }
+            j++;
+        }
+        if (kings != 17) {
+            throw new IllegalArgumentException("Expected one king on each side: " + signature);
+        }
+        final String canonical = Tablebase.signature(types, whites);
+        final Tablebase existing = get(cols, rows, canonical);
+        if (existing != null) {
+            return existing;
+        }
+        final Tablebase flipped = get(cols, rows, Tablebase.flip(canonical));
+        if (flipped != null) {
+            return flipped;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != PieceTypes.KING) {
+                generate(cols, rows, without(signature, i < separator ? i : i + 1));
+            }
+        }
+        final Tablebase table = TablebaseGenerator.generate(cols, rows, types, whites, this, threads);
+        add(table);
+        return table;
+    }
+
+    /**
+     * @param table a table, replacing the one of the same material and board size if any
+     */
+    public void add(Tablebase table) {
+        tables.put(key(table.N_COLS, table.N_ROWS, table.getSignature()), table);
+        maxPieces = Math.max(maxPieces, table.getPieces());
+    }
+
+    /**
+     * @return the table of a material, null if there is none
+     */
+    public Tablebase get(int cols, int rows, String signature) {
+        return tables.get(key(cols, rows, signature));
+    }
+
+    /**
+     * @return the largest number of pieces of a table
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @param board  a board
+     * @param toMove the player to move
+     * @return the value of the position, see Tablebase, or Tablebase.NONE if there is no table of its material
+     */
+    public int probe(Board board, Player toMove) {
+        final String signature = Tablebase.signature(board);
+        if (signature == null || signature.length() - 1 > maxPieces) {
+            return Tablebase.NONE;
+        }
+        final Tablebase table = get(board.N_COLS, board.N_ROWS, signature);
+        if (table != null) {
+            return table.probe(board, toMove);
+        }
+        final Tablebase flipped = get(board.N_COLS, board.N_ROWS, Tablebase.flip(signature));
+        return flipped == null ? Tablebase.NONE : flipped.probe(board, toMove, true);
+    }
+
+    /**
+     * Save every table into a directory
+     *
+     * @param directory an existing directory
+     * @throws IOException if a file cannot be written
+     */
+    public void save(Path directory) throws IOException {
+        for (Tablebase table : tables.values()) {
+            table.save(directory.resolve(key(table.N_COLS, table.N_ROWS, table.getSignature()) + EXTENSION));
+        }
+    }
+
+    /**
+     * Map every table of a directory into memory
+     *
+     * @param directory a directory
+     * @return the tables
+     * @throws IOException if a file cannot be read
+     */
+    public static Tablebases load(Path directory) throws IOException {
+        final Tablebases tablebases = new Tablebases();
+        final List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            stream.forEach(paths::add);
+        }
+        for (Path path : paths) {
+            tablebases.add(Tablebase.load(path));
+        }
+        return tablebases;
+    }
+
+    private static String key(int cols, int rows, String signature) {
+        return cols + "x" + rows + "-" + signature;
+    }
+
+    private static PieceTypes parse(char letter) {
+        for (PieceTypes type : PieceTypes.values()) {
+            if (type.toString().charAt(0) == letter) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown piece: " + letter);
+    }
+
+    private static String without(String signature, int index) {
+        return signature.substring(0, index) + signature.substring(index + 1);
+    }
+}
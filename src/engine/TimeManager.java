@@ -0,0 +1,127 @@
+package engine;
+
+import models.Board;
+
+/**
+ * Allocate the thinking time of one move from the remaining time on the clock and the increment.
+ * <p>
+ * The budget has two limits. The optimum is the time the move should normally take: iterative deepening does not start
+ * an iteration past half of it, because the next iteration usually takes longer than all the previous ones together.
+ * The optimum is scaled up while the best operation keeps changing between iterations, and scaled down once it has been
+ * stable for a while, so that easy moves are played quickly. The maximum is a hard limit at which the search is stopped
+ * in the middle of an iteration, see Search.stop().
+ */
+public class TimeManager {
+
+    /**
+     * the number of moves the remaining time is assumed to last when the time control does not say
+     */
+    public static final int DEFAULT_MOVES_TO_GO = 30;
+    /**
+     * the time kept in reserve for the overhead of making the move, in milliseconds
+     */
+    public static final long MOVE_OVERHEAD = 50;
+
+    private static final int MAX_SCALE = 4;
+    private static final int STABLE_ITERATIONS = 4;
+
+    private final long optimum;
+    private final long maximum;
+    private long start;
+    private Board.Operation lastBest = null;
+    private double instability = 0;
+    private int stable = 0;
+
+    /**
+     * Construct a time manager for a sudden death or incremental time control
+     *
+     * @param remaining the remaining time on the clock of the player, in milliseconds
+     * @param increment the time added to the clock after each move, in milliseconds
+     */
+    public TimeManager(long remaining, long increment) {
+        this(remaining, increment, 0);
+    }
+
+    /**
+     * Construct a time manager
+     *
+     * @param remaining the remaining time on the clock of the player, in milliseconds
+     * @param increment the time added to the clock after each move, in milliseconds
+     * @param movesToGo the number of moves until the next time control, 0 if unknown
+     */
+    public TimeManager(long remaining, long increment, int movesToGo) {
+        final long available = Math.max(remaining - MOVE_OVERHEAD, 1);
+        final int moves = movesToGo > 0 ? Math.min(movesToGo, DEFAULT_MOVES_TO_GO) : DEFAULT_MOVES_TO_GO;
+        final long optimum = Math.min(available / moves + increment * 3 / 4, available / 2);
+        this.maximum = Math.min(optimum * MAX_SCALE, movesToGo == 1 ? available : available / 2) * 1000000;
+        this.optimum = Math.max(optimum, 1) * 1000000;
+        start();
+    }
+
+    /**
+     * Start the clock, and forget the iterations of the previous search
+     */
+    public void start() {
+        start = System.nanoTime();
+        lastBest = null;
+        instability = 0;
+        stable = 0;
+    }
+
+    /**
+     * @return the time elapsed since start(), in milliseconds
+     */
+    public long elapsed() {
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    /**
+     * @return the optimum time of the move, in milliseconds
+     */
+    public long getOptimum() {
+        return optimum / 1000000;
+    }
+
+    /**
+     * @return the maximum time of the move, in milliseconds
+     */
+    public long getMaximum() {
+        return maximum / 1000000;
+    }
+
+    /**
+     * @return whether the hard limit has been reached, at which the search should stop immediately
+     */
+    public boolean isOutOfTime() {
+        return System.nanoTime() - start >= maximum;
+    }
+
+    /**
+     * Decide, after an iteration of iterative deepening, whether to start the next one
+     *
+     * @param depth     the depth of the iteration just finished
+     * @param score     its score
+     * @param best      its best operation
+     * @param rootMoves the number of operations at the root, or 2 if there are more
+     * @return whether to search the next depth
+     */
+    public boolean shouldContinue(int depth, int score, Board.Operation best, int rootMoves) {
+        if (rootMoves <= 1 || Math.abs(score) >= Search.MATE - Search.MAX_PLY) {
+            return false;
+        }
+        instability /= 2;
+        if (lastBest != null && !lastBest.equals(best)) {
+            instability += 1;
+            stable = 0;
+        } else {
+            stable++;
+        }
+        lastBest = best;
+        double scale = Math.min(1 + instability, MAX_SCALE);
+        if (stable >= STABLE_ITERATIONS) {
+            scale /= 2;
+        }
+        final long target = Math.min((long) (optimum * scale), maximum);
+        return System.nanoTime() - start < target / 2;
+    }
+}
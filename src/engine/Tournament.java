@@ -0,0 +1,345 @@
+package engine;
+
+import models.Board;
+import models.GameRecord;
+import models.Player;
+import models.PositionFormat;
+import util.Pair;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A match between two engines, played headless on all processors. Every thread plays one game at a time on its own
+ * board, with its own transposition table for each engine, cleared before each game so that games do not depend on the
+ * order they are played in. The games start from the positions of a list of openings, each played twice with the
+ * colours swapped, and are adjudicated a draw on threefold repetition or after the maximum number of plies.
+ * <p>
+ * Every result is recorded as one line: the number of the game, the names of the white and black engines, the result,
+ * the reason the game ended and the GameRecord of the game in Base64, from which it can be replayed. The results feed a
+ * Sprt, and the match stops early once the test accepts either hypothesis, unless early stopping is disabled.
+ */
+public final class Tournament {
+
+    private final Engine first;
+    private final Engine second;
+    private final List<String> openings;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int games = 1000;
+    private int maxPlies = 300;
+    private boolean stopEarly = true;
+    private Sprt sprt = new Sprt(0, 5, 0.05, 0.05);
+
+    /**
+     * @param first    the engine under test
+     * @param second   the reference engine
+     * @param openings the starting positions in PositionFormat
+     */
+    public Tournament(Engine first, Engine second, List<String> openings) {
+        if (openings.isEmpty()) {
+            throw new IllegalArgumentException("No opening");
+        }
+        for (String opening : openings) {
+            PositionFormat.parse(opening);
+        }
+        this.first = first;
+        this.second = second;
+        this.openings = new ArrayList<>(openings);
+    }
+
+    /**
+     * @param path a file of positions in PositionFormat, one per line; empty lines and lines starting with # are skipped
+     * @return the positions
+     * @throws IOException if the file cannot be read
+     */
+    public static List<String> readOpenings(Path path) throws IOException {
+        final List<String> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.US_ASCII)) {
+            final String opening = line.trim();
+            if (!opening.isEmpty() && !opening.startsWith("#")) {
+                openings.add(opening);
+            }
+        }
+        return openings;
+    }
+
+    /**
+     * @param threads the number of games played at once
+     * @return this instance
+     */
+    public Tournament threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * @param games the number of games played at most
+     * @return this instance
+     */
+    public Tournament games(int games) {
+        this.games = Math.max(1, games);
+        return this;
+    }
+
+    /**
+     * @param maxPlies the number of plies after which a game is adjudicated a draw
+     * @return this instance
+     */
+    public Tournament maxPlies(int maxPlies) {
+        this.maxPlies = Math.max(1, maxPlies);
+        return this;
+    }
+
+    /**
+     * @param sprt the test the results feed
+     * @return this instance
+     */
+    public Tournament sprt(Sprt sprt) {
+        this.sprt = sprt;
+        return this;
+    }
+
+    /**
+     * @param stopEarly whether to stop once the test accepts a hypothesis
+     * @return this instance
+     */
+    public Tournament stopEarly(boolean stopEarly) {
+        this.stopEarly = stopEarly;
+        return this;
+    }
+
+    /**
+     * Play the match. The games being played when the test accepts a hypothesis are finished and recorded as well.
+     *
+     * @param records called with the line of each game, one at a time, in the order the games end
+     * @return the test, holding the results
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public Sprt run(Consumer<String> records) throws InterruptedException {
+        final AtomicInteger next = new AtomicInteger();
+        final List<Thread> running = new ArrayList<>(threads);
+        final RuntimeException[] failure = {null};
+        for (int i = 0; i < threads; i++) {
+            final Thread thread = new Thread(() -> {
+                final Worker worker = new Worker();
+                try {
+                    int game;
+                    while ((game = next.getAndIncrement()) < games) {
+                        final String record = worker.play(game);
+                        synchronized (records) {
+                            records.accept(record);
+                        }
+                        if (stopEarly && sprt.decide() != Sprt.Decision.CONTINUE) {
+                            next.set(games);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) {
+                            failure[0] = e;
+                        }
+                    }
+                    next.set(games);
+                }
+            }, "tournament-" + i);
+            running.add(thread);
+            thread.start();
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return sprt;
+    }
+
+    /**
+     * The settings of an engine: the depth of its searches, the techniques disabled in them, and its evaluation
+     */
+    public static final class Engine {
+
+        public final String NAME;
+        private int depth = 3;
+        private int tableBits = 16;
+        private final EnumSet<Search.Feature> disabled = EnumSet.noneOf(Search.Feature.class);
+        private Function<Board, Evaluation> evaluations = IncrementalEvaluation::new;
+
+        public Engine(String name) {
+            NAME = name;
+        }
+
+        /**
+         * @param spec the depth followed by the features disabled, each preceded by -, e.g. 4-NULL_MOVE-FUTILITY
+         * @return the engine, named by spec
+         * @throws IllegalArgumentException if spec is malformed
+         */
+        public static Engine parse(String spec) {
+            final String[] parts = spec.split("-");
+            final Engine engine = new Engine(spec);
+            try {
+                engine.depth(Integer.parseInt(parts[0]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed depth in " + spec);
+            }
+            for (int i = 1; i < parts.length; i++) {
+                engine.disable(Search.Feature.valueOf(parts[i]));
+            }
+            return engine;
+        }
+
+        /**
+         * @param depth the depth of the search of every operation
+         * @return this instance
+         */
+        public Engine depth(int depth) {
+            this.depth = Math.max(1, depth);
+            return this;
+        }
+
+        /**
+         * @param bits the transposition table holds 2^bits entries
+         * @return this instance
+         */
+        public Engine tableBits(int bits) {
+            this.tableBits = bits;
+            return this;
+        }
+
+        /**
+         * @param feature a technique disabled in the searches
+         * @return this instance
+         */
+        public Engine disable(Search.Feature feature) {
+            disabled.add(feature);
+            return this;
+        }
+
+        /**
+         * @param evaluations the factory of the evaluation of a board, called for every game
+         * @return this instance
+         */
+        public Engine evaluations(Function<Board, Evaluation> evaluations) {
+            this.evaluations = evaluations;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return NAME;
+        }
+    }
+
+    /**
+     * The board-independent state of a thread: a transposition table for each engine
+     */
+    private final class Worker {
+
+        private final TranspositionTable firstTable = new TranspositionTable(first.tableBits);
+        private final TranspositionTable secondTable = new TranspositionTable(second.tableBits);
+
+        /**
+         * @param game the number of the game; even games give the first engine white
+         * @return the record of the game
+         */
+        private String play(int game) {
+            final Pair<Board, Player> start = PositionFormat.parse(openings.get(game / 2 % openings.size()));
+            final Board board = start.first;
+            final boolean firstIsWhite = game % 2 == 0;
+            final Engine white = firstIsWhite ? first : second, black = firstIsWhite ? second : first;
+            firstTable.clear();
+            secondTable.clear();
+            final Evaluation whiteEvaluation = white.evaluations.apply(board);
+            final Evaluation blackEvaluation = black.evaluations.apply(board);
+            final Search whiteSearch = search(board, white, whiteEvaluation, firstIsWhite ? firstTable : secondTable);
+            final Search blackSearch = search(board, black, blackEvaluation, firstIsWhite ? secondTable : firstTable);
+            final Map<Long, Integer> repetitions = new HashMap<>();
+            Player player = start.second;
+            String result = "1/2-1/2", reason = "plies";
+            for (int ply = 0; ply < maxPlies; ply++) {
+                if (repetitions.merge(board.getKey(player), 1, Integer::sum) == 3) {
+                    reason = "repetition";
+                    break;
+                }
+                if (!board.generateMoves(player).findAny().isPresent()) {
+                    if (board.inCheck(player)) {
+                        result = player == board.WHITE ? "0-1" : "1-0";
+                        reason = "mate";
+                    } else {
+                        reason = "stalemate";
+                    }
+                    break;
+                }
+                final Search search = player == board.WHITE ? whiteSearch : blackSearch;
+                search.iterate(player, (player == board.WHITE ? white : black).depth);
+                board.execute(search.getBestMove(), player);
+                player = board.theOther(player);
+            }
+            detach(whiteEvaluation);
+            detach(blackEvaluation);
+            final double score = result.equals("1/2-1/2") ? 0.5 : result.equals("1-0") == firstIsWhite ? 1 : 0;
+            sprt.add(score);
+            return game + " " + white + " " + black + " " + result + " " + reason + " "
+                    + Base64.getEncoder().encodeToString(GameRecord.of(board).getBytes());
+        }
+
+        private Search search(Board board, Engine engine, Evaluation evaluation, TranspositionTable table) {
+            final Search search = new Search(board, evaluation, table);
+            for (Search.Feature feature : engine.disabled) {
+                search.disable(feature);
+            }
+            return search;
+        }
+
+        private void detach(Evaluation evaluation) {
+            if (evaluation instanceof IncrementalEvaluation) {
+                ((IncrementalEvaluation) evaluation).detach();
+            }
+        }
+    }
+
+    /**
+     * Play a match and write the record of its games
+     *
+     * @param args the file of openings, the file the records are written to, the two engines (see Engine.parse), and
+     *             the maximum number of games, 1000 by default
+     * @throws IOException          if a file cannot be read or written
+     * @throws InterruptedException if interrupted while waiting for the games
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            System.err.println("Usage: Tournament openings records first second [games]");
+            System.exit(1);
+        }
+        final Tournament tournament = new Tournament(Engine.parse(args[2]), Engine.parse(args[3]), readOpenings(Paths.get(args[0])));
+        if (args.length > 4) {
+            tournament.games(Integer.parseInt(args[4]));
+        }
+        final Sprt sprt;
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.US_ASCII)) {
+            sprt = tournament.run(record -> {
+                try {
+                    out.write(record);
+                    out.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        System.out.format("%s vs %s: %s, %s\n", args[2], args[3], sprt, sprt.decide());
+    }
+}
@@ -0,0 +1,109 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results indexed by the Zobrist key of the position, see Board.getKey(Player). Each entry
+ * holds the best operation found, encoded by Board.encode(Operation), the score, the depth it was searched to and
+ * whether the score is exact or a bound. Entries live in parallel primitive arrays and are replaced on collision unless
+ * the stored entry of the same position was searched deeper.
+ */
+public class TranspositionTable {
+
+    public static final byte EXACT = 0;
+    /**
+     * the score is a lower bound, aka. the search failed high
+     */
+    public static final byte LOWER = 1;
+    /**
+     * the score is an upper bound, aka. the search failed low
+     */
+    public static final byte UPPER = 2;
+
+    private final long[] keys;
+    private final int[] moves;
+    private final int[] scores;
+    private final short[] depths;
+    private final byte[] bounds;
+    private final int mask;
+
+    /**
+     * Construct an empty table
+     *
+     * @param bits the table holds 2^bits entries
+     */
+    public TranspositionTable(int bits) {
+        keys = new long[1 << bits];
+        moves = new int[1 << bits];
+        scores = new int[1 << bits];
+        depths = new short[1 << bits];
+        bounds = new byte[1 << bits];
+        mask = (1 << bits) - 1;
+        clear();
+    }
+
+    /**
+     * @param key the key of a position
+     * @return the slot of the entry of the position, or -1 if there is none
+     */
+    public int probe(long key) {
+        final int slot = slot(key);
+        return keys[slot] == key && depths[slot] >= 0 ? slot : -1;
+    }
+
+    /**
+     * @return the encoded best operation of the entry at slot, -1 if unknown
+     */
+    public int move(int slot) {
+        return moves[slot];
+    }
+
+    public int score(int slot) {
+        return scores[slot];
+    }
+
+    public int depth(int slot) {
+        return depths[slot];
+    }
+
+    public byte bound(int slot) {
+        return bounds[slot];
+    }
+
+    /**
+     * Store the result of a search
+     *
+     * @param key   the key of the position
+     * @param move  the encoded best operation, -1 if unknown
+     * @param score the score
+     * @param depth the depth the position was searched to
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, byte bound) {
+        final int slot = slot(key);
+        if (keys[slot] == key && depths[slot] > depth && bound != EXACT) {
+            return;
+        }
+        if (keys[slot] == key && move == -1) {
+            move = moves[slot];
+        }
+        keys[slot] = key;
+        moves[slot] = move;
+        scores[slot] = score;
+        depths[slot] = (short) depth;
+        bounds[slot] = bound;
+    }
+
+    /**
+     * Empty the table
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(moves, -1);
+        Arrays.fill(depths, (short) -1);
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
@@ -1,9 +1,11 @@
 package models;
 
-import util.ObservableArray;
+import util.Array;
 import util.Pair;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -15,11 +17,14 @@ import static util.Shorthand.*;
 
 /**
  * A data structure representing a chess board by storing instances of Piece in an array. The coordinate system
- * used starts with 0 from bottom left and has up as positive-y and right as positive-x
+ * used starts with 0 from bottom left and has up as positive-y and right as positive-x. Changes of locations are
+ * reported to PieceListeners rather than through JavaFX, so that boards can be used without JavaFX, e.g. by a server.
  *
  * @author changhe3
  */
-public final class Board extends ObservableArray<Piece> implements AutoCloseable {
+public final class Board extends Array<Piece> implements AutoCloseable {
+
+    private static final long serialVersionUID = 4721180093517046825L;
 
     public final Map<PieceType, String[]> pieceResourcePaths;
 
@@ -36,6 +41,11 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
     public final Player WHITE;
 
     private final Stack<Pair<Operation, Player>> history = new Stack<>();
+    private final List<PieceListener> pieceListeners = new ArrayList<>();
+    private final List<HistoryListener> historyListeners = new ArrayList<>();
+    private long key = 0;
+    private long pawnKey = 0;
+    private long mirrorKey = 0;
 
     /**
      * Construct a Board instance with n_COLS columns and n_ROWS rows
@@ -100,9 +110,55 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
         N_COLS = board.N_COLS;
         BLACK = board.BLACK;
         WHITE = board.WHITE;
+        key = board.key;
+        pawnKey = board.pawnKey;
+        mirrorKey = board.mirrorKey;
         this.pieceResourcePaths = pieceResourcePaths;
     }
 
+    /**
+     * Construct a deep copy of this board: its players and pieces are copied as well, with their turn counts and numbers
+     * of operations, so that the copy can be operated on independently, e.g. by another thread. The history is not copied.
+     *
+     * @return the copy
+     */
+    public Board copy() {
+        final Player black = BLACK.copy();
+        final Player white = WHITE.copy();
+        final Board ret = new Board(N_COLS, N_ROWS, black, white, pieceResourcePaths);
+        for (int index = 0; index < size(); index++) {
+            final Piece piece = get(index);
+            if (piece != null) {
+                ret.set(index, new Piece(piece.TYPE, piece.PLAYER == BLACK ? black : white, point(index), piece.getNumOperations()));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Construct a deep copy of this board, see copy(), in the position before the first operation of its history, e.g.
+     * to write or replay the game that was played on this board
+     *
+     * @return the copy, with no history
+     */
+    public Board initialPosition() {
+        final Board ret = copy();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            final Operation op = history.get(i).first;
+            final Piece piece = ret.remove(op.TO);
+            ret.set(op.FROM, piece);
+            piece.setLocation(op.FROM);
+            piece.decrementNumOperations();
+            if (op instanceof Operation.Attack) {
+                final Piece captured = ((Operation.Attack) op).getCaptured();
+                ret.set(op.TO, new Piece(captured.TYPE, captured.PLAYER == BLACK ? ret.BLACK : ret.WHITE,
+                        new Point(op.TO), captured.getNumOperations()));
+            }
+            (history.get(i).second == BLACK ? ret.BLACK : ret.WHITE).decrement();
+        }
+        return ret;
+    }
+
     /**
      * @return a instance of Board with the default configuration of chess
      */
@@ -169,6 +225,25 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
         assert getOptional(op.FROM).filter(piece -> piece.PLAYER == player).isPresent();
         op.accept(this);
         history.push(Pair.of(op, player));
+        for (int i = 0; i < historyListeners.size(); i++) {
+            historyListeners.get(i).executed(op, player);
+        }
+    }
+
+    /**
+     * Undo the last operation executed on this board, while decrement the turn count for its player
+     *
+     * @return the undone operation and the player from which it executed
+     * @throws java.util.EmptyStackException if no operation has been executed
+     */
+    public Pair<Operation, Player> undo() {
+        final Pair<Operation, Player> last = history.pop();
+        last.first.reverse(this);
+        last.second.decrement();
+        for (int i = 0; i < historyListeners.size(); i++) {
+            historyListeners.get(i).undone(last.first, last.second);
+        }
+        return last;
     }
 
     /**
@@ -243,7 +318,189 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
      * @return the removed piece at location p, null if none removed
      */
     public Piece remove(Point p) {
-        return super.remove(coord(p));
+        return remove(coord(p));
+    }
+
+    /**
+     * Put a piece at a 0-based index, notifying the PieceListeners of this board
+     *
+     * @param index a 0-based index, see coord(int, int)
+     * @param piece the piece, or null to empty the location
+     * @return the piece previously at index, null if there is none
+     */
+    @Override
+    public Piece set(int index, Piece piece) {
+        final Piece previous = super.set(index, piece);
+        if (previous != null) {
+            hash(previous, index);
+        }
+        if (piece != null) {
+            hash(piece, index);
+        }
+        for (PieceListener listener : pieceListeners) {
+            if (previous != null) {
+                listener.removed(previous, index);
+            }
+            if (piece != null) {
+                listener.placed(piece, index);
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Remove the piece at a 0-based index, notifying the PieceListeners of this board
+     *
+     * @param index a 0-based index, see coord(int, int)
+     * @return the removed piece, null if none removed
+     */
+    @Override
+    public Piece remove(int index) {
+        final Piece previous = super.set(index, null);
+        if (previous != null) {
+            hash(previous, index);
+            for (PieceListener listener : pieceListeners) {
+                listener.removed(previous, index);
+            }
+        }
+        return previous;
+    }
+
+    private void hash(Piece piece, int index) {
+        final long pieceKey = Zobrist.piece(piece.TYPE, piece.PLAYER == WHITE, index);
+        key ^= pieceKey;
+        if (piece.TYPE == PieceTypes.PAWN) {
+            pawnKey ^= pieceKey;
+        }
+        mirrorKey ^= Zobrist.piece(piece.TYPE, piece.PLAYER != WHITE, mirror(index));
+    }
+
+    /**
+     * @return the Zobrist key of the locations of all pieces on this board, see Zobrist
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * The Zobrist key of a position, which besides the locations of all pieces covers the side to move and the parity of
+     * the turn counts, on which MovementRule preconditions such as those of ARTILLERY depend
+     *
+     * @param toMove the player to move
+     * @return the key
+     */
+    public long getKey(Player toMove) {
+        long ret = key;
+        if (toMove == WHITE) {
+            ret ^= Zobrist.WHITE_TO_MOVE;
+        }
+        if (BLACK.getTurnCount() % 2 != 0) {
+            ret ^= Zobrist.ODD_TURN[0];
+        }
+        if (WHITE.getTurnCount() % 2 != 0) {
+            ret ^= Zobrist.ODD_TURN[1];
+        }
+        return ret;
+    }
+
+    /**
+     * The key of the colour-flipped mirror of a position: every piece changes colour and is mirrored across the middle
+     * row, the other player is to move, and the turn counts are swapped. Since Player.Black mirrors the vectors of the
+     * movement rules, the mirror plays exactly as the position itself.
+     *
+     * @param toMove the player to move
+     * @return the key of the mirror, as getKey(Player) would return it on the mirrored board
+     */
+    public long getMirrorKey(Player toMove) {
+        long ret = mirrorKey;
+        if (toMove == BLACK) {
+            ret ^= Zobrist.WHITE_TO_MOVE;
+        }
+        if (WHITE.getTurnCount() % 2 != 0) {
+            ret ^= Zobrist.ODD_TURN[0];
+        }
+        if (BLACK.getTurnCount() % 2 != 0) {
+            ret ^= Zobrist.ODD_TURN[1];
+        }
+        return ret;
+    }
+
+    /**
+     * A key shared by a position and its colour-flipped mirror, see getMirrorKey(Player). Operations stored under it
+     * have to be translated by mirror(int) when isCanonical(Player) is false, and scores from the point of view of the
+     * player to move need no translation.
+     *
+     * @param toMove the player to move
+     * @return the smaller of getKey(Player) and getMirrorKey(Player)
+     */
+    public long getCanonicalKey(Player toMove) {
+        return Math.min(getKey(toMove), getMirrorKey(toMove));
+    }
+
+    /**
+     * @param toMove the player to move
+     * @return whether getCanonicalKey(Player) is the key of the position itself rather than that of its mirror
+     */
+    public boolean isCanonical(Player toMove) {
+        return getKey(toMove) <= getMirrorKey(toMove);
+    }
+
+    /**
+     * @param index a 0-based index, see coord(int, int)
+     * @return the index of the location mirrored across the middle row
+     */
+    public int mirror(int index) {
+        return (N_ROWS - 1 - index / N_COLS) * N_COLS + index % N_COLS;
+    }
+
+    /**
+     * @param code an operation packed by encode(Operation)
+     * @return the packed operation of the colour-flipped mirror, see getMirrorKey(Player)
+     */
+    public int mirrorCode(int code) {
+        return mirror(code / size()) * size() + mirror(code % size());
+    }
+
+    /**
+     * @return the Zobrist key of the locations of the pawns on this board only, which changes only when a pawn moves
+     * or is captured
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Register a listener notified of every piece put on or taken off this board, including those by
+     * Operation.accept(Board) and Operation.reverse(Board)
+     *
+     * @param listener the listener
+     */
+    public void addPieceListener(PieceListener listener) {
+        pieceListeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener previously registered by addPieceListener(PieceListener)
+     */
+    public void removePieceListener(PieceListener listener) {
+        pieceListeners.remove(listener);
+    }
+
+    /**
+     * Register a listener notified of every operation executed or undone on this board by execute(Operation, Player)
+     * and undo(), but not of those only tried, e.g. by leavesInCheck(Operation, Player)
+     *
+     * @param listener the listener
+     */
+    public void addHistoryListener(HistoryListener listener) {
+        historyListeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener previously registered by addHistoryListener(HistoryListener)
+     */
+    public void removeHistoryListener(HistoryListener listener) {
+        historyListeners.remove(listener);
     }
 
     /**
@@ -264,6 +521,38 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
         return coord(p.x, p.y);
     }
 
+    /**
+     * The inverse of coord(int, int)
+     *
+     * @param index a 0-based index used in the internal array representation
+     * @return the location at index
+     */
+    public Point point(int index) {
+        return pt(index % N_COLS, index / N_COLS);
+    }
+
+    /**
+     * Pack the source and the destination of an operation into a single int, see decode(int)
+     *
+     * @param op an operation
+     * @return coord(op.FROM) * size() + coord(op.TO)
+     */
+    public int encode(Operation op) {
+        return coord(op.FROM) * size() + coord(op.TO);
+    }
+
+    /**
+     * Unpack an int produced by encode(Operation). Whether the result is a move or an attack is decided by the
+     * current content of its destination, so the result is only meaningful on the position it was encoded from.
+     *
+     * @param code a packed operation
+     * @return a fresh instance of Operation.Move or Operation.Attack
+     */
+    public Operation decode(int code) {
+        final Point from = point(code / size()), to = point(code % size());
+        return get(to) == null ? Operation.move(from, to) : Operation.attack(from, to);
+    }
+
     /**
      * Generate all available moves on a piece at location p that will not put the piece's owner in check
      *
@@ -308,14 +597,105 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
         return player.getPieces().flatMap(piece -> this.generateMoves(piece, checkChecks));
     }
 
+    /**
+     * Generate all available attacks for a player, without generating any move that does not capture
+     *
+     * @param player      a player
+     * @param checkChecks whether or not to check checks
+     * @return all available attacks if checkChecks is false, otherwise, excluding those that will put player in check
+     */
+    public Stream<Operation> generateAttacks(Player player, boolean checkChecks) {
+        return player.getPieces().flatMap(piece -> piece.TYPE.generateAttacks(this, piece.getLocation(), piece, checkChecks));
+    }
+
+    /**
+     * Generate all available moves for a player that do not capture, without generating any attack
+     *
+     * @param player      a player
+     * @param checkChecks whether or not to check checks
+     * @return all available quiet moves if checkChecks is false, otherwise, excluding those that will put player in check
+     */
+    public Stream<Operation> generateQuiets(Player player, boolean checkChecks) {
+        return player.getPieces().flatMap(piece -> piece.TYPE.generateQuiets(this, piece.getLocation(), piece, checkChecks));
+    }
+
     /**
      * @param player a player
      * @return whether player is in check or not
      */
     public boolean inCheck(Player player) {
-        Player enemy = theOther(player);
-        return generateMoves(enemy, false)
-                .anyMatch(op -> op.getClass() == Operation.Attack.class && op.TO.equals(player.getKing().getLocation()));
+        final Piece king = player.getKing();
+        return king != null && !king.isCaptured() && isAttacked(king.getLocation(), theOther(player));
+    }
+
+    /**
+     * Check whether a location is attacked by a player, by testing the MovementRules of each of its pieces against
+     * that single location instead of generating all of its moves
+     *
+     * @param square a location, either empty or occupied by a piece of the rival of by
+     * @param by     the attacking player
+     * @return true if any piece of by could attack a rival piece at square
+     */
+    public boolean isAttacked(Point square, Player by) {
+        final List<Piece> pieces = by.pieceList();
+        for (int i = 0; i < pieces.size(); i++) {
+            final Piece piece = pieces.get(i);
+            if (!piece.isCaptured() && piece.TYPE.canAttack(this, piece.getLocation(), piece, square)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the pieces of a player that could attack a location. Pieces whose MovementRules allow skipping attack through
+     * other pieces, and only rules that allow attacking are considered, so e.g. pawns attack diagonally only.
+     *
+     * @param square a location, either empty or occupied by a piece of the rival of by
+     * @param by     the attacking player
+     * @return the pieces of by that could attack a rival piece at square
+     */
+    public Stream<Piece> attackersTo(Point square, Player by) {
+        return by.getPieces().filter(piece -> piece.TYPE.canAttack(this, piece.getLocation(), piece, square));
+    }
+
+    /**
+     * Check whether an operation is legal for a player without generating any other operation. An operation is legal if
+     * the piece at op.FROM belongs to player, one of its MovementRules allows it to reach op.TO, the kind of operation
+     * matches the content of op.TO, and it does not put player in check.
+     *
+     * @param op     the operation
+     * @param player the player from which this operation op executes
+     * @return true if generateMoves(player) would contain op
+     */
+    public boolean isLegal(Operation op, Player player) {
+        if (op == null || !inBound(op.FROM) || !inBound(op.TO)) {
+            return false;
+        }
+        final Piece piece = get(op.FROM);
+        if (piece == null || piece.PLAYER != player) {
+            return false;
+        }
+        final Piece target = get(op.TO);
+        final boolean isAttack = op.getClass() == Operation.Attack.class;
+        if (isAttack ? target == null || target.PLAYER == player : target != null) {
+            return false;
+        }
+        return piece.TYPE.canReach(this, op.FROM, piece, op.TO) && !leavesInCheck(op, player);
+    }
+
+    /**
+     * Check whether an operation would put its player in check. The operation is applied and reversed on this board.
+     *
+     * @param op     an operation, assumed to be available for player ignoring check conditions
+     * @param player the player from which this operation op executes
+     * @return true if player is in check after op
+     */
+    public boolean leavesInCheck(Operation op, Player player) {
+        op.accept(this);
+        final boolean underCheck = inCheck(player);
+        op.reverse(this);
+        return underCheck;
     }
 
     public Stack<Pair<Operation, Player>> getHistory() {
@@ -353,17 +733,60 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
      */
     @Override
     public String toString() {
-        StringBuilder builder = new StringBuilder();
-        for (int y = 7; y >= 0; y--) {
-            for (int x = 0; x < 8; x++) {
-                Optional<Piece> pieceOptional = getOptional(x, y);
-                builder.append(pieceOptional.map(piece -> String.format("%s%s%s\t", piece.PLAYER, piece.TYPE, toChessNotation(piece.getLocation()))).orElse("----\t"));
+        final StringBuilder builder = new StringBuilder(size() * 5 + N_ROWS * 2);
+        for (int y = N_ROWS - 1; y >= 0; y--) {
+            for (int x = 0; x < N_COLS; x++) {
+                final Piece piece = get(x, y);
+                if (piece == null) {
+                    builder.append("----\t");
+                } else {
+                    builder.append(piece.PLAYER).append(piece.TYPE).append(toChessNotation(piece.getLocation())).append('\t');
+                }
             }
             builder.append("\n\n");
         }
         return builder.toString();
     }
 
+    /**
+     * A callback notified whenever a piece is put on or taken off a location of a board. Operations are reported as a
+     * sequence of such changes, which makes it possible to keep per-location data up to date incrementally.
+     * Note that the location of the piece itself may not be updated yet when the listener is called.
+     */
+    public interface PieceListener {
+
+        /**
+         * @param piece the piece put on the board
+         * @param index the 0-based index of its location, see coord(int, int)
+         */
+        void placed(Piece piece, int index);
+
+        /**
+         * @param piece the piece taken off the board
+         * @param index the 0-based index of its former location, see coord(int, int)
+         */
+        void removed(Piece piece, int index);
+    }
+
+    /**
+     * A callback notified whenever an operation is pushed on or popped off the history of a board, after the board has
+     * been updated
+     */
+    public interface HistoryListener {
+
+        /**
+         * @param op     the operation executed
+         * @param player the player from which it executed
+         */
+        void executed(Operation op, Player player);
+
+        /**
+         * @param op     the operation undone
+         * @param player the player from which it had executed
+         */
+        void undone(Operation op, Player player);
+    }
+
     /**
      * A callback representing an operation on a board
      */
@@ -409,6 +832,20 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
             return new Attack(from, to);
         }
 
+        /**
+         * Create an instance of Operation.Attack that has already been executed, e.g. to restore a history
+         *
+         * @param from     the original location
+         * @param to       the location attacked
+         * @param captured the piece captured by the attack
+         * @return an operation that reverses to captured standing at to
+         */
+        static Attack attack(Point from, Point to, Piece captured) {
+            final Attack ret = new Attack(from, to);
+            ret.captured = captured;
+            return ret;
+        }
+
         /**
          * Reverse an operation on a board. Note that this should only be called immediately after executing the operation.
          *
@@ -520,6 +957,13 @@ public final class Board extends ObservableArray<Piece> implements AutoCloseable
                 attacking.incrementNumOperations();
             }
 
+            /**
+             * @return the piece captured by the last execution of this attack, null if it has not been executed
+             */
+            public Piece getCaptured() {
+                return captured;
+            }
+
             /**
              * Undo this attack on a board
              *
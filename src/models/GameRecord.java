@@ -0,0 +1,262 @@
+package models;
+
+import util.Pair;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact binary record of a game, taking about two bytes per ply. The record is made of unsigned LEB128 varints for
+ * the number of columns, the number of rows, the length of the starting position and the number of plies, with the
+ * starting position in PositionFormat between the last two; a length of 0 stands for PositionFormat.INITIAL. Each ply
+ * follows as the little-endian code of Board.encode(Operation), in two bytes on boards of up to 256 locations and
+ * in four bytes otherwise. Whether a code is a move or an attack is recovered from the position when it is replayed.
+ * <p>
+ * Records can be concatenated, e.g. in a mapped file, and read one after the other with Decoder.
+ */
+public final class GameRecord {
+
+    private final byte[] bytes;
+
+    /**
+     * Construct a record from its bytes, e.g. read from a file
+     *
+     * @param bytes the bytes, not copied
+     */
+    public GameRecord(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param board a board; it is not modified
+     * @return the record of the game played on board, see Board.getHistory() and Board.initialPosition()
+     */
+    public static GameRecord of(Board board) {
+        final ByteBuffer buffer = ByteBuffer.allocate(maxSize(board));
+        encode(board, buffer);
+        return new GameRecord(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    /**
+     * @param board a board
+     * @return an upper bound of the size of the record of the game played on board
+     */
+    public static int maxSize(Board board) {
+        return 64 + board.size() * 3 + board.getHistory().size() * moveBytes(board.N_COLS, board.N_ROWS);
+    }
+
+    /**
+     * Write the record of the game played on a board
+     *
+     * @param board  a board; it is not modified
+     * @param buffer the buffer written from its position, with at least maxSize(board) bytes remaining
+     */
+    public static void encode(Board board, ByteBuffer buffer) {
+        final List<Pair<Board.Operation, Player>> history = board.getHistory();
+        final Board start = board.initialPosition();
+        final Player first = history.isEmpty() || history.get(0).second == board.WHITE ? start.WHITE : start.BLACK;
+        final String position = PositionFormat.write(start, first);
+        putVarint(buffer, board.N_COLS);
+        putVarint(buffer, board.N_ROWS);
+        if (position.equals(PositionFormat.INITIAL)) {
+            putVarint(buffer, 0);
+        } else {
+            putVarint(buffer, position.length());
+            buffer.put(position.getBytes(StandardCharsets.US_ASCII));
+        }
+        putVarint(buffer, history.size());
+        final int width = moveBytes(board.N_COLS, board.N_ROWS);
+        for (Pair<Board.Operation, Player> entry : history) {
+            final int code = board.encode(entry.first);
+            for (int i = 0; i < width; i++) {
+                buffer.put((byte) (code >>> 8 * i));
+            }
+        }
+    }
+
+    /**
+     * @return the bytes of this record, not copied
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return a decoder of this record
+     */
+    public Decoder decoder() {
+        return new Decoder(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Play the game on a new board in its starting position
+     *
+     * @return the board, whose history holds the operations
+     * @throws IllegalArgumentException if the record is malformed or an operation is illegal
+     */
+    public Board replay() {
+        return decoder().replay();
+    }
+
+    static int moveBytes(int cols, int rows) {
+        return cols * rows <= 256 ? 2 : 4;
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Read a record from a buffer, one operation at a time. The header is read on construction; once every operation
+     * has been read, the buffer is positioned at the end of the record, e.g. at the next record.
+     */
+    public static final class Decoder {
+        public final int N_COLS;
+        public final int N_ROWS;
+        /**
+         * the number of plies of the game
+         */
+        public final int PLIES;
+        private final String position;
+        private final ByteBuffer buffer;
+        private final int width;
+        private int read;
+
+        /**
+         * Construct a decoder of the record starting at the position of a buffer
+         *
+         * @param buffer the buffer
+         * @throws IllegalArgumentException if the header is malformed or truncated
+         */
+        public Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+            try {
+                N_COLS = getVarint(buffer);
+                N_ROWS = getVarint(buffer);
+                final int length = getVarint(buffer);
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalArgumentException("Truncated game record");
+                } else if (length == 0) {
+                    position = null;
+                } else {
+                    final byte[] text = new byte[length];
+                    buffer.get(text);
+                    position = new String(text, StandardCharsets.US_ASCII);
+                }
+                PLIES = getVarint(buffer);
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Truncated game record", e);
+            }
+            width = moveBytes(N_COLS, N_ROWS);
+            if (N_COLS <= 0 || N_ROWS <= 0 || PLIES < 0 || (long) PLIES * width > buffer.remaining()) {
+                throw new IllegalArgumentException("Truncated or malformed game record");
+            }
+        }
+
+        /**
+         * @return the starting position in PositionFormat
+         */
+        public String getPosition() {
+            return position == null ? PositionFormat.INITIAL : position;
+        }
+
+        /**
+         * @return a new board in the starting position of the game and the player to move first
+         * @throws IllegalArgumentException if the starting position is malformed
+         */
+        public Pair<Board, Player> start() {
+            if (position == null) {
+                final Board board = Board.defaultBoard(Player.black(), Player.white());
+                return Pair.of(board, board.WHITE);
+            }
+            return PositionFormat.parse(position);
+        }
+
+        /**
+         * @return whether an operation remains to be read
+         */
+        public boolean hasNext() {
+            return read < PLIES;
+        }
+
+        /**
+         * @return the next operation, as encoded by Board.encode(Operation); see Board.decode(int)
+         */
+        public int nextCode() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            read++;
+            int code = 0;
+            for (int i = 0; i < width; i++) {
+                code |= (buffer.get() & 0xFF) << 8 * i;
+            }
+            return code;
+        }
+
+        /**
+         * Skip the remaining operations, positioning the buffer at the end of the record
+         */
+        public void skip() {
+            buffer.position(buffer.position() + (PLIES - read) * width);
+            read = PLIES;
+        }
+
+        /**
+         * Play the remaining operations on a new board in the starting position of the game
+         *
+         * @return the board, whose history holds the operations
+         * @throws IllegalArgumentException if the starting position is malformed or an operation is illegal
+         */
+        public Board replay() {
+            final Pair<Board, Player> start = start();
+            replay(start.first, start.second);
+            return start.first;
+        }
+
+        /**
+         * Play the remaining operations on a board. If an operation is illegal, the operations before it are left
+         * executed.
+         *
+         * @param board  the board, of N_COLS columns and N_ROWS rows, in the position before the next operation
+         * @param player the player to move
+         * @return the player to move after the last operation
+         * @throws IllegalArgumentException if an operation is illegal
+         */
+        public Player replay(Board board, Player player) {
+            while (hasNext()) {
+                final int code = nextCode();
+                if (code >= board.size() * board.size()) {
+                    throw new IllegalArgumentException(String.format("Ply %d: malformed operation %d", read, code));
+                }
+                final Board.Operation op = board.decode(code);
+                if (!board.isLegal(op, player)) {
+                    throw new IllegalArgumentException(String.format("Ply %d: illegal operation %s", read, op));
+                }
+                board.execute(op, player);
+                player = board.theOther(player);
+            }
+            return player;
+        }
+    }
+}
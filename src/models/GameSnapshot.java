@@ -0,0 +1,209 @@
+package models;
+
+import util.Pair;
+
+import java.awt.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact binary snapshot of the whole state of a game: the board, the players with their IDs and turn counts, every
+ * piece including the captured ones with its number of operations, and the history. A snapshot restores into a new
+ * board with fresh players and pieces, so that e.g. a server can checkpoint its games and resume them after a restart,
+ * undoing operations as if the game had never stopped.
+ * <p>
+ * The snapshot is made of unsigned LEB128 varints, see GameRecord: the number of columns and of rows, then for black and
+ * for white the length and UTF-8 bytes of its ID and its turn count, then for black and for white its number of pieces
+ * and for each piece, in the order they were registered, a byte holding the ordinal of its PieceTypes, its location as
+ * coord + 1 or 0 if captured, and its number of operations. The number of operations in the history follows, then for
+ * each one Board.encode(Operation), a byte of flags, ATTACK and WHITE, and for an attack the index of the captured piece
+ * among the pieces of the other player. The resource paths of the pieces are not kept: the board is restored with the
+ * default ones.
+ */
+public final class GameSnapshot {
+
+    private static final int ATTACK = 1;
+    private static final int WHITE = 2;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * @param board a board
+     * @return the snapshot of the game played on board
+     * @throws IllegalArgumentException if a piece is not of one of PieceTypes
+     */
+    public static byte[] write(Board board) {
+        final ByteBuffer buffer = ByteBuffer.allocate(maxSize(board));
+        write(board, buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * @param board a board
+     * @return an upper bound of the size of the snapshot of the game played on board
+     */
+    public static int maxSize(Board board) {
+        int size = 3 * 5;
+        for (Player player : new Player[]{board.BLACK, board.WHITE}) {
+            size += 3 * 5 + 3 * player.ID.length() + player.pieceList().size() * 11;
+        }
+        return size + board.getHistory().size() * 11;
+    }
+
+    /**
+     * Write the snapshot of the game played on a board
+     *
+     * @param board  a board
+     * @param buffer the buffer written from its position, with at least maxSize(board) bytes remaining
+     * @throws IllegalArgumentException if a piece is not of one of PieceTypes
+     */
+    public static void write(Board board, ByteBuffer buffer) {
+        GameRecord.putVarint(buffer, board.N_COLS);
+        GameRecord.putVarint(buffer, board.N_ROWS);
+        for (Player player : new Player[]{board.BLACK, board.WHITE}) {
+            final byte[] id = player.ID.getBytes(StandardCharsets.UTF_8);
+            GameRecord.putVarint(buffer, id.length);
+            buffer.put(id);
+            GameRecord.putVarint(buffer, player.getTurnCount());
+        }
+        for (Player player : new Player[]{board.BLACK, board.WHITE}) {
+            final List<Piece> pieces = player.pieceList();
+            GameRecord.putVarint(buffer, pieces.size());
+            for (Piece piece : pieces) {
+                if (!(piece.TYPE instanceof PieceTypes)) {
+                    throw new IllegalArgumentException("Cannot write piece type " + piece.TYPE);
+                }
+                buffer.put((byte) ((PieceTypes) piece.TYPE).ordinal());
+                GameRecord.putVarint(buffer, piece.isCaptured() ? 0 : board.coord(piece.getLocation()) + 1);
+                GameRecord.putVarint(buffer, piece.getNumOperations());
+            }
+        }
+        final List<Pair<Board.Operation, Player>> history = board.getHistory();
+        GameRecord.putVarint(buffer, history.size());
+        for (Pair<Board.Operation, Player> entry : history) {
+            final Board.Operation op = entry.first;
+            final boolean isAttack = op instanceof Board.Operation.Attack;
+            GameRecord.putVarint(buffer, board.encode(op));
+            buffer.put((byte) ((isAttack ? ATTACK : 0) | (entry.second == board.WHITE ? WHITE : 0)));
+            if (isAttack) {
+                final Piece captured = ((Board.Operation.Attack) op).getCaptured();
+                GameRecord.putVarint(buffer, indexOf(captured.PLAYER.pieceList(), captured));
+            }
+        }
+    }
+
+    /**
+     * @param snapshot a snapshot
+     * @return a new board in the state of the snapshot
+     * @throws IllegalArgumentException if the snapshot is malformed or truncated
+     */
+    public static Board read(byte[] snapshot) {
+        return read(ByteBuffer.wrap(snapshot));
+    }
+
+    /**
+     * Restore a game from a snapshot. The buffer is positioned at the end of the snapshot, e.g. at the next one.
+     *
+     * @param buffer the buffer, positioned at the snapshot
+     * @return a new board in the state of the snapshot
+     * @throws IllegalArgumentException if the snapshot is malformed or truncated
+     */
+    public static Board read(ByteBuffer buffer) {
+        try {
+            final int cols = GameRecord.getVarint(buffer), rows = GameRecord.getVarint(buffer);
+            if (cols <= 0 || rows <= 0) {
+                throw new IllegalArgumentException("Malformed snapshot: empty board");
+            }
+            final Player black = Player.black(readString(buffer));
+            black.setTurnCount(GameRecord.getVarint(buffer));
+            final Player white = Player.white(readString(buffer));
+            white.setTurnCount(GameRecord.getVarint(buffer));
+            final Board board = new Board(cols, rows, black, white);
+            final Piece[] blacks = new Piece[readCount(buffer, board)];
+            readPieces(buffer, board, black, blacks);
+            final Piece[] whites = new Piece[readCount(buffer, board)];
+            readPieces(buffer, board, white, whites);
+            final int plies = GameRecord.getVarint(buffer);
+            final List<Pair<Board.Operation, Player>> history = board.getHistory();
+            for (int i = 0; i < plies; i++) {
+                final int code = GameRecord.getVarint(buffer);
+                final int flags = buffer.get();
+                if (code < 0 || code >= board.size() * board.size()) {
+                    throw new IllegalArgumentException("Malformed snapshot: operation " + code);
+                }
+                final Point from = board.point(code / board.size()), to = board.point(code % board.size());
+                final Player player = (flags & WHITE) != 0 ? white : black;
+                if ((flags & ATTACK) != 0) {
+                    final Piece[] captured = player == white ? blacks : whites;
+                    final int index = GameRecord.getVarint(buffer);
+                    if (index < 0 || index >= captured.length) {
+                        throw new IllegalArgumentException("Malformed snapshot: captured piece " + index);
+                    }
+                    history.add(Pair.of(Board.Operation.attack(from, to, captured[index]), player));
+                } else {
+                    history.add(Pair.of(Board.Operation.move(from, to), player));
+                }
+            }
+            return board;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated snapshot", e);
+        }
+    }
+
+    /**
+     * @return the index of piece in pieces by identity, since captured pieces of the same type are equal
+     */
+    private static int indexOf(List<Piece> pieces, Piece piece) {
+        for (int i = 0; i < pieces.size(); i++) {
+            if (pieces.get(i) == piece) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Captured piece not registered to its player: " + piece);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = GameRecord.getVarint(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated snapshot");
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of pieces of a player, checked before allocating them: a player has at most one piece per square
+     * and each piece takes at least 3 bytes
+     */
+    private static int readCount(ByteBuffer buffer, Board board) {
+        final int count = GameRecord.getVarint(buffer);
+        if (count < 0 || count > board.size() || count > buffer.remaining() / 3) {
+            throw new IllegalArgumentException("Malformed snapshot: " + count + " pieces");
+        }
+        return count;
+    }
+
+    private static void readPieces(ByteBuffer buffer, Board board, Player player, Piece[] pieces) {
+        final PieceTypes[] types = PieceTypes.values();
+        for (int i = 0; i < pieces.length; i++) {
+            final int type = buffer.get();
+            final int location = GameRecord.getVarint(buffer);
+            final int nOps = GameRecord.getVarint(buffer);
+            if (type < 0 || type >= types.length || location < 0 || location > board.size()) {
+                throw new IllegalArgumentException("Malformed snapshot: piece " + i + " of " + player);
+            }
+            final Point point = location == 0 ? new Point() : board.point(location - 1);
+            pieces[i] = new Piece(types[type], player, point, nOps);
+            if (location == 0) {
+                pieces[i].capture();
+            } else if (board.set(location - 1, pieces[i]) != null) {
+                throw new IllegalArgumentException("Malformed snapshot: two pieces at " + point);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package models;
+
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Standard algebraic notation (SAN) of operations, as used by PGN, on boards of up to 26 columns. A location is the
+ * letter of its column followed by the number of its row, e.g. e4 or j10. An operation is the letter of the type of the
+ * piece, see PieceTypes, omitted for pawns, the column and/or the row of its source when another piece of the same type
+ * could reach the same destination, 'x' for an attack, the destination, and '+' if it checks the other player or '#' if
+ * it mates. A pawn attack always names the column of its source, e.g. exd5.
+ */
+public final class Notation {
+
+    private static final PieceTypes[] BY_LETTER = new PieceTypes[128];
+
+    static {
+        for (PieceTypes type : PieceTypes.values()) {
+            if (type != PieceTypes.PAWN) {
+                BY_LETTER[type.toString().charAt(0)] = type;
+            }
+        }
+    }
+
+    private Notation() {
+    }
+
+    /**
+     * Append a location to a builder
+     *
+     * @param location a location
+     * @param builder  the builder
+     */
+    public static void appendSquare(Point location, StringBuilder builder) {
+        builder.append((char) ('a' + location.x)).append(location.y + 1);
+    }
+
+    /**
+     * @param board  the board, in the position before op; it is restored before returning
+     * @param op     a legal operation
+     * @param player the player from which op executes
+     * @return the notation of op
+     */
+    public static String toSan(Board board, Board.Operation op, Player player) {
+        final StringBuilder builder = new StringBuilder(8);
+        appendSan(board, op, player, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Append the notation of an operation to a builder. The operation is applied and reversed on the board to find out
+     * whether it checks or mates.
+     *
+     * @param board   the board, in the position before op; it is restored before returning
+     * @param op      a legal operation
+     * @param player  the player from which op executes
+     * @param builder the builder
+     */
+    public static void appendSan(Board board, Board.Operation op, Player player, StringBuilder builder) {
+        final Piece piece = board.get(op.FROM);
+        final boolean isAttack = board.get(op.TO) != null;
+        final boolean isPawn = piece.TYPE == PieceTypes.PAWN;
+        if (!isPawn) {
+            builder.append(piece.TYPE.toString().charAt(0));
+        }
+        boolean file = isPawn && isAttack, rank = false;
+        boolean sameFile = false, sameRank = false, ambiguous = false;
+        final List<Piece> pieces = player.pieceList();
+        for (int i = 0; i < pieces.size(); i++) {
+            final Piece other = pieces.get(i);
+            if (other.isCaptured() || other == piece || other.TYPE != piece.TYPE
+                    || file && other.getLocation().x != op.FROM.x) {
+                continue;
+            }
+            if (board.isLegal(board.decode(board.coord(other.getLocation()) * board.size() + board.coord(op.TO)), player)) {
+                ambiguous = true;
+                sameFile |= other.getLocation().x == op.FROM.x;
+                sameRank |= other.getLocation().y == op.FROM.y;
+            }
+        }
+        if (ambiguous) {
+            if (!file && !sameFile) {
+                file = true;
+            } else if (!sameRank) {
+                rank = true;
+            } else {
+                file = rank = true;
+            }
+        }
+        if (file) {
+            builder.append((char) ('a' + op.FROM.x));
+        }
+        if (rank) {
+            builder.append(op.FROM.y + 1);
+        }
+        if (isAttack) {
+            builder.append('x');
+        }
+        appendSquare(op.TO, builder);
+        // not through execute, which would report the operation to the HistoryListeners of the board
+        final Player other = board.theOther(player);
+        player.increment();
+        op.accept(board);
+        if (board.inCheck(other)) {
+            builder.append(board.generateMoves(other).findAny().isPresent() ? '+' : '#');
+        }
+        op.reverse(board);
+        player.decrement();
+    }
+
+    /**
+     * Parse the notation of an operation of a player. Trailing check, mate and annotation marks are ignored.
+     *
+     * @param board  the board
+     * @param player the player to move
+     * @param san    the notation
+     * @return the legal operation of player in this notation
+     * @throws IllegalArgumentException if san is malformed, or matches no legal operation or more than one
+     */
+    public static Board.Operation parseSan(Board board, Player player, CharSequence san) {
+        return parseSan(board, player, san, 0, san.length());
+    }
+
+    /**
+     * Parse the notation of an operation of a player from a range of characters
+     *
+     * @param board  the board
+     * @param player the player to move
+     * @param san    the text
+     * @param start  the index of the first character of the notation
+     * @param end    the index after the last character of the notation
+     * @return the legal operation of player in this notation
+     * @throws IllegalArgumentException if the range is malformed, or matches no legal operation or more than one
+     */
+    public static Board.Operation parseSan(Board board, Player player, CharSequence san, int start, int end) {
+        int last = end;
+        while (last > start && "+#!?".indexOf(san.charAt(last - 1)) >= 0) {
+            last--;
+        }
+        int index = start;
+        PieceType type = PieceTypes.PAWN;
+        if (index < last && san.charAt(index) < 128 && BY_LETTER[san.charAt(index)] != null) {
+            type = BY_LETTER[san.charAt(index++)];
+        }
+        // the destination is the last column letter and the row number after it
+        int rankStart = last;
+        while (rankStart > index && Character.isDigit(san.charAt(rankStart - 1))) {
+            rankStart--;
+        }
+        final int fileIndex = rankStart - 1;
+        if (rankStart == last || fileIndex < index || !isFile(san.charAt(fileIndex)) || last - rankStart > 9) {
+            throw error(san, start, end, "No destination");
+        }
+        final Point to = new Point(san.charAt(fileIndex) - 'a', number(san, rankStart, last) - 1);
+        if (!board.inBound(to)) {
+            throw error(san, start, end, "Destination off the board");
+        }
+        int disambiguationEnd = fileIndex;
+        final boolean isAttack = disambiguationEnd > index && san.charAt(disambiguationEnd - 1) == 'x';
+        if (isAttack) {
+            disambiguationEnd--;
+        }
+        int fromX = -1, fromY = -1;
+        if (index < disambiguationEnd && isFile(san.charAt(index))) {
+            fromX = san.charAt(index++) - 'a';
+        }
+        if (index < disambiguationEnd) {
+            for (int i = index; i < disambiguationEnd; i++) {
+                if (!Character.isDigit(san.charAt(i)) || i - index >= 9) {
+                    throw error(san, start, end, "Malformed source");
+                }
+            }
+            fromY = number(san, index, disambiguationEnd) - 1;
+        }
+        final Piece target = board.get(to);
+        if (isAttack != (target != null)) {
+            throw error(san, start, end, isAttack ? "Nothing to attack" : "Destination occupied");
+        }
+        Board.Operation found = null;
+        final List<Piece> pieces = player.pieceList();
+        for (int i = 0; i < pieces.size(); i++) {
+            final Piece piece = pieces.get(i);
+            if (piece.isCaptured()) {
+                continue;
+            }
+            final Point from = piece.getLocation();
+            if (piece.TYPE != type || fromX != -1 && from.x != fromX || fromY != -1 && from.y != fromY) {
+                continue;
+            }
+            final Board.Operation op = isAttack ? Board.Operation.attack(from, to) : Board.Operation.move(from, to);
+            if (board.isLegal(op, player)) {
+                if (found != null) {
+                    throw error(san, start, end, "Ambiguous operation");
+                }
+                found = op;
+            }
+        }
+        if (found == null) {
+            throw error(san, start, end, "Illegal operation");
+        }
+        return found;
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static int number(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    private static IllegalArgumentException error(CharSequence san, int start, int end, String message) {
+        return new IllegalArgumentException(message + ": " + san.subSequence(start, end));
+    }
+}
@@ -0,0 +1,129 @@
+package models;
+
+import util.Pair;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A game read from a PGN file, see PgnReader: its tags, the notation of its operations, see Notation, and its result.
+ * The operations are not checked until the game is replayed.
+ */
+public final class PgnGame {
+
+    /**
+     * the tag holding the starting position in PositionFormat, when it is not the default board
+     */
+    public static final String POSITION_TAG = "FEN";
+    /**
+     * the result of a game that has not ended
+     */
+    public static final String UNKNOWN = "*";
+
+    private final Map<String, String> tags;
+    private final List<String> moves;
+    private final String result;
+
+    /**
+     * Construct a game
+     *
+     * @param tags   the tags, in the order of the file
+     * @param moves  the notation of the operations
+     * @param result the result, 1-0, 0-1, 1/2-1/2 or *
+     */
+    public PgnGame(Map<String, String> tags, List<String> moves, String result) {
+        this.tags = tags;
+        this.moves = moves;
+        this.result = result;
+    }
+
+    /**
+     * @return the tags, in the order of the file
+     */
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * @param name the name of a tag
+     * @return its value, null if the game has no such tag
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * @return the notation of the operations, in the order they are played
+     */
+    public List<String> getMoves() {
+        return Collections.unmodifiableList(moves);
+    }
+
+    /**
+     * @return the result, 1-0, 0-1, 1/2-1/2 or *
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * @return whether the game starts from the default board
+     */
+    public boolean hasDefaultStart() {
+        return !tags.containsKey(POSITION_TAG);
+    }
+
+    /**
+     * @return a new board in the starting position of the game and the player to move first
+     * @throws IllegalArgumentException if the position tag is malformed
+     */
+    public Pair<Board, Player> start() {
+        if (hasDefaultStart()) {
+            final Board board = Board.defaultBoard(Player.black(), Player.white());
+            return Pair.of(board, board.WHITE);
+        }
+        return PositionFormat.parse(tags.get(POSITION_TAG));
+    }
+
+    /**
+     * Play the operations of the game on a new board in its starting position
+     *
+     * @return the board, whose history holds the operations
+     * @throws IllegalArgumentException if an operation is malformed or illegal
+     */
+    public Board replay() {
+        final Pair<Board, Player> start = start();
+        replay(start.first, start.second);
+        return start.first;
+    }
+
+    /**
+     * Play the operations of the game on a board in its starting position. If an operation is illegal, the operations
+     * before it are left executed.
+     *
+     * @param board the board
+     * @param first the player to move first
+     * @return the player to move after the last operation
+     * @throws IllegalArgumentException if an operation is malformed or illegal
+     */
+    public Player replay(Board board, Player first) {
+        Player player = first;
+        for (int ply = 0; ply < moves.size(); ply++) {
+            final Board.Operation op;
+            try {
+                op = Notation.parseSan(board, player, moves.get(ply));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Ply %d: %s", ply + 1, e.getMessage()), e);
+            }
+            board.execute(op, player);
+            player = board.theOther(player);
+        }
+        return player;
+    }
+
+    @Override
+    public String toString() {
+        return PgnWriter.write(this);
+    }
+}
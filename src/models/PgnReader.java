@@ -0,0 +1,273 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read the games of a PGN file lazily, one at a time. The file is mapped into memory a window at a time, so that the
+ * memory used does not depend on the size of the file. Comments, variations, numeric annotations and move numbers are
+ * skipped; a game ends with its result, or at the tags of the next game or the end of the file if it has none. The
+ * operations are kept as text, see PgnGame.replay() and PgnValidator to check them.
+ */
+public final class PgnReader implements Iterator<PgnGame>, Closeable {
+
+    /**
+     * the size of the part of the file mapped at a time
+     */
+    static final long WINDOW = 1 << 26;
+
+    private final FileChannel channel;
+    private final long size;
+    private final StringBuilder token = new StringBuilder(16);
+    private MappedByteBuffer window;
+    private long windowEnd;
+    private int pushedBack = -1;
+    private PgnGame next;
+
+    /**
+     * Construct a reader of the games of a channel from its current position
+     *
+     * @param channel the channel, closed with this reader
+     * @throws IOException if the channel cannot be read
+     */
+    public PgnReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowEnd = channel.position();
+        this.window = map();
+    }
+
+    /**
+     * @param path a PGN file
+     * @return a reader of the games of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static PgnReader open(Path path) throws IOException {
+        return new PgnReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * @return a sequential stream of the remaining games, which closes this reader when it is closed
+     */
+    public Stream<PgnGame> stream() {
+        final Spliterator<PgnGame> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * @throws UncheckedIOException     if the file cannot be read
+     * @throws IllegalArgumentException if a tag is malformed
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readGame();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public PgnGame next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final PgnGame ret = next;
+        next = null;
+        return ret;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer map() throws IOException {
+        final long start = windowEnd;
+        windowEnd = Math.min(size, start + WINDOW);
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, windowEnd - start);
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -1) {
+            final int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        if (!window.hasRemaining()) {
+            if (windowEnd == size) {
+                return -1;
+            }
+            window = map();
+        }
+        return window.get() & 0xFF;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    private PgnGame readGame() throws IOException {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        final List<String> moves = new ArrayList<>(96);
+        int c;
+        while ((c = read()) != -1) {
+            if (c <= ' ') {
+                continue;
+            }
+            switch (c) {
+                case '[':
+                    if (!moves.isEmpty()) {
+                        unread(c);
+                        return new PgnGame(tags, moves, PgnGame.UNKNOWN);
+                    }
+                    readTag(tags);
+                    break;
+                case '{':
+                    skipUntil('}');
+                    break;
+                case ';':
+                case '%':
+                    skipUntil('\n');
+                    break;
+                case '(':
+                    skipVariation();
+                    break;
+                case '$':
+                    readToken(c);
+                    break;
+                default:
+                    readToken(c);
+                    final String result = result();
+                    if (result != null) {
+                        return new PgnGame(tags, moves, result);
+                    }
+                    final int move = moveStart();
+                    if (move < token.length()) {
+                        moves.add(token.substring(move));
+                    }
+            }
+        }
+        return tags.isEmpty() && moves.isEmpty() ? null : new PgnGame(tags, moves, PgnGame.UNKNOWN);
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException {
+        int c = read();
+        token.setLength(0);
+        while (c > ' ' && c != '"' && c != ']') {
+            token.append((char) c);
+            c = read();
+        }
+        final String name = token.toString();
+        while (c != -1 && c <= ' ') {
+            c = read();
+        }
+        if (c != '"') {
+            throw new IllegalArgumentException("Malformed tag " + name);
+        }
+        token.setLength(0);
+        while ((c = read()) != '"') {
+            if (c == '\\') {
+                c = read();
+            }
+            if (c == -1 || c == '\n') {
+                throw new IllegalArgumentException("Unterminated tag " + name);
+            }
+            token.append((char) c);
+        }
+        skipUntil(']');
+        tags.put(name, token.toString());
+    }
+
+    private void readToken(int first) throws IOException {
+        token.setLength(0);
+        int c = first;
+        do {
+            token.append((char) c);
+            c = read();
+        } while (c > ' ' && "{}();[$".indexOf(c) < 0);
+        unread(c);
+    }
+
+    private void skipUntil(int end) throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != end && c != -1);
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 1, c;
+        while (depth > 0 && (c = read()) != -1) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';') {
+                skipUntil('\n');
+            }
+        }
+    }
+
+    /**
+     * @return the result the token is, null if it is not one
+     */
+    private String result() {
+        final int length = token.length();
+        if (length == 1 && token.charAt(0) == '*') {
+            return PgnGame.UNKNOWN;
+        }
+        if (length == 3 && token.charAt(1) == '-') {
+            if (token.charAt(0) == '1' && token.charAt(2) == '0') {
+                return "1-0";
+            }
+            if (token.charAt(0) == '0' && token.charAt(2) == '1') {
+                return "0-1";
+            }
+        }
+        return length == 7 && "1/2-1/2".contentEquals(token) ? "1/2-1/2" : null;
+    }
+
+    /**
+     * @return the index of the token after its move number, e.g. 3 for 12.e4, or its length if it is a move number
+     */
+    private int moveStart() {
+        int i = 0;
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i == token.length() || token.charAt(i) != '.') {
+            return i == token.length() ? i : 0;
+        }
+        while (i < token.length() && token.charAt(i) == '.') {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,202 @@
+package models;
+
+import util.Pair;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Check the operations of games, e.g. those of a PgnReader, by replaying them on threads. Each thread keeps one board
+ * in the default position, which it restores by undoing the operations of a game, and sets up a board only for the games
+ * with another starting position. The games are handed over in batches through a bounded queue, so that at most a few
+ * batches per thread are in memory whatever the number of games.
+ */
+public final class PgnValidator {
+
+    private static final List<PgnGame> END = new ArrayList<>();
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batch = 64;
+
+    /**
+     * @param threads the number of threads replaying games
+     * @return this instance
+     */
+    public PgnValidator threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * @param batch the number of games handed over to a thread at a time
+     * @return this instance
+     */
+    public PgnValidator batch(int batch) {
+        this.batch = Math.max(1, batch);
+        return this;
+    }
+
+    /**
+     * Replay every game. The games are read on the calling thread.
+     *
+     * @param games     the games
+     * @param onInvalid called, possibly from several threads at once, with each game that has a malformed starting
+     *                  position or an illegal operation and the reason
+     * @return the numbers of games, invalid games and plies of valid games
+     */
+    public Summary validate(Iterator<PgnGame> games, BiConsumer<PgnGame, IllegalArgumentException> onInvalid) {
+        if (threads == 1) {
+            final Worker worker = new Worker(null, onInvalid);
+            while (games.hasNext()) {
+                worker.validate(games.next());
+            }
+            return new Summary(worker.games, worker.invalid, worker.plies);
+        }
+        final BlockingQueue<List<PgnGame>> queue = new ArrayBlockingQueue<>(2 * threads);
+        final List<Worker> workers = new ArrayList<>(threads);
+        final List<Thread> running = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            final Worker worker = new Worker(queue, onInvalid);
+            final Thread thread = new Thread(worker, "pgn-validator-" + i);
+            workers.add(worker);
+            running.add(thread);
+            thread.start();
+        }
+        try {
+            List<PgnGame> pending = new ArrayList<>(batch);
+            while (games.hasNext()) {
+                pending.add(games.next());
+                if (pending.size() == batch) {
+                    queue.put(pending);
+                    pending = new ArrayList<>(batch);
+                }
+            }
+            if (!pending.isEmpty()) {
+                queue.put(pending);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            boolean interrupted = Thread.interrupted();
+            for (int i = 0; i < running.size(); ) {
+                try {
+                    queue.put(END);
+                    i++;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            for (int i = 0; i < running.size(); ) {
+                try {
+                    running.get(i).join();
+                    i++;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long total = 0, invalid = 0, plies = 0;
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw worker.failure;
+            }
+            total += worker.games;
+            invalid += worker.invalid;
+            plies += worker.plies;
+        }
+        return new Summary(total, invalid, plies);
+    }
+
+    /**
+     * The outcome of PgnValidator.validate(Iterator, BiConsumer)
+     */
+    public static final class Summary {
+        public final long GAMES;
+        public final long INVALID;
+        public final long PLIES;
+
+        Summary(long games, long invalid, long plies) {
+            GAMES = games;
+            INVALID = invalid;
+            PLIES = plies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, %d invalid, %d plies", GAMES, INVALID, PLIES);
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        private final BlockingQueue<List<PgnGame>> queue;
+        private final BiConsumer<PgnGame, IllegalArgumentException> onInvalid;
+        private final Board board = Board.defaultBoard(Player.black(), Player.white());
+        private long games, invalid, plies;
+        private RuntimeException failure;
+
+        Worker(BlockingQueue<List<PgnGame>> queue, BiConsumer<PgnGame, IllegalArgumentException> onInvalid) {
+            this.queue = queue;
+            this.onInvalid = onInvalid;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<PgnGame> games;
+                while ((games = queue.take()) != END) {
+                    // after a failure, keep draining so that the reading thread is never blocked
+                    if (failure == null) {
+                        try {
+                            games.forEach(this::validate);
+                        } catch (RuntimeException e) {
+                            failure = e;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void validate(PgnGame game) {
+            games++;
+            final Board start;
+            final Player first;
+            if (game.hasDefaultStart()) {
+                start = board;
+                first = board.WHITE;
+            } else {
+                final Pair<Board, Player> setUp;
+                try {
+                    setUp = game.start();
+                } catch (IllegalArgumentException e) {
+                    invalid++;
+                    onInvalid.accept(game, e);
+                    return;
+                }
+                start = setUp.first;
+                first = setUp.second;
+            }
+            try {
+                game.replay(start, first);
+                plies += game.getMoves().size();
+            } catch (IllegalArgumentException e) {
+                invalid++;
+                onInvalid.accept(game, e);
+            } finally {
+                if (start == board) {
+                    while (!board.getHistory().isEmpty()) {
+                        board.undo();
+                    }
+                }
+            }
+        }
+    }
+}
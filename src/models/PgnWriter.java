@@ -0,0 +1,152 @@
+package models;
+
+import util.Pair;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write games in PGN. The seven standard tags come first, with "?" for unknown values, followed by the other tags and
+ * the operations in the notation of Notation, wrapped at 80 columns. A game that does not start from the default board
+ * has the tags SetUp "1" and FEN holding its starting position in PositionFormat.
+ */
+public final class PgnWriter {
+
+    private static final String[] ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final int LINE_WIDTH = 80;
+
+    private PgnWriter() {
+    }
+
+    /**
+     * Build the game played on a board. Its result is the one of the tags if any, otherwise it is decided by the last
+     * position: a win if the player to move is mated, a draw if it has no operation, and * otherwise.
+     *
+     * @param board a board; it is not modified
+     * @param tags  the tags of the game, e.g. Event or White
+     * @return the game
+     */
+    public static PgnGame toGame(Board board, Map<String, String> tags) {
+        final List<Pair<Board.Operation, Player>> history = board.getHistory();
+        final Board start = board.initialPosition();
+        final Player first = history.isEmpty() || history.get(0).second == board.WHITE ? start.WHITE : start.BLACK;
+        final Map<String, String> allTags = new LinkedHashMap<>();
+        final String position = PositionFormat.write(start, first);
+        if (!position.equals(PositionFormat.INITIAL)) {
+            allTags.put("SetUp", "1");
+            allTags.put(PgnGame.POSITION_TAG, position);
+        }
+        final List<String> moves = new ArrayList<>(history.size());
+        final StringBuilder builder = new StringBuilder(8);
+        Player player = first;
+        for (Pair<Board.Operation, Player> entry : history) {
+            builder.setLength(0);
+            final Board.Operation op = start.decode(board.encode(entry.first));
+            Notation.appendSan(start, op, player, builder);
+            moves.add(builder.toString());
+            start.execute(op, player);
+            player = start.theOther(player);
+        }
+        String result = tags.get("Result");
+        if (result == null) {
+            result = PgnGame.UNKNOWN;
+            if (!start.generateMoves(player).findAny().isPresent()) {
+                result = !start.inCheck(player) ? "1/2-1/2" : player == start.WHITE ? "0-1" : "1-0";
+            }
+        }
+        allTags.putAll(tags);
+        return new PgnGame(allTags, moves, result);
+    }
+
+    /**
+     * @param board a board; it is not modified
+     * @param tags  the tags of the game, e.g. Event or White
+     * @return the game played on board in PGN, see toGame(Board, Map)
+     */
+    public static String write(Board board, Map<String, String> tags) {
+        return write(toGame(board, tags));
+    }
+
+    /**
+     * @param game a game
+     * @return the game in PGN
+     */
+    public static String write(PgnGame game) {
+        final StringBuilder builder = new StringBuilder(64 + 8 * game.getMoves().size());
+        write(game, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Append a game in PGN to a builder, followed by an empty line
+     *
+     * @param game    a game
+     * @param builder the builder
+     */
+    public static void write(PgnGame game, StringBuilder builder) {
+        final Map<String, String> tags = game.getTags();
+        for (String name : ROSTER) {
+            final String value = name.equals("Result") ? game.getResult() : tags.get(name);
+            appendTag(name, value == null ? name.equals("Date") ? "????.??.??" : "?" : value, builder);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isRoster(tag.getKey())) {
+                appendTag(tag.getKey(), tag.getValue(), builder);
+            }
+        }
+        builder.append('\n');
+        final String position = tags.get(PgnGame.POSITION_TAG);
+        boolean white = position == null || position.contains(" w ");
+        int number = 1;
+        int lineStart = builder.length();
+        final List<String> moves = game.getMoves();
+        for (int ply = 0; ply <= moves.size(); ply++) {
+            final int tokenStart = builder.length();
+            if (tokenStart > lineStart) {
+                builder.append(' ');
+            }
+            if (ply == moves.size()) {
+                builder.append(game.getResult());
+            } else {
+                if (white) {
+                    builder.append(number).append(". ");
+                } else if (ply == 0) {
+                    builder.append(number).append("... ");
+                }
+                builder.append(moves.get(ply));
+                if (!white) {
+                    number++;
+                }
+                white = !white;
+            }
+            if (builder.length() - lineStart > LINE_WIDTH && tokenStart > lineStart) {
+                builder.setCharAt(tokenStart, '\n');
+                lineStart = tokenStart + 1;
+            }
+        }
+        builder.append("\n\n");
+    }
+
+    private static boolean isRoster(String name) {
+        for (String roster : ROSTER) {
+            if (roster.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendTag(String name, String value, StringBuilder builder) {
+        builder.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        builder.append("\"]\n");
+    }
+}
@@ -42,6 +42,14 @@ public class Piece {
         PLAYER.registerPiece(this);
     }
 
+    /**
+     * Construct a piece that has already been operated nOps times, see getNumOperations()
+     */
+    Piece(PieceType TYPE, Player PLAYER, Point location, int nOps) {
+        this(TYPE, PLAYER, location);
+        this.nOps = nOps;
+    }
+
     /**
      * Return the current location of this piece
      *
@@ -36,17 +36,67 @@ public interface PieceType {
      * @return all available moves if checkChecks is false, otherwise, excluding those that could put the player of self in check
      */
     default Stream<Board.Operation> generateMoves(Board board, Point currLoc, Piece self, boolean checkChecks) {
-        final Predicate<Board.Operation> checkFilter = checkChecks ? op -> {
-            op.accept(board);
-            Player enemy = board.theOther(self.PLAYER);
-            boolean underCheck = board.generateMoves(enemy, false)
-                    .anyMatch(o -> o.getClass() == Board.Operation.Attack.class && self.PLAYER.getKing().getLocation().equals(o.TO));
-            op.reverse(board);
-            return !underCheck;
-        } : op -> true;
+        final Predicate<Board.Operation> checkFilter = checkChecks ? op -> !board.leavesInCheck(op, self.PLAYER) : op -> true;
         return getMovementRules().flatMap(movementRule -> movementRule.generateMoves(board, currLoc, self)).distinct().filter(checkFilter);
     }
 
+    /**
+     * Generate the attacks of a piece only, skipping the rules that disallow attacking
+     *
+     * @param board       the board self is on
+     * @param currLoc     the current location of the piece
+     * @param self        the piece itself
+     * @param checkChecks whether or not to check check conditions
+     * @return all available attacks if checkChecks is false, otherwise, excluding those that could put the player of self in check
+     */
+    default Stream<Board.Operation> generateAttacks(Board board, Point currLoc, Piece self, boolean checkChecks) {
+        final Stream<Board.Operation> attacks = getMovementRules()
+                .flatMap(movementRule -> movementRule.generateAttacks(board, currLoc, self)).distinct();
+        return checkChecks ? attacks.filter(op -> !board.leavesInCheck(op, self.PLAYER)) : attacks;
+    }
+
+    /**
+     * Generate the moves of a piece that do not capture only, skipping the rules that only allow attacking
+     *
+     * @param board       the board self is on
+     * @param currLoc     the current location of the piece
+     * @param self        the piece itself
+     * @param checkChecks whether or not to check check conditions
+     * @return all available quiet moves if checkChecks is false, otherwise, excluding those that could put the player of self in check
+     */
+    default Stream<Board.Operation> generateQuiets(Board board, Point currLoc, Piece self, boolean checkChecks) {
+        final Stream<Board.Operation> quiets = getMovementRules()
+                .flatMap(movementRule -> movementRule.generateQuiets(board, currLoc, self)).distinct();
+        return checkChecks ? quiets.filter(op -> !board.leavesInCheck(op, self.PLAYER)) : quiets;
+    }
+
+    /**
+     * Check whether any MovementRule of this type allows a piece to move or attack from currLoc to target,
+     * ignoring check conditions
+     *
+     * @param board   the board self is on
+     * @param currLoc the current location of the piece
+     * @param self    the piece itself
+     * @param target  the destination
+     * @return true if one of the rules would generate an operation from currLoc to target
+     */
+    default boolean canReach(Board board, Point currLoc, Piece self, Point target) {
+        return getMovementRules().anyMatch(movementRule -> movementRule.permits(board, currLoc, self, target));
+    }
+
+    /**
+     * Check whether any MovementRule of this type allows a piece to attack an enemy piece standing at target
+     *
+     * @param board   the board self is on
+     * @param currLoc the current location of the piece
+     * @param self    the piece itself
+     * @param target  a location, either empty or occupied by an enemy of self
+     * @return true if one of the rules would generate an attack from currLoc to an enemy piece at target
+     */
+    default boolean canAttack(Board board, Point currLoc, Piece self, Point target) {
+        return getMovementRules().anyMatch(movementRule -> movementRule.attacks(board, currLoc, self, target));
+    }
+
     /**
      * @return a stream of MovementRules
      */
@@ -136,6 +186,150 @@ public interface PieceType {
             }).distinct();
         }
 
+        /**
+         * The capture-only counterpart of generateMoves(Board, Point, Piece). Rules that disallow attacking generate
+         * nothing, and empty locations along the path are passed over without creating any operation.
+         *
+         * @param board   the board self is on
+         * @param currLoc the location of self
+         * @param self    the piece itself
+         * @return all available attacks this rule can generate for a piece ignoring check conditions
+         */
+        public Stream<Board.Operation> generateAttacks(Board board, Point currLoc, Piece self) {
+            if (MODE == Mode.MOVE_ONLY || !PRECONDITION.test(board, currLoc, self)) {
+                return Stream.empty();
+            }
+            final Point unit_vec = self.PLAYER.apply(UNIT_VEC);
+            final Stream.Builder<Board.Operation> attacks = Stream.builder();
+            for (int i = 1; MAX_MOVES == -1 || i <= MAX_MOVES; i++) {
+                final Point loc = Vector2D.add(currLoc, Vector2D.scalarMult(unit_vec, i));
+                if (!board.inBound(loc)) {
+                    break;
+                }
+                final Piece res = board.get(loc);
+                if (res == null) {
+                    continue;
+                }
+                if (res.PLAYER != self.PLAYER) {
+                    attacks.add(Board.Operation.attack(currLoc, loc));
+                }
+                if (!SKIPPING) {
+                    break;
+                }
+            }
+            return attacks.build();
+        }
+
+        /**
+         * The quiet counterpart of generateAttacks(Board, Point, Piece). Rules that only allow attacking generate
+         * nothing, and the path stops at the first occupied location without creating any operation.
+         *
+         * @param board   the board self is on
+         * @param currLoc the location of self
+         * @param self    the piece itself
+         * @return all available moves to empty locations this rule can generate for a piece ignoring check conditions
+         */
+        public Stream<Board.Operation> generateQuiets(Board board, Point currLoc, Piece self) {
+            if (MODE == Mode.ATTACK_ONLY || !PRECONDITION.test(board, currLoc, self)) {
+                return Stream.empty();
+            }
+            final Point unit_vec = self.PLAYER.apply(UNIT_VEC);
+            final Stream.Builder<Board.Operation> moves = Stream.builder();
+            for (int i = 1; MAX_MOVES == -1 || i <= MAX_MOVES; i++) {
+                final Point loc = Vector2D.add(currLoc, Vector2D.scalarMult(unit_vec, i));
+                if (!board.inBound(loc)) {
+                    break;
+                }
+                if (board.get(loc) == null) {
+                    moves.add(Board.Operation.move(currLoc, loc));
+                } else if (!SKIPPING) {
+                    break;
+                }
+            }
+            return moves.build();
+        }
+
+        /**
+         * Check whether this rule alone would generate an operation from currLoc to target, without generating any
+         * other operation. This is the single-vector counterpart of generateMoves(Board, Point, Piece).
+         *
+         * @param board   the board self is on
+         * @param currLoc the location of self
+         * @param self    the piece itself
+         * @param target  the destination
+         * @return true if generateMoves(board, currLoc, self) would contain a move or an attack to target
+         */
+        public boolean permits(Board board, Point currLoc, Piece self, Point target) {
+            if (!reaches(board, currLoc, self, target)) {
+                return false;
+            }
+            final Piece res = board.get(target);
+            if (res == null) {
+                return MODE != Mode.ATTACK_ONLY;
+            } else if (res.PLAYER != self.PLAYER) {
+                return MODE != Mode.MOVE_ONLY;
+            } else {
+                return false;
+            }
+        }
+
+        /**
+         * Check whether this rule would allow self to attack an enemy piece standing at target
+         *
+         * @param board   the board self is on
+         * @param currLoc the location of self
+         * @param self    the piece itself
+         * @param target  a location, either empty or occupied by an enemy of self
+         * @return true if an enemy piece at target could be attacked under this rule
+         */
+        public boolean attacks(Board board, Point currLoc, Piece self, Point target) {
+            if (MODE == Mode.MOVE_ONLY || !reaches(board, currLoc, self, target)) {
+                return false;
+            }
+            final Piece res = board.get(target);
+            return res == null || res.PLAYER != self.PLAYER;
+        }
+
+        /**
+         * @return true if the rule is active and target lies on its path within MAX_MOVES, with no blocker in between
+         * unless skipping is allowed
+         */
+        private boolean reaches(Board board, Point currLoc, Piece self, Point target) {
+            final int dx = target.x - currLoc.x, dy = target.y - currLoc.y;
+            // players at most flip the signs of UNIT_VEC, so most targets are rejected before applying the player
+            if (!aligned(UNIT_VEC.x, dx) || !aligned(UNIT_VEC.y, dy) || !board.inBound(target)) {
+                return false;
+            }
+            final Point unit_vec = self.PLAYER.apply(UNIT_VEC);
+            final int steps = steps(unit_vec, dx, dy);
+            if (steps < 1 || (MAX_MOVES != -1 && steps > MAX_MOVES) || !PRECONDITION.test(board, currLoc, self)) {
+                return false;
+            }
+            if (!SKIPPING) {
+                for (int i = 1; i < steps; i++) {
+                    if (board.get(currLoc.x + unit_vec.x * i, currLoc.y + unit_vec.y * i) != null) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean aligned(int unit, int delta) {
+            return unit == 0 ? delta == 0 : delta != 0 && delta % unit == 0;
+        }
+
+        /**
+         * @return the number of unit_vec needed to cover (dx, dy), or -1 if (dx, dy) is not a positive multiple of unit_vec
+         */
+        private static int steps(Point unit_vec, int dx, int dy) {
+            if (unit_vec.x == 0 && unit_vec.y == 0) {
+                return -1;
+            }
+            final int k = unit_vec.x != 0 ? dx / unit_vec.x : dy / unit_vec.y;
+            return k >= 1 && unit_vec.x * k == dx && unit_vec.y * k == dy ? k : -1;
+        }
+
         /**
          * Specify whether a piece is allow to attack or move in a particular MovementRule
          */
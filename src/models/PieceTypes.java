@@ -2,6 +2,7 @@ package models;
 
 import util.Array;
 
+import java.awt.*;
 import java.util.stream.Stream;
 
 import static util.Shorthand.pt;
@@ -155,6 +156,34 @@ public enum PieceTypes implements PieceType {
         this.moves = new Array<>(rules.toArray(MovementRule[]::new));
     }
 
+    /**
+     * Same as PieceType.canReach, looping over the rules rather than streaming them, since it is called for every
+     * operation replayed or checked for legality
+     */
+    @Override
+    public boolean canReach(Board board, Point currLoc, Piece self, Point target) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (moves.get(i).permits(board, currLoc, self, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as PieceType.canAttack, looping over the rules rather than streaming them, since it is called for every
+     * piece by every test for check
+     */
+    @Override
+    public boolean canAttack(Board board, Point currLoc, Piece self, Point target) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (moves.get(i).attacks(board, currLoc, self, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * @return a stream of MovementRules this type of piece
      */
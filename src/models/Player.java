@@ -57,6 +57,25 @@ public abstract class Player implements UnaryOperator<Point> {
         return Objects.hash(ID);
     }
 
+    /**
+     * Create a player of the same colour, ID and turnCount, with no piece. Pieces register themselves to it when
+     * constructed, see registerPiece(Piece).
+     *
+     * @return the copy
+     */
+    public Player copy() {
+        final Player ret = this instanceof Black ? new Black(ID) : new White(ID);
+        ret.turnCount = turnCount;
+        return ret;
+    }
+
+    /**
+     * Set the turnCount of this player, used when a position is set up, see PositionFormat
+     */
+    void setTurnCount(int turnCount) {
+        this.turnCount = turnCount;
+    }
+
     /**
      * Increment the turnCount for this player
      */
@@ -64,6 +83,13 @@ public abstract class Player implements UnaryOperator<Point> {
         turnCount++;
     }
 
+    /**
+     * Decrement the turnCount for this player, used when an operation is undone
+     */
+    public void decrement() {
+        turnCount--;
+    }
+
     /**
      * @return the turnCount for this player
      */
@@ -93,6 +119,13 @@ public abstract class Player implements UnaryOperator<Point> {
         return pieces.stream().filter(piece -> includesCaptured || !piece.isCaptured());
     }
 
+    /**
+     * @return the pieces of this player, including those that have been captured, without streaming them
+     */
+    List<Piece> pieceList() {
+        return pieces;
+    }
+
     /**
      * Register a piece under a player. Note that this method is automatically called in the constructor of Piece, so user should not call this method.
      *
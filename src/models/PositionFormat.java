@@ -0,0 +1,223 @@
+package models;
+
+import util.Pair;
+
+import java.awt.*;
+
+/**
+ * A compact textual format of positions, in the spirit of FEN but covering any board size and the variant pieces:
+ * <pre>
+ * 8x8 rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w 1 1
+ * </pre>
+ * The fields are separated by single spaces:
+ * <ol>
+ * <li>the number of columns and of rows</li>
+ * <li>the rows from the top (the last row) to the bottom, separated by '/'. A piece is the letter of its PieceTypes,
+ * upper case for white and lower case for black, followed by '*' if it has moved; a number stands for as many empty
+ * locations</li>
+ * <li>the player to move, w or b</li>
+ * <li>the turn counts of white and black, see Player.getTurnCount()</li>
+ * </ol>
+ * The parser reads the characters in place without splitting or copying the text, and the writer appends to a
+ * StringBuilder, so that large suites of positions can be processed quickly.
+ */
+public final class PositionFormat {
+
+    /**
+     * the default board of Board.defaultBoard(Player, Player), white to move
+     */
+    public static final String INITIAL = "8x8 rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w 1 1";
+
+    private static final PieceTypes[] BY_LETTER = new PieceTypes[128];
+    private static final char MOVED = '*';
+
+    static {
+        for (PieceTypes type : PieceTypes.values()) {
+            BY_LETTER[type.toString().charAt(0)] = type;
+        }
+    }
+
+    private PositionFormat() {
+    }
+
+    /**
+     * Parse a position
+     *
+     * @param text the position
+     * @return the board and the player to move
+     * @throws IllegalArgumentException if text is not a valid position
+     */
+    public static Pair<Board, Player> parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parse a position from a range of characters, e.g. a line of a larger text
+     *
+     * @param text  the text
+     * @param start the index of the first character of the position
+     * @param end   the index after the last character of the position
+     * @return the board and the player to move
+     * @throws IllegalArgumentException if the range is not a valid position
+     */
+    public static Pair<Board, Player> parse(CharSequence text, int start, int end) {
+        final Cursor cursor = new Cursor(text, start, end);
+        final int cols = cursor.number();
+        cursor.expect('x');
+        final int rows = cursor.number();
+        cursor.expect(' ');
+        if (cols <= 0 || rows <= 0) {
+            throw cursor.error("Empty board");
+        }
+        final Board board = new Board(cols, rows, Player.black(), Player.white());
+        for (int y = rows - 1; y >= 0; y--) {
+            int x = 0;
+            while (x < cols) {
+                final char c = cursor.peek();
+                if (c >= '1' && c <= '9') {
+                    x += cursor.number();
+                    continue;
+                }
+                final PieceTypes type = c < 128 ? BY_LETTER[Character.toUpperCase(c)] : null;
+                if (type == null) {
+                    throw cursor.error("Unknown piece '" + c + "'");
+                }
+                cursor.next();
+                final Player player = Character.isUpperCase(c) ? board.WHITE : board.BLACK;
+                final boolean moved = cursor.has() && cursor.peek() == MOVED;
+                if (moved) {
+                    cursor.next();
+                }
+                final Point location = new Point(x, y);
+                board.set(board.coord(x, y), new Piece(type, player, location, moved ? 1 : 0));
+                x++;
+            }
+            if (x != cols) {
+                throw cursor.error(String.format("Row %d has %d columns, expected %d", y + 1, x, cols));
+            }
+            cursor.expect(y == 0 ? ' ' : '/');
+        }
+        final char side = cursor.next();
+        if (side != 'w' && side != 'b') {
+            throw cursor.error("Expected w or b, got '" + side + "'");
+        }
+        cursor.expect(' ');
+        board.WHITE.setTurnCount(cursor.number());
+        cursor.expect(' ');
+        board.BLACK.setTurnCount(cursor.number());
+        if (cursor.has()) {
+            throw cursor.error("Unexpected trailing characters");
+        }
+        return Pair.of(board, side == 'w' ? board.WHITE : board.BLACK);
+    }
+
+    /**
+     * @param board  a board whose pieces are all of PieceTypes
+     * @param toMove the player to move
+     * @return the position in this format
+     */
+    public static String write(Board board, Player toMove) {
+        final StringBuilder builder = new StringBuilder(board.size() + 16);
+        write(board, toMove, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Append a position to a builder
+     *
+     * @param board   a board whose pieces are all of PieceTypes
+     * @param toMove  the player to move
+     * @param builder the builder
+     * @throws IllegalArgumentException if a piece is not of one of PieceTypes
+     */
+    public static void write(Board board, Player toMove, StringBuilder builder) {
+        builder.append(board.N_COLS).append('x').append(board.N_ROWS).append(' ');
+        for (int y = board.N_ROWS - 1; y >= 0; y--) {
+            int empty = 0;
+            for (int x = 0; x < board.N_COLS; x++) {
+                final Piece piece = board.get(board.coord(x, y));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (!(piece.TYPE instanceof PieceTypes)) {
+                    throw new IllegalArgumentException("No letter for piece type " + piece.TYPE);
+                }
+                if (empty > 0) {
+                    builder.append(empty);
+                    empty = 0;
+                }
+                final char letter = piece.TYPE.toString().charAt(0);
+                builder.append(piece.PLAYER == board.WHITE ? letter : Character.toLowerCase(letter));
+                if (piece.getNumOperations() > 0) {
+                    builder.append(MOVED);
+                }
+            }
+            if (empty > 0) {
+                builder.append(empty);
+            }
+            builder.append(y == 0 ? ' ' : '/');
+        }
+        builder.append(toMove == board.WHITE ? 'w' : 'b').append(' ')
+                .append(board.WHITE.getTurnCount()).append(' ').append(board.BLACK.getTurnCount());
+    }
+
+    /**
+     * A position in the text being parsed
+     */
+    private static final class Cursor {
+        private final CharSequence text;
+        private final int start;
+        private final int end;
+        private int index;
+
+        Cursor(CharSequence text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.index = start;
+        }
+
+        boolean has() {
+            return index < end;
+        }
+
+        char peek() {
+            if (index >= end) {
+                throw error("Unexpected end of position");
+            }
+            return text.charAt(index);
+        }
+
+        char next() {
+            final char c = peek();
+            index++;
+            return c;
+        }
+
+        void expect(char expected) {
+            final char c = next();
+            if (c != expected) {
+                index--;
+                throw error("Expected '" + expected + "', got '" + c + "'");
+            }
+        }
+
+        int number() {
+            int value = 0, digits = 0;
+            while (index < end && text.charAt(index) >= '0' && text.charAt(index) <= '9') {
+                value = value * 10 + text.charAt(index++) - '0';
+                digits++;
+            }
+            if (digits == 0 || digits > 9) {
+                throw error("Expected a number");
+            }
+            return value;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(String.format("%s at column %d of \"%s\"", message, index - start,
+                    text.subSequence(start, end)));
+        }
+    }
+}
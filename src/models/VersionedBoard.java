@@ -0,0 +1,152 @@
+package models;
+
+import util.Pair;
+
+import java.util.Map;
+
+/**
+ * Consistent reads of a board from other threads while its game thread operates on it. Nothing in Board, Piece or
+ * Player is thread-safe, so after every operation executed or undone the game thread publishes an immutable Version of
+ * the position through a volatile field, copying the type, player and number of operations of each location. Readers
+ * such as analysis threads and spectators take the current version without any lock: the game thread never waits for
+ * them, and they never see a position in the middle of an operation.
+ * <p>
+ * The versions are numbered from 0, incremented by every operation executed or undone, so that the number of a version
+ * tells the readers whether the position changed since the version they hold.
+ */
+public final class VersionedBoard implements Board.HistoryListener {
+
+    private final Board board;
+    private volatile Version current;
+
+    /**
+     * Construct a versioned board and register it on a board. It must be constructed on the game thread, or before the
+     * board is shared.
+     *
+     * @param board  the board
+     * @param toMove the player to move
+     */
+    public VersionedBoard(Board board, Player toMove) {
+        this.board = board;
+        this.current = new Version(board, toMove == board.WHITE, 0);
+        board.addHistoryListener(this);
+    }
+
+    /**
+     * @return the latest version published, from any thread
+     */
+    public Version current() {
+        return current;
+    }
+
+    /**
+     * Stop publishing versions
+     */
+    public void close() {
+        board.removeHistoryListener(this);
+    }
+
+    @Override
+    public void executed(Board.Operation op, Player player) {
+        current = new Version(board, player != board.WHITE, current.VERSION + 1);
+    }
+
+    @Override
+    public void undone(Board.Operation op, Player player) {
+        current = new Version(board, player == board.WHITE, current.VERSION + 1);
+    }
+
+    /**
+     * An immutable copy of a position
+     */
+    public static final class Version {
+
+        public final long VERSION;
+        public final int N_COLS;
+        public final int N_ROWS;
+        public final boolean WHITE_TO_MOVE;
+        /**
+         * The Zobrist key of the position, see Board.getKey(Player)
+         */
+        public final long KEY;
+        private final String blackId;
+        private final String whiteId;
+        private final int blackTurnCount;
+        private final int whiteTurnCount;
+        private final PieceType[] types;
+        private final boolean[] whites;
+        private final int[] nOps;
+        private final Map<PieceType, String[]> pieceResourcePaths;
+
+        private Version(Board board, boolean whiteToMove, long version) {
+            VERSION = version;
+            N_COLS = board.N_COLS;
+            N_ROWS = board.N_ROWS;
+            WHITE_TO_MOVE = whiteToMove;
+            KEY = board.getKey(whiteToMove ? board.WHITE : board.BLACK);
+            blackId = board.BLACK.ID;
+            whiteId = board.WHITE.ID;
+            blackTurnCount = board.BLACK.getTurnCount();
+            whiteTurnCount = board.WHITE.getTurnCount();
+            pieceResourcePaths = board.pieceResourcePaths;
+            types = new PieceType[board.size()];
+            whites = new boolean[board.size()];
+            nOps = new int[board.size()];
+            for (int index = 0; index < types.length; index++) {
+                final Piece piece = board.get(index);
+                if (piece != null) {
+                    types[index] = piece.TYPE;
+                    whites[index] = piece.PLAYER == board.WHITE;
+                    nOps[index] = piece.getNumOperations();
+                }
+            }
+        }
+
+        /**
+         * @param index the index of a location, see Board.coord(Point)
+         * @return the type of the piece at the location, null if it is empty
+         */
+        public PieceType getType(int index) {
+            return types[index];
+        }
+
+        /**
+         * @param index the index of a location, see Board.coord(Point)
+         * @return whether the piece at the location is white, false if it is empty
+         */
+        public boolean isWhite(int index) {
+            return whites[index];
+        }
+
+        /**
+         * Construct a new board in this position, with new players and pieces, which the calling thread owns
+         *
+         * @return the board and the player to move
+         */
+        public Pair<Board, Player> toBoard() {
+            final Player black = Player.black(blackId), white = Player.white(whiteId);
+            black.setTurnCount(blackTurnCount);
+            white.setTurnCount(whiteTurnCount);
+            final Board ret = new Board(N_COLS, N_ROWS, black, white, pieceResourcePaths);
+            for (int index = 0; index < types.length; index++) {
+                if (types[index] != null) {
+                    ret.set(index, new Piece(types[index], whites[index] ? white : black, ret.point(index), nOps[index]));
+                }
+            }
+            return Pair.of(ret, WHITE_TO_MOVE ? white : black);
+        }
+
+        /**
+         * @return the position in PositionFormat
+         */
+        public String position() {
+            final Pair<Board, Player> position = toBoard();
+            return PositionFormat.write(position.first, position.second);
+        }
+
+        @Override
+        public String toString() {
+            return VERSION + " " + position();
+        }
+    }
+}
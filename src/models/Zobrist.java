@@ -0,0 +1,45 @@
+package models;
+
+/**
+ * Zobrist hashing of positions: a position is hashed as the exclusive or of one pseudo-random key per piece, where the key
+ * depends on the type, the colour and the location of the piece. Keys are computed by a mixing function rather than
+ * looked up in a table, so they exist for boards of any size and are stable across runs for the types in PieceTypes.
+ */
+public class Zobrist {
+
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /**
+     * the key of the side to move being white
+     */
+    public static final long WHITE_TO_MOVE = mix(SEED - 1);
+    /**
+     * the keys of the turn count of black and white being odd, see Player.getTurnCount()
+     */
+    public static final long[] ODD_TURN = {mix(SEED - 2), mix(SEED - 3)};
+
+    /**
+     * @param type  the type of a piece
+     * @param white whether the piece belongs to the white player
+     * @param index the 0-based index of its location, see Board.coord(int, int)
+     * @return the key of such a piece
+     */
+    public static long piece(PieceType type, boolean white, int index) {
+        final long id = (typeId(type) * 2L + (white ? 1 : 0)) << 24 | index;
+        return mix(SEED + id * GOLDEN);
+    }
+
+    private static long typeId(PieceType type) {
+        return type instanceof PieceTypes ? ((PieceTypes) type).ordinal() : 0x100L + (type.toString().hashCode() & 0xFFFFL);
+    }
+
+    /**
+     * The finalizer of SplitMix64
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,184 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import engine.BatchAnalyzer;
+import util.VirtualThreads;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A stateless HTTP service analysing batches of positions, on the HTTP server of the JDK bound to the loopback
+ * interface. Each exchange is handled on its own thread, a virtual one when the runtime has them, while the positions
+ * of all exchanges are analysed by one BatchAnalyzer, which bounds the work in progress and shares its cache.
+ * <p>
+ * POST /analyze?depth=n takes positions in PositionFormat, one per line, and answers one line per position in the same
+ * order: OK followed by the number of legal operations, the status of the player to move (- check mate or stalemate),
+ * the score from its point of view and the best operation, or ERR with the reason the position could not be analysed.
+ * The depth is 1 by default and at most MAX_DEPTH.
+ */
+public final class AnalysisServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7778;
+    public static final int MAX_DEPTH = 8;
+
+    private final HttpServer server;
+    private final BatchAnalyzer analyzer;
+    private final ExecutorService executor = VirtualThreads.newPerTaskExecutor("analysis-server");
+
+    /**
+     * Construct a server listening on the loopback interface
+     *
+     * @param port     the port, 0 for any free port
+     * @param analyzer the analyzer of the positions, started
+     * @throws IOException if the port cannot be bound
+     */
+    public AnalysisServer(int port, BatchAnalyzer analyzer) throws IOException {
+        this.analyzer = analyzer;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.createContext("/analyze", this::analyze);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Start serving requests
+     *
+     * @return this instance
+     */
+    public AnalysisServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void analyze(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "ERR method not allowed\n");
+                return;
+            }
+            final int depth;
+            try {
+                depth = depth(exchange.getRequestURI());
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, "ERR " + e.getMessage() + "\n");
+                return;
+            }
+            // submit every position before waiting for any, so that the batch is analysed on all threads at once
+            final List<Object> results = new ArrayList<>();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    final String position = line.trim();
+                    if (position.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        results.add(analyzer.submit(position, depth));
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        results.add("ERR " + e.getMessage());
+                    }
+                }
+            }
+            final StringBuilder body = new StringBuilder();
+            for (Object result : results) {
+                body.append(result instanceof CompletableFuture ? reply((CompletableFuture<?>) result) : result).append('\n');
+            }
+            respond(exchange, 200, body.toString());
+        } catch (InterruptedException e) {
+            respond(exchange, 503, "ERR interrupted\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int depth(URI uri) {
+        final String query = uri.getRawQuery();
+        if (query == null) {
+            return 1;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("depth=")) {
+                final int depth;
+                try {
+                    depth = Integer.parseInt(parameter.substring("depth=".length()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("malformed depth " + parameter.substring("depth=".length()));
+                }
+                if (depth < 0 || depth > MAX_DEPTH) {
+                    throw new IllegalArgumentException("depth out of range " + depth);
+                }
+                return depth;
+            }
+        }
+        return 1;
+    }
+
+    private static String reply(CompletableFuture<?> result) throws InterruptedException {
+        try {
+            return "OK " + result.get();
+        } catch (ExecutionException e) {
+            return "ERR " + e.getCause().getMessage();
+        } catch (RuntimeException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=US-ASCII");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Stop serving requests and close the analyzer
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        analyzer.close();
+    }
+
+    /**
+     * Run a server until the process is killed
+     *
+     * @param args the port, DEFAULT_PORT if none, and the number of threads analysing positions, one per processor if
+     *             none
+     * @throws IOException          if the port cannot be bound
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final BatchAnalyzer analyzer = new BatchAnalyzer();
+        if (args.length > 1) {
+            analyzer.threads(Integer.parseInt(args[1]));
+        }
+        final AnalysisServer server = new AnalysisServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT,
+                analyzer.start()).start();
+        System.out.format("Listening on port %d\n", server.getPort());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,228 @@
+package server;
+
+import models.Board;
+import models.Player;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Publishes the changes of a board to subscribers as MoveDiffs. Publishing happens on the thread executing on the board
+ * and never waits for a subscriber: each diff is only queued on every subscription, which delivers its queue as one
+ * batch on a thread of the executor, so that the diffs queued while a subscriber is busy go out together. A subscription
+ * whose queue is full drops it and resynchronises its subscriber from a snapshot instead, so a slow subscriber costs a
+ * bounded amount of memory and never slows the game down.
+ * <p>
+ * The board must only be changed by one thread at a time, e.g. under the lock of its game. The snapshot taken by a
+ * subscriber must be consistent with getSeq(), either under that same lock or from a VersionedBoard registered on the
+ * board before the broadcaster, whose versions are numbered as the diffs.
+ */
+public final class Broadcaster implements Board.HistoryListener {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final Board board;
+    private final Executor executor;
+    private final int capacity;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile long seq = 0;
+
+    /**
+     * Construct a broadcaster and register it on a board
+     *
+     * @param board    the board
+     * @param executor the executor delivering the batches
+     * @param capacity the number of diffs queued for a subscriber before it is resynchronised
+     */
+    public Broadcaster(Board board, Executor executor, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.board = board;
+        this.executor = executor;
+        this.capacity = capacity;
+        board.addHistoryListener(this);
+    }
+
+    /**
+     * @return the number of the last change published
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return the number of subscriptions not cancelled
+     */
+    public int getSubscriptions() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Subscribe to the changes of the board. The subscriber is first resynchronised, then receives the diffs following
+     * its snapshot.
+     *
+     * @param subscriber the subscriber
+     * @return the subscription
+     */
+    public Subscription subscribe(Subscriber subscriber) {
+        final Subscription subscription = new Subscription(subscriber);
+        subscriptions.add(subscription);
+        subscription.schedule();
+        return subscription;
+    }
+
+    /**
+     * Unregister from the board and cancel every subscription
+     */
+    public void close() {
+        board.removeHistoryListener(this);
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public void executed(Board.Operation op, Player player) {
+        publish(op, player, false);
+    }
+
+    @Override
+    public void undone(Board.Operation op, Player player) {
+        publish(op, player, true);
+    }
+
+    private void publish(Board.Operation op, Player player, boolean undo) {
+        final MoveDiff diff = MoveDiff.of(++seq, board, op, player, undo);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(diff);
+        }
+    }
+
+    /**
+     * The receiving end of a subscription. Its methods are called by one thread at a time; an IOException cancels the
+     * subscription.
+     */
+    public interface Subscriber {
+
+        /**
+         * Send a snapshot of the board in place of the diffs dropped
+         *
+         * @return the value of getSeq() when the snapshot was taken, the diffs up to which are skipped
+         * @throws IOException if the subscriber is gone
+         */
+        long resync() throws IOException;
+
+        /**
+         * @param diffs consecutive diffs, in order
+         * @throws IOException if the subscriber is gone
+         */
+        void diffs(List<MoveDiff> diffs) throws IOException;
+    }
+
+    /**
+     * The queue of diffs of one subscriber, delivered by at most one task at a time
+     */
+    public final class Subscription {
+
+        private final Subscriber subscriber;
+        private final ArrayDeque<MoveDiff> pending = new ArrayDeque<>();
+        private boolean resync = true;
+        private boolean scheduled = false;
+        private boolean cancelled = false;
+        private long synced = -1;
+        private int resyncs = 0;
+
+        private Subscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * @return the number of times the subscriber was resynchronised, including the first one
+         */
+        public synchronized int getResyncs() {
+            return resyncs;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Stop the deliveries; a batch being delivered still completes
+         */
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                pending.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void offer(MoveDiff diff) {
+            final boolean schedule;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (pending.size() == capacity) {
+                    pending.clear();
+                    resync = true;
+                } else {
+                    pending.add(diff);
+                }
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                scheduled = true;
+            }
+            executor.execute(this::deliver);
+        }
+
+        private void deliver() {
+            try {
+                while (true) {
+                    final boolean sync;
+                    final List<MoveDiff> batch;
+                    synchronized (this) {
+                        if (cancelled || !resync && pending.isEmpty()) {
+                            scheduled = false;
+                            return;
+                        }
+                        sync = resync;
+                        resync = false;
+                        batch = new ArrayList<>(pending);
+                        pending.clear();
+                    }
+                    // outside of the lock, since the snapshot takes the lock of the game, under which diffs are offered
+                    if (sync) {
+                        synced = subscriber.resync();
+                        synchronized (this) {
+                            resyncs++;
+                        }
+                    }
+                    int first = 0;
+                    while (first < batch.size() && batch.get(first).SEQ <= synced) {
+                        first++;
+                    }
+                    if (first < batch.size()) {
+                        subscriber.diffs(batch.subList(first, batch.size()));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package server;
+
+import models.Board;
+import models.Player;
+import models.PositionFormat;
+import util.Pair;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A client of a GameServer, served on its own thread. It reads one command per line and answers each one with a line
+ * starting with OK or ERR; the other lines it receives are events of its game. Its state is only touched by its own
+ * thread, except for the writer, which the connection of the opponent uses to send events and the Broadcaster of a
+ * watched game to send its diffs.
+ */
+final class Connection implements Runnable {
+
+    private final GameServer server;
+    private final Socket socket;
+    private final Writer out;
+    private ServerGame game;
+    private Broadcaster.Subscription watching;
+
+    Connection(GameServer server, Socket socket) throws IOException {
+        this.server = server;
+        this.socket = socket;
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void run() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String command = line.trim();
+                if (command.isEmpty()) {
+                    continue;
+                }
+                if (command.equalsIgnoreCase("QUIT")) {
+                    send("OK bye");
+                    break;
+                }
+                String reply;
+                try {
+                    final String handled = handle(command);
+                    if (handled == null) {
+                        continue;
+                    }
+                    reply = "OK" + handled;
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    reply = "ERR " + e.getMessage();
+                }
+                send(reply);
+            }
+        } catch (IOException e) {
+            // the client is gone
+        } finally {
+            unwatch();
+            leave();
+            close();
+            server.closed(this);
+        }
+    }
+
+    /**
+     * @return the end of the reply, starting with a space if not empty, or null if already replied
+     */
+    private String handle(String command) throws IOException {
+        final int space = command.indexOf(' ');
+        final String name = (space < 0 ? command : command.substring(0, space)).toUpperCase();
+        final String argument = space < 0 ? "" : command.substring(space + 1).trim();
+        switch (name) {
+            case "NEW":
+                return create(argument);
+            case "JOIN":
+                return join(argument);
+            case "MOVE":
+                final String played = game().move(this, argument);
+                notifyOpponent("MOVED " + played);
+                return " " + played;
+            case "MOVES":
+                return " " + game().moves();
+            case "SHOW":
+                return " " + game().position();
+            case "LEAVE":
+                game();
+                leave();
+                return "";
+            case "WATCH":
+                watch(argument);
+                return null;
+            case "UNWATCH":
+                if (watching == null) {
+                    throw new IllegalStateException("not watching");
+                }
+                unwatch();
+                return "";
+            default:
+                throw new IllegalArgumentException("unknown command " + name);
+        }
+    }
+
+    /**
+     * NEW [w|b|wb] [position]: create a game, from the default board or a position in PositionFormat, and sit on the
+     * seats of the given sides, both by default
+     */
+    private String create(String argument) {
+        if (game != null) {
+            throw new IllegalStateException("already in game " + game.ID);
+        }
+        String side = "wb", position = argument;
+        final int space = argument.indexOf(' ');
+        final String first = space < 0 ? argument : argument.substring(0, space);
+        if (first.equals("w") || first.equals("b") || first.equals("wb")) {
+            side = first;
+            position = space < 0 ? "" : argument.substring(space + 1).trim();
+        }
+        final Board board;
+        final Player toMove;
+        if (position.isEmpty()) {
+            board = Board.defaultBoard(Player.black(), Player.white());
+            toMove = board.WHITE;
+        } else {
+            final Pair<Board, Player> parsed = PositionFormat.parse(position);
+            board = parsed.first;
+            toMove = parsed.second;
+        }
+        final ServerGame created = server.create(board, toMove);
+        created.seat(this, side.contains("w"), side.contains("b"));
+        game = created;
+        return " " + created.ID + " " + side;
+    }
+
+    /**
+     * JOIN id: take the free seat of a game
+     */
+    private String join(String argument) {
+        if (game != null) {
+            throw new IllegalStateException("already in game " + game.ID);
+        }
+        final ServerGame joined = find(argument);
+        final String side = joined.join(this);
+        if (side == null) {
+            throw new IllegalStateException("game " + argument + " is full");
+        }
+        game = joined;
+        notifyOpponent("JOINED " + side);
+        return " " + joined.ID + " " + side;
+    }
+
+    /**
+     * WATCH id: reply, then subscribe to the operations of a game, so that its snapshot follows the reply
+     */
+    private void watch(String argument) throws IOException {
+        if (watching != null) {
+            throw new IllegalStateException("already watching");
+        }
+        final ServerGame watched = find(argument);
+        send("OK " + watched.ID);
+        watching = watched.broadcaster().subscribe(new Broadcaster.Subscriber() {
+            @Override
+            public long resync() throws IOException {
+                final Pair<Long, String> snapshot = watched.snapshot();
+                send("SYNC " + snapshot.first + " " + snapshot.second);
+                return snapshot.first;
+            }
+
+            @Override
+            public void diffs(List<MoveDiff> diffs) throws IOException {
+                final StringBuilder builder = new StringBuilder("DIFF ").append(diffs.get(0).SEQ);
+                for (MoveDiff diff : diffs) {
+                    diff.appendTo(builder.append(' '));
+                }
+                send(builder.toString());
+            }
+        });
+    }
+
+    private void unwatch() {
+        if (watching != null) {
+            watching.cancel();
+            watching = null;
+        }
+    }
+
+    private ServerGame find(String argument) {
+        final ServerGame found;
+        try {
+            found = server.get(Long.parseLong(argument));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed game id " + argument);
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("no game " + argument);
+        }
+        return found;
+    }
+
+    private ServerGame game() {
+        if (game == null) {
+            throw new IllegalStateException("not in a game");
+        }
+        return game;
+    }
+
+    private void leave() {
+        if (game == null) {
+            return;
+        }
+        notifyOpponent("LEFT");
+        if (game.leave(this)) {
+            server.remove(game);
+        }
+        game = null;
+    }
+
+    private void notifyOpponent(String event) {
+        final Connection opponent = game.opponent(this);
+        if (opponent != null) {
+            try {
+                opponent.send(event);
+            } catch (IOException e) {
+                // the opponent is gone, its own thread cleans up
+            }
+        }
+    }
+
+    /**
+     * Write a line to the client, either a reply from this connection or an event from its opponent
+     */
+    void send(String line) throws IOException {
+        synchronized (out) {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package server;
+
+import models.Board;
+import models.Player;
+import util.VirtualThreads;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A headless server hosting many games at once over a line protocol on local TCP sockets. Each connection is served by
+ * its own thread, a virtual one when the runtime has them, see VirtualThreads. The games are kept in a concurrent map
+ * and each one is locked on its own, so that there is no lock shared by all games. Operations are checked against the
+ * board of their game, see Notation.parseSan.
+ * <p>
+ * The commands, one per line, are answered by a line starting with OK or ERR:
+ * <ul>
+ * <li>NEW [w|b|wb] [position]: create a game from the default board or a position in PositionFormat, sitting on the
+ * given sides, both by default; answers OK id side</li>
+ * <li>JOIN id: take the free seat of a game; answers OK id side</li>
+ * <li>MOVE san: play an operation; answers OK with the operation in normalised notation, followed by the result if it
+ * ends the game</li>
+ * <li>MOVES: answers OK with the operations of the player to move</li>
+ * <li>SHOW: answers OK with the position in PositionFormat</li>
+ * <li>LEAVE: leave the game</li>
+ * <li>WATCH id: spectate a game; answers OK id, then sends SYNC seq position with the position after the operation
+ * numbered seq, followed by batches DIFF seq diff... of the operations from the one numbered seq on, see MoveDiff. A
+ * spectator too slow to keep up is sent a new SYNC in place of the batches it missed</li>
+ * <li>UNWATCH: stop spectating</li>
+ * <li>QUIT: close the connection</li>
+ * </ul>
+ * The opponent receives the events JOINED side, MOVED san [result] and LEFT.
+ */
+public final class GameServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7777;
+    private static final long MIN_BACKOFF = 10;
+    private static final long MAX_BACKOFF = 1000;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = VirtualThreads.newPerTaskExecutor("game-server");
+    private final Map<Long, ServerGame> games = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * Construct a server listening on the loopback interface
+     *
+     * @param port the port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Start accepting connections
+     *
+     * @return this instance
+     */
+    public GameServer start() {
+        executor.execute(this::accept);
+        return this;
+    }
+
+    private void accept() {
+        long backoff = 0;
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                // out of file descriptors or the like: retrying at once would only spin until some are released
+                backoff = Math.min(Math.max(2 * backoff, MIN_BACKOFF), MAX_BACKOFF);
+                System.err.format("Accept failed, retrying in %d ms: %s\n", backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            backoff = 0;
+            Connection connection = null;
+            try {
+                socket.setTcpNoDelay(true);
+                connection = new Connection(this, socket);
+                connections.add(connection);
+                executor.execute(connection);
+            } catch (IOException | RejectedExecutionException e) {
+                // the connection failed before it started, or the server is closing
+                if (connection != null) {
+                    connections.remove(connection);
+                }
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // already closed
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of games being played
+     */
+    public int getGames() {
+        return games.size();
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int getConnections() {
+        return connections.size();
+    }
+
+    ServerGame create(Board board, Player toMove) {
+        final ServerGame game = new ServerGame(ids.incrementAndGet(), board, toMove, executor);
+        games.put(game.ID, game);
+        return game;
+    }
+
+    ServerGame get(long id) {
+        return games.get(id);
+    }
+
+    void remove(ServerGame game) {
+        if (games.remove(game.ID, game)) {
+            game.close();
+        }
+    }
+
+    void closed(Connection connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * Stop accepting connections and close the open ones
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Run a server until the process is killed
+     *
+     * @param args the port, DEFAULT_PORT if none
+     * @throws IOException          if the port cannot be bound
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT).start();
+        System.out.format("Listening on port %d with %s threads\n", server.getPort(),
+                VirtualThreads.isAvailable() ? "virtual" : "platform");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,337 @@
+package server;
+
+import models.Board;
+import models.Notation;
+import models.Player;
+import util.Histogram;
+import util.VirtualThreads;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A load generator for a GameServer. It simulates pairs of clients, each pair playing games against each other on two
+ * connections: white creates a game and black joins it, then they play random legal operations, chosen by each client
+ * from Board.generateMoves on its own board, until the game ends or reaches the maximum number of plies. Every pair runs
+ * on its own thread, a virtual one when the runtime has them, so that thousands of clients can be simulated.
+ * <p>
+ * The latency of a move is the time from sending MOVE to receiving its OK, recorded in microseconds in a Histogram. The
+ * report is a JSON object with the settings, the numbers of games, moves and errors, the throughput in moves per second
+ * and the percentiles of the latencies.
+ */
+public final class LoadTester {
+
+    private final String host;
+    private final int port;
+    private int clients = 1000;
+    private int games = 1;
+    private int maxPlies = 200;
+    private long seed = 0;
+    private final Histogram latencies = new Histogram();
+    private final AtomicLong played = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong connectionErrors = new AtomicLong();
+    private long elapsed = 0;
+
+    /**
+     * @param host the host of the server
+     * @param port the port of the server
+     */
+    public LoadTester(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * @param clients the number of simulated clients, rounded up to an even number since they play in pairs
+     * @return this instance
+     */
+    public LoadTester clients(int clients) {
+        this.clients = Math.max(2, clients + 1 & ~1);
+        return this;
+    }
+
+    /**
+     * @param games the number of games played by each pair of clients, one after the other
+     * @return this instance
+     */
+    public LoadTester games(int games) {
+        this.games = Math.max(1, games);
+        return this;
+    }
+
+    /**
+     * @param maxPlies the number of plies after which a game is abandoned
+     * @return this instance
+     */
+    public LoadTester maxPlies(int maxPlies) {
+        this.maxPlies = Math.max(1, maxPlies);
+        return this;
+    }
+
+    /**
+     * @param seed the seed of the random operations, each pair drawing from its own generator
+     * @return this instance
+     */
+    public LoadTester seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Run every pair of clients and wait for them to finish
+     *
+     * @return this instance
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public LoadTester run() throws InterruptedException {
+        final ExecutorService executor = VirtualThreads.newPerTaskExecutor("load-tester");
+        final CountDownLatch done = new CountDownLatch(clients / 2);
+        final long start = System.nanoTime();
+        try {
+            for (int pair = 0; pair < clients / 2; pair++) {
+                final Random random = new Random(seed * 31 + pair);
+                executor.execute(() -> {
+                    try {
+                        runPair(random);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            elapsed = System.nanoTime() - start;
+            executor.shutdown();
+        }
+        return this;
+    }
+
+    private void runPair(Random random) {
+        try (Client white = new Client(); Client black = new Client()) {
+            for (int game = 0; game < games; game++) {
+                played.incrementAndGet();
+                if (play(white, black, random)) {
+                    finished.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            connectionErrors.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return whether the game was played to its end or to the maximum number of plies without error
+     */
+    private boolean play(Client white, Client black, Random random) throws IOException {
+        final String created = white.command("NEW w");
+        if (!created.startsWith("OK ")) {
+            errors.incrementAndGet();
+            return false;
+        }
+        final String id = created.split(" ")[1];
+        try {
+            if (!black.command("JOIN " + id).startsWith("OK ") || !white.event().startsWith("JOINED")) {
+                errors.incrementAndGet();
+                return false;
+            }
+            final Board board = Board.defaultBoard(Player.black(), Player.white());
+            final List<Board.Operation> legal = new ArrayList<>();
+            Player player = board.WHITE;
+            for (int ply = 0; ply < maxPlies; ply++) {
+                legal.clear();
+                board.generateMoves(player).forEach(legal::add);
+                if (legal.isEmpty()) {
+                    return true;
+                }
+                final Board.Operation op = legal.get(random.nextInt(legal.size()));
+                final String san = Notation.toSan(board, op, player);
+                final Client mover = player == board.WHITE ? white : black;
+                final long sent = System.nanoTime();
+                final String reply = mover.command("MOVE " + san);
+                latencies.record((System.nanoTime() - sent) / 1000);
+                if (!reply.startsWith("OK " + san)) {
+                    errors.incrementAndGet();
+                    return false;
+                }
+                moves.incrementAndGet();
+                if (!(player == board.WHITE ? black : white).event().startsWith("MOVED " + san)) {
+                    errors.incrementAndGet();
+                    return false;
+                }
+                board.execute(op, player);
+                player = board.theOther(player);
+            }
+            return true;
+        } finally {
+            // black skips the LEFT event of white while waiting for its reply
+            white.command("LEAVE");
+            black.command("LEAVE");
+        }
+    }
+
+    /**
+     * @return the report of the last run as a JSON object
+     */
+    public String report() {
+        final double seconds = elapsed / 1e9;
+        final StringBuilder builder = new StringBuilder("{\n");
+        field(builder, "host", quote(host));
+        field(builder, "port", port);
+        field(builder, "clients", clients);
+        field(builder, "gamesPerPair", games);
+        field(builder, "maxPlies", maxPlies);
+        field(builder, "seed", seed);
+        field(builder, "elapsedSeconds", String.format(Locale.ROOT, "%.3f", seconds));
+        field(builder, "games", played.get());
+        field(builder, "finishedGames", finished.get());
+        field(builder, "moves", moves.get());
+        field(builder, "errors", errors.get());
+        field(builder, "connectionErrors", connectionErrors.get());
+        field(builder, "movesPerSecond", String.format(Locale.ROOT, "%.1f", seconds == 0 ? 0 : moves.get() / seconds));
+        field(builder, "errorRate", String.format(Locale.ROOT, "%.6f", played.get() == 0 ? 0 : (double) errors.get() / played.get()));
+        builder.append("  \"latencyMicros\": {\n");
+        builder.append("    \"count\": ").append(latencies.getCount()).append(",\n");
+        builder.append("    \"mean\": ").append(String.format(Locale.ROOT, "%.1f", latencies.getMean())).append(",\n");
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            builder.append("    \"p").append(String.valueOf(percentile).replace(".0", "").replace('.', '_')).append("\": ")
+                    .append(latencies.getPercentile(percentile)).append(",\n");
+        }
+        builder.append("    \"max\": ").append(latencies.getMax()).append("\n  }\n}\n");
+        return builder.toString();
+    }
+
+    private static void field(StringBuilder builder, String name, Object value) {
+        builder.append("  \"").append(name).append("\": ").append(value).append(",\n");
+    }
+
+    /**
+     * @return s as a JSON string, with quotes, backslashes and control characters escaped
+     */
+    private static String quote(String s) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    public long getMoves() {
+        return moves.get();
+    }
+
+    public long getErrors() {
+        return errors.get() + connectionErrors.get();
+    }
+
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * A connection reading replies and events in the order they arrive
+     */
+    private final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        private Client() throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(60000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * @return the reply to command, skipping the events received before it
+         */
+        private String command(String command) throws IOException {
+            out.write(command);
+            out.write('\n');
+            out.flush();
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    throw new IOException("Connection closed by the server");
+                }
+            } while (!line.startsWith("OK") && !line.startsWith("ERR"));
+            return line;
+        }
+
+        private String event() throws IOException {
+            final String line = in.readLine();
+            if (line == null) {
+                throw new IOException("Connection closed by the server");
+            }
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Run a load test and print its report
+     *
+     * @param args the port of the server, or 0 to start one in this process, the number of clients, the number of games
+     *             per pair, the maximum number of plies, and the file to write the report to, printed if none
+     * @throws IOException          if the server cannot be started or the report cannot be written
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+        final GameServer server = port == 0 ? new GameServer(0).start() : null;
+        try {
+            final LoadTester tester = new LoadTester(InetAddress.getLoopbackAddress().getHostAddress(),
+                    server == null ? port : server.getPort());
+            if (args.length > 1) {
+                tester.clients(Integer.parseInt(args[1]));
+            }
+            if (args.length > 2) {
+                tester.games(Integer.parseInt(args[2]));
+            }
+            if (args.length > 3) {
+                tester.maxPlies(Integer.parseInt(args[3]));
+            }
+            final String report = tester.run().report();
+            if (args.length > 4) {
+                Files.write(Paths.get(args[4]), report.getBytes(StandardCharsets.US_ASCII));
+            } else {
+                System.out.print(report);
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
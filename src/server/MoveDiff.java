@@ -0,0 +1,65 @@
+package server;
+
+import models.Board;
+import models.Notation;
+import models.Player;
+
+import java.awt.*;
+
+/**
+ * The change of a board by one operation executed or undone, numbered in the order of the changes. A diff is written
+ * compactly as its squares, e.g. e2e4, with an x between them for an attack, e.g. e4xd5, and a leading - when undone.
+ */
+public final class MoveDiff {
+
+    public final long SEQ;
+    public final boolean UNDO;
+    public final boolean WHITE;
+    public final boolean ATTACK;
+    public final Point FROM;
+    public final Point TO;
+
+    public MoveDiff(long seq, boolean undo, boolean white, boolean attack, Point from, Point to) {
+        SEQ = seq;
+        UNDO = undo;
+        WHITE = white;
+        ATTACK = attack;
+        FROM = from;
+        TO = to;
+    }
+
+    /**
+     * @param seq    the number of the change
+     * @param board  the board the operation executed on
+     * @param op     the operation
+     * @param player the player from which it executed
+     * @param undo   whether it is undone
+     * @return the diff of the operation
+     */
+    public static MoveDiff of(long seq, Board board, Board.Operation op, Player player, boolean undo) {
+        return new MoveDiff(seq, undo, player == board.WHITE, op instanceof Board.Operation.Attack, op.FROM, op.TO);
+    }
+
+    /**
+     * Append the compact form of this diff to a builder
+     *
+     * @param builder the builder
+     */
+    public void appendTo(StringBuilder builder) {
+        if (UNDO) {
+            builder.append('-');
+        }
+        Notation.appendSquare(FROM, builder);
+        if (ATTACK) {
+            builder.append('x');
+        }
+        Notation.appendSquare(TO, builder);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,168 @@
+package server;
+
+import models.Board;
+import models.Notation;
+import models.Player;
+import models.VersionedBoard;
+import util.Pair;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A game hosted by a GameServer, with a seat for each player. A connection may sit on both seats to play both sides.
+ * Each game is locked on its own, so that games never wait for each other. Its operations are published to spectators
+ * by a Broadcaster, from under the lock of the game, and its positions by a VersionedBoard, which the spectators read
+ * without taking the lock.
+ */
+final class ServerGame {
+
+    final long ID;
+    private final Board board;
+    private final VersionedBoard versions;
+    private final Broadcaster broadcaster;
+    private Player toMove;
+    private Connection white;
+    private Connection black;
+    private String result = null;
+    private boolean closed = false;
+
+    ServerGame(long id, Board board, Player toMove, Executor executor) {
+        ID = id;
+        this.board = board;
+        this.toMove = toMove;
+        // registered first, so that the version of an operation is published before its diff
+        this.versions = new VersionedBoard(board, toMove);
+        this.broadcaster = new Broadcaster(board, executor, Broadcaster.DEFAULT_CAPACITY);
+    }
+
+    Broadcaster broadcaster() {
+        return broadcaster;
+    }
+
+    /**
+     * @return the side taken by connection, w, b or wb, or null if the requested seats are taken
+     * @throws IllegalArgumentException if the last player has left the game, which is then being removed
+     */
+    synchronized String seat(Connection connection, boolean asWhite, boolean asBlack) {
+        if (closed) {
+            throw new IllegalArgumentException("no game " + ID);
+        }
+        if (asWhite && white != null || asBlack && black != null) {
+            return null;
+        }
+        if (asWhite) {
+            white = connection;
+        }
+        if (asBlack) {
+            black = connection;
+        }
+        return side(connection);
+    }
+
+    /**
+     * Take the free seat, white first
+     *
+     * @return the side taken, or null if both seats are taken
+     * @throws IllegalArgumentException if the last player has left the game, which is then being removed
+     */
+    synchronized String join(Connection connection) {
+        if (closed) {
+            throw new IllegalArgumentException("no game " + ID);
+        }
+        return white == null ? seat(connection, true, false) : black == null ? seat(connection, false, true) : null;
+    }
+
+    /**
+     * Leave the seats of a connection. Once no seat is taken, the game refuses new players, so that it cannot be joined
+     * between this call and its removal from the server.
+     *
+     * @return whether no seat is taken anymore, in which case the caller removes the game
+     */
+    synchronized boolean leave(Connection connection) {
+        if (white == connection) {
+            white = null;
+        }
+        if (black == connection) {
+            black = null;
+        }
+        closed = white == null && black == null;
+        return closed;
+    }
+
+    /**
+     * @return the connection on the other seat than connection, null if it is free or taken by connection as well
+     */
+    synchronized Connection opponent(Connection connection) {
+        final Connection other = white == connection ? black : white;
+        return other == connection ? null : other;
+    }
+
+    synchronized String side(Connection connection) {
+        return (white == connection ? "w" : "") + (black == connection ? "b" : "");
+    }
+
+    /**
+     * Play an operation of the player to move
+     *
+     * @param connection the connection playing it, which must sit on the seat of the player to move
+     * @param san        the operation, see Notation
+     * @return the operation in normalised notation, followed by the result if it ends the game
+     * @throws IllegalArgumentException if the operation is malformed or illegal
+     * @throws IllegalStateException    if the game is over or it is not the turn of connection
+     */
+    synchronized String move(Connection connection, String san) {
+        if (result != null) {
+            throw new IllegalStateException("game over " + result);
+        }
+        if ((toMove == board.WHITE ? white : black) != connection) {
+            throw new IllegalStateException("not your turn");
+        }
+        final Board.Operation op = Notation.parseSan(board, toMove, san);
+        final String played = Notation.toSan(board, op, toMove);
+        board.execute(op, toMove);
+        toMove = board.theOther(toMove);
+        if (!board.generateMoves(toMove).findAny().isPresent()) {
+            result = !board.inCheck(toMove) ? "1/2-1/2" : toMove == board.WHITE ? "0-1" : "1-0";
+            return played + " " + result;
+        }
+        return played;
+    }
+
+    /**
+     * @return the operations of the player to move, separated by spaces
+     */
+    synchronized String moves() {
+        final StringBuilder builder = new StringBuilder();
+        board.generateMoves(toMove).forEach(op -> {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            Notation.appendSan(board, op, toMove, builder);
+        });
+        return builder.toString();
+    }
+
+    /**
+     * @return the position in PositionFormat, read without waiting for the game
+     */
+    String position() {
+        return versions.current().position();
+    }
+
+    /**
+     * @return the number of the last operation published, equal to that of its diff from the broadcaster, and the
+     * position after it, read without waiting for the game
+     */
+    Pair<Long, String> snapshot() {
+        final VersionedBoard.Version version = versions.current();
+        return Pair.of(version.VERSION, version.position());
+    }
+
+    /**
+     * Stop publishing the operations and positions of the game
+     */
+    void close() {
+        broadcaster.close();
+        versions.close();
+    }
+}
@@ -1,5 +1,6 @@
 package ui;
 
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SetProperty;
@@ -23,6 +24,7 @@ import java.nio.file.Path;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SlotController implements Initializable //, ListChangeListener<Piece>
 {
@@ -38,6 +40,7 @@ public class SlotController implements Initializable //, ListChangeListener<Piec
 
     private ObjectProperty<Status> status;
     private ObjectProperty<Piece> piece;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -78,14 +81,37 @@ public class SlotController implements Initializable //, ListChangeListener<Piec
             root.getStyleClass().add(newValue.toString());
         });
 
-        piece = new SimpleObjectProperty<>();
-        piece.bind(Bindings.valueAt(board, board.coord(boardLoc)));
+        piece = new SimpleObjectProperty<>(board.get(boardLoc));
+        board.addPieceListener(new Board.PieceListener() {
+            @Override
+            public void placed(Piece piece, int index) {
+                changed(index);
+            }
+
+            @Override
+            public void removed(Piece piece, int index) {
+                changed(index);
+            }
+        });
 
         img.imageProperty().bind(Bindings.createObjectBinding(() -> this.render(piece.get()), piece));
 
         root.setOnMouseClicked(this::mouseClicked);
     }
 
+    /**
+     * Schedule the update of the piece on the FX thread, at most once at a time, so that the operations only tried on
+     * the board, e.g. while checking their legality, are not rendered
+     */
+    private void changed(int index) {
+        if (index == board.coord(boardLoc) && !refreshing.getAndSet(true)) {
+            Platform.runLater(() -> {
+                refreshing.set(false);
+                piece.set(board.get(index));
+            });
+        }
+    }
+
     private void mouseClicked(MouseEvent mouseEvent) {
         final Player player = Optional.ofNullable(piece.get()).map(p -> p.PLAYER).orElse(null);
         switch (getStatus()) {
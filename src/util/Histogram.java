@@ -0,0 +1,100 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, e.g. latencies, which threads record into at once without locking. Values below
+ * 64 have a bucket each, larger ones fall in one of 32 buckets per power of two, so that percentiles are reported
+ * within about 3% of the recorded values in a fixed amount of memory, whatever their number and range.
+ */
+public final class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int LINEAR = 2 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR + (63 - SUB_BITS - 1) * (1 << SUB_BITS));
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value a non-negative value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long previous;
+        while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+            // retry
+        }
+    }
+
+    private static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return LINEAR + (exponent - SUB_BITS - 1) * (1 << SUB_BITS) + sub;
+    }
+
+    /**
+     * @return the smallest value of a bucket
+     */
+    private static long lowest(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        final int exponent = (bucket - LINEAR >> SUB_BITS) + SUB_BITS + 1;
+        final long sub = bucket - LINEAR & ((1 << SUB_BITS) - 1);
+        return (1L << SUB_BITS | sub) << exponent - SUB_BITS;
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the mean of the values recorded, 0 if there is none
+     */
+    public double getMean() {
+        final long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @return the largest value recorded, 0 if there is none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100
+     * @return the value at or below which the percentile of the values recorded fall, rounded up to the largest value of
+     * its bucket, 0 if there is none
+     */
+    public long getPercentile(double percentile) {
+        final long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return bucket + 1 < counts.length() ? Math.min(lowest(bucket + 1) - 1, getMax()) : getMax();
+            }
+        }
+        return getMax();
+    }
+}
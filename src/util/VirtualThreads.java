@@ -0,0 +1,56 @@
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors running each task on its own virtual thread when the runtime has them, and on a cached pool of daemon
+ * platform threads otherwise. The sources target an older language level, so virtual threads are looked up by
+ * reflection rather than referred to.
+ */
+public final class VirtualThreads {
+
+    private static final Method PER_TASK = lookup();
+
+    private VirtualThreads() {
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the runtime has virtual threads
+     */
+    public static boolean isAvailable() {
+        return PER_TASK != null;
+    }
+
+    /**
+     * @param name the prefix of the names of the platform threads, when virtual threads are not available
+     * @return an executor starting a new thread for each task
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        if (PER_TASK != null) {
+            try {
+                return (ExecutorService) PER_TASK.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // fall back to platform threads
+            }
+        }
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory factory = task -> {
+            final Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+}
@@ -0,0 +1,175 @@
+import engine.BatchAnalyzer;
+import models.Board;
+import models.Player;
+import models.PositionFormat;
+import org.junit.Test;
+import server.AnalysisServer;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisServerTest {
+
+    private static final String MATED = "8x8 rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w 1 1";
+
+    @Test
+    public void testAnalyzer() throws Exception {
+        try (BatchAnalyzer analyzer = new BatchAnalyzer().threads(2).tableBits(12).start()) {
+            final BatchAnalyzer.Analysis initial = analyzer.submit(PositionFormat.INITIAL, 2).get();
+            assertEquals(20, initial.MOVES);
+            assertEquals(BatchAnalyzer.NONE, initial.STATUS);
+            assertTrue(initial.BEST, !initial.BEST.equals(BatchAnalyzer.NONE));
+            assertEquals("0 mate -100000 -", analyzer.submit(MATED, 2).get().toString());
+            assertEquals(2, analyzer.getAnalysed());
+            assertSame(initial, analyzer.submit(PositionFormat.INITIAL, 2).get());
+            assertEquals(1, analyzer.getHits());
+            assertEquals(2, analyzer.getAnalysed());
+            assertEquals(20, analyzer.submit(PositionFormat.INITIAL, 0).get().MOVES);
+            assertEquals(3, analyzer.getAnalysed());
+        }
+    }
+
+    /**
+     * The pieces of these positions have the same indices, hence the same Zobrist key, on boards of different sizes
+     */
+    @Test
+    public void testBoardSizes() throws Exception {
+        final String small = "8x8 r1b1kb1r/p1q*2p1p/n*p*p*3p*1/4p*3/1P*1p*P*1n*1/B*1P*Q*4/P2PN*PPP/RN2K*B*R*1 b 14 13";
+        final String wide = "16x4 p1q*2p1pr1b1kb1r/4p*3n*p*p*3p*1/B*1P*Q*5P*1p*P*1n*1/RN2K*B*R*1P2PN*PPP b 14 13";
+        final String expected;
+        try (BatchAnalyzer analyzer = new BatchAnalyzer().threads(1).tableBits(12).start()) {
+            expected = analyzer.submit(small, 3).get().toString();
+        }
+        try (BatchAnalyzer analyzer = new BatchAnalyzer().threads(1).tableBits(12).start()) {
+            analyzer.submit(wide, 3).get();
+            assertEquals(expected, analyzer.submit(small, 3).get().toString());
+        }
+    }
+
+    /**
+     * Zobrist keys ignore whether a pawn has moved, so a worker must not answer a position from the entries of the
+     * same position with its unmoved pawns marked moved, nor the other way around
+     */
+    @Test
+    public void testMovedPawns() throws Exception {
+        final String unmoved = "8x8 r1bqkb1r/1p1pn*1p1/p*3p*3/2p*2p*1p*/1n*1P*4/1P*P*1B*P*1P*/P3P1P1/RN*1QKBNR b 11 10";
+        final String moved = unmoved.replaceAll("([Pp])(?!\\*)", "$1*");
+        final List<String> expected = new ArrayList<>();
+        for (String position : new String[]{unmoved, moved}) {
+            try (BatchAnalyzer analyzer = new BatchAnalyzer().threads(1).tableBits(12).start()) {
+                expected.add(analyzer.submit(position, 3).get().toString());
+            }
+        }
+        try (BatchAnalyzer analyzer = new BatchAnalyzer().threads(1).tableBits(12).start()) {
+            assertEquals(expected.get(0), analyzer.submit(unmoved, 3).get().toString());
+            assertEquals(expected.get(1), analyzer.submit(moved, 3).get().toString());
+        }
+        try (BatchAnalyzer analyzer = new BatchAnalyzer().threads(1).tableBits(12).start()) {
+            assertEquals(expected.get(1), analyzer.submit(moved, 3).get().toString());
+            assertEquals(expected.get(0), analyzer.submit(unmoved, 3).get().toString());
+        }
+    }
+
+    /**
+     * Every result must complete once the analyzer is closed, even for positions submitted while it closes
+     */
+    @Test
+    public void testCloseWhileSubmitting() throws Exception {
+        final List<String> positions = new ArrayList<>();
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final Random random = new Random(0);
+        Player player = board.WHITE;
+        for (int ply = 0; ply < 40; ply++) {
+            positions.add(PositionFormat.write(board, player));
+            final List<Board.Operation> legal = new ArrayList<>();
+            board.generateMoves(player).forEach(legal::add);
+            board.execute(legal.get(random.nextInt(legal.size())), player);
+            player = board.theOther(player);
+        }
+        final BatchAnalyzer analyzer = new BatchAnalyzer().threads(1).capacity(1).batch(1).tableBits(12).start();
+        final List<CompletableFuture<BatchAnalyzer.Analysis>> results = new ArrayList<>();
+        final List<Thread> submitters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final int first = i;
+            final Thread submitter = new Thread(() -> {
+                try {
+                    for (int j = first; j < positions.size(); j += 4) {
+                        final CompletableFuture<BatchAnalyzer.Analysis> result = analyzer.submit(positions.get(j), 3);
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    }
+                } catch (IllegalStateException | InterruptedException e) {
+                    // closed
+                }
+            });
+            submitter.setDaemon(true);
+            submitters.add(submitter);
+            submitter.start();
+        }
+        Thread.sleep(50);
+        analyzer.close();
+        for (Thread submitter : submitters) {
+            submitter.join(10000);
+            assertFalse(submitter.isAlive());
+        }
+        for (CompletableFuture<BatchAnalyzer.Analysis> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+            } catch (CancellationException | ExecutionException e) {
+                // cancelled by close
+            }
+        }
+    }
+
+    @Test
+    public void testHttp() throws Exception {
+        try (AnalysisServer server = new AnalysisServer(0, new BatchAnalyzer().threads(2).tableBits(12).start()).start()) {
+            final List<String> lines = post(server.getPort(), "depth=1", PositionFormat.INITIAL + "\n" + MATED + "\nnonsense\n\n" + PositionFormat.INITIAL + "\n");
+            assertEquals(4, lines.size());
+            assertTrue(lines.get(0), lines.get(0).startsWith("OK 20 - "));
+            assertEquals("OK 0 mate -100000 -", lines.get(1));
+            assertTrue(lines.get(2), lines.get(2).startsWith("ERR "));
+            assertEquals(lines.get(0), lines.get(3));
+            final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/analyze?depth=99").openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.getOutputStream().close();
+            assertEquals(400, connection.getResponseCode());
+        }
+    }
+
+    private static List<String> post(int port, String query, String body) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/analyze?" + query).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.US_ASCII));
+        }
+        assertEquals(200, connection.getResponseCode());
+        final List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,163 @@
+import models.Board;
+import models.Piece;
+import models.PieceTypes;
+import models.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static models.Board.Operation.attack;
+import static models.Board.Operation.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static util.Shorthand.pos;
+import static util.Shorthand.pt;
+
+public class BoardTest {
+
+    private Board board;
+
+    @Before
+    public void setup() {
+        board = Board.defaultBoard(Player.black(), Player.white());
+    }
+
+    /**
+     * Assert that isLegal accepts exactly the operations generateMoves produces for player
+     */
+    private void assertAgreesWithGeneration(Board board, Player player) {
+        final Set<Board.Operation> generated = board.generateMoves(player).collect(Collectors.toSet());
+        for (int from = 0; from < board.size(); from++) {
+            for (int to = 0; to < board.size(); to++) {
+                final Point f = pt(from % board.N_COLS, from / board.N_COLS), t = pt(to % board.N_COLS, to / board.N_COLS);
+                assertEquals(generated.contains(move(f, t)), board.isLegal(move(f, t), player));
+                assertEquals(generated.contains(attack(f, t)), board.isLegal(attack(f, t), player));
+            }
+        }
+    }
+
+    @Test
+    public void testIsLegal() {
+        assertTrue(board.isLegal(move(pos("e2"), pos("e4")), board.WHITE));
+        assertFalse(board.isLegal(move(pos("e2"), pos("e5")), board.WHITE));
+        assertFalse(board.isLegal(move(pos("e7"), pos("e5")), board.WHITE));
+        assertFalse(board.isLegal(attack(pos("e2"), pos("e4")), board.WHITE));
+        assertFalse(board.isLegal(move(pos("a1"), pos("a3")), board.WHITE));
+        assertAgreesWithGeneration(board, board.WHITE);
+        assertAgreesWithGeneration(board, board.BLACK);
+    }
+
+    @Test
+    public void testIsLegalInCheck() {
+        board.execute(move(pos("e1"), pos("e6")), board.WHITE);
+        assertFalse(board.isLegal(move(pos("a2"), pos("a3")), board.WHITE));
+        assertTrue(board.isLegal(move(pos("e6"), pos("e5")), board.WHITE));
+        assertAgreesWithGeneration(board, board.WHITE);
+    }
+
+    @Test
+    public void testIsLegalVariantPieces() {
+        board.addPiece(PieceTypes.ARTILLERY, board.WHITE, pos("c5"));
+        board.addPiece(PieceTypes.ARCHER, board.WHITE, pos("f5"));
+        board.addPiece(PieceTypes.ARCHER, board.BLACK, pos("d4"));
+        assertAgreesWithGeneration(board, board.WHITE);
+        assertAgreesWithGeneration(board, board.BLACK);
+        board.WHITE.increment();
+        assertTrue(board.isLegal(attack(pos("c5"), pos("c8")), board.WHITE));
+        assertAgreesWithGeneration(board, board.WHITE);
+    }
+
+    @Test
+    public void testIsAttacked() {
+        assertTrue(board.isAttacked(pos("f3"), board.WHITE));
+        assertFalse(board.isAttacked(pos("e4"), board.WHITE));
+        assertFalse(board.inCheck(board.WHITE));
+        board.execute(attack(pos("e8"), pos("c2")), board.BLACK);
+        assertTrue(board.isAttacked(pos("c2"), board.WHITE));
+    }
+
+    @Test
+    public void testAttackersTo() {
+        board.addPiece(PieceTypes.KNIGHT, board.BLACK, pos("e3"));
+        final Set<Point> attackers = board.attackersTo(pos("e3"), board.WHITE).map(Piece::getLocation).collect(Collectors.toSet());
+        assertEquals(Set.of(pos("d2"), pos("f2")), attackers);
+    }
+
+    @Test
+    public void testAttackersToSkipping() {
+        board.addPiece(PieceTypes.ARTILLERY, board.WHITE, pos("c3"));
+        board.addPiece(PieceTypes.KNIGHT, board.WHITE, pos("c4"));
+        board.addPiece(PieceTypes.KNIGHT, board.BLACK, pos("c6"));
+        assertFalse(board.attackersTo(pos("c6"), board.WHITE).anyMatch(piece -> piece.TYPE == PieceTypes.ARTILLERY));
+        board.WHITE.increment();
+        assertTrue(board.attackersTo(pos("c6"), board.WHITE).anyMatch(piece -> piece.TYPE == PieceTypes.ARTILLERY));
+    }
+
+    @Test
+    public void testUndo() {
+        final Board b0 = new Board(board);
+        board.execute(move(pos("e2"), pos("e4")), board.WHITE);
+        board.execute(move(pos("d7"), pos("d5")), board.BLACK);
+        board.execute(attack(pos("e4"), pos("d5")), board.WHITE);
+        assertEquals(3, board.WHITE.getTurnCount());
+        board.undo();
+        board.undo();
+        board.undo();
+        assertEquals(b0, board);
+        assertEquals(1, board.WHITE.getTurnCount());
+        assertEquals(1, board.BLACK.getTurnCount());
+        assertTrue(board.getHistory().isEmpty());
+    }
+
+    @Test
+    public void testKeys() {
+        final long key = board.getKey(board.WHITE), pawnKey = board.getPawnKey();
+        assertFalse(key == board.getKey(board.BLACK));
+        board.execute(move(pos("g1"), pos("f3")), board.WHITE);
+        assertEquals(pawnKey, board.getPawnKey());
+        board.execute(move(pos("e7"), pos("e5")), board.BLACK);
+        assertFalse(pawnKey == board.getPawnKey());
+        board.execute(move(pos("f3"), pos("g1")), board.WHITE);
+        board.execute(move(pos("e5"), pos("e4")), board.BLACK);
+        final Board other = Board.defaultBoard(Player.black(), Player.white());
+        other.execute(move(pos("e7"), pos("e5")), other.BLACK);
+        other.execute(move(pos("e5"), pos("e4")), other.BLACK);
+        assertEquals(other.getKey(), board.getKey());
+        assertEquals(other.getPawnKey(), board.getPawnKey());
+        while (!board.getHistory().isEmpty()) {
+            board.undo();
+        }
+        assertEquals(key, board.getKey(board.WHITE));
+        assertEquals(pawnKey, board.getPawnKey());
+    }
+
+    @Test
+    public void testCopy() {
+        board.execute(move(pos("e2"), pos("e4")), board.WHITE);
+        final Board copy = board.copy();
+        assertEquals(board.getKey(board.BLACK), copy.getKey(copy.BLACK));
+        assertEquals(1, copy.WHITE.getTurnCount() - copy.BLACK.getTurnCount());
+        assertEquals(1, copy.get(pos("e4")).getNumOperations());
+        assertEquals(copy.WHITE, copy.get(pos("e4")).PLAYER);
+        copy.execute(move(pos("d7"), pos("d5")), copy.BLACK);
+        assertTrue(board.get(pos("d5")) == null);
+        assertEquals(board.generateMoves(board.BLACK).count(), new Board(board).generateMoves(board.BLACK).count());
+    }
+
+    @Test
+    public void testMirrorKey() {
+        final Board mirror = Board.defaultBoard(Player.black(), Player.white());
+        board.execute(move(pos("g1"), pos("f3")), board.WHITE);
+        mirror.execute(move(pos("g8"), pos("f6")), mirror.BLACK);
+        assertEquals(board.getKey(board.BLACK), mirror.getMirrorKey(mirror.WHITE));
+        assertEquals(mirror.getKey(mirror.WHITE), board.getMirrorKey(board.BLACK));
+        assertEquals(board.getCanonicalKey(board.BLACK), mirror.getCanonicalKey(mirror.WHITE));
+        assertFalse(board.isCanonical(board.BLACK) == mirror.isCanonical(mirror.WHITE));
+        assertEquals(mirror.encode(move(pos("g8"), pos("f6"))), board.mirrorCode(board.encode(move(pos("g1"), pos("f3")))));
+        assertFalse(board.getKey(board.BLACK) == board.getMirrorKey(board.BLACK));
+    }
+}
@@ -0,0 +1,99 @@
+import models.Board;
+import models.Notation;
+import models.Player;
+import org.junit.Test;
+import server.Broadcaster;
+import server.MoveDiff;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BroadcasterTest {
+
+    /**
+     * A subscriber blocked on its first snapshot must neither block the board nor keep more than the capacity of diffs,
+     * and must catch up with a new snapshot once unblocked
+     */
+    @Test
+    public void testSlowSubscriber() throws Exception {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final Broadcaster broadcaster = new Broadcaster(board, executor, 4);
+            final CountDownLatch blocked = new CountDownLatch(1), released = new CountDownLatch(1);
+            final List<Long> syncs = new ArrayList<>();
+            final List<MoveDiff> received = new ArrayList<>();
+            final Broadcaster.Subscription subscription = broadcaster.subscribe(new Broadcaster.Subscriber() {
+                @Override
+                public long resync() throws IOException {
+                    blocked.countDown();
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    synchronized (board) {
+                        syncs.add(broadcaster.getSeq());
+                        return broadcaster.getSeq();
+                    }
+                }
+
+                @Override
+                public void diffs(List<MoveDiff> diffs) {
+                    synchronized (received) {
+                        received.addAll(diffs);
+                    }
+                }
+            });
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            final Player player = board.WHITE;
+            for (int i = 0; i < 40; i++) {
+                synchronized (board) {
+                    board.execute(Notation.parseSan(board, player, "Nf3"), player);
+                    board.undo();
+                }
+            }
+            assertEquals(80, broadcaster.getSeq());
+            synchronized (board) {
+                board.execute(Notation.parseSan(board, player, "e4"), player);
+            }
+            released.countDown();
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (subscription.getResyncs() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, subscription.getResyncs());
+            synchronized (board) {
+                board.undo();
+            }
+            while (System.currentTimeMillis() < deadline) {
+                synchronized (received) {
+                    if (!received.isEmpty() && received.get(received.size() - 1).SEQ == 82) {
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            synchronized (received) {
+                assertEquals("-e2e4", received.get(received.size() - 1).toString());
+                for (int i = 1; i < received.size(); i++) {
+                    assertEquals(received.get(i - 1).SEQ + 1, received.get(i).SEQ);
+                }
+                assertTrue(received.get(0).SEQ > syncs.get(syncs.size() - 1));
+            }
+            subscription.cancel();
+            assertEquals(0, broadcaster.getSubscriptions());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import engine.IncrementalEvaluation;
+import engine.MaterialEvaluation;
+import engine.NeuralEvaluation;
+import engine.NeuralNetwork;
+import engine.PawnStructure;
+import models.Board;
+import models.PieceTypes;
+import models.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static models.Board.Operation.attack;
+import static models.Board.Operation.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static util.Shorthand.pos;
+
+public class EvaluationTest {
+
+    private Board board;
+
+    @Before
+    public void setup() {
+        board = Board.defaultBoard(Player.black(), Player.white());
+    }
+
+    private void assertUpToDate(IncrementalEvaluation evaluation) {
+        final IncrementalEvaluation fresh = new IncrementalEvaluation(board);
+        assertEquals(fresh.evaluate(board, board.WHITE), evaluation.evaluate(board, board.WHITE));
+        assertEquals(fresh.evaluate(board, board.BLACK), evaluation.evaluate(board, board.BLACK));
+        fresh.detach();
+    }
+
+    @Test
+    public void testSymmetric() {
+        final IncrementalEvaluation evaluation = new IncrementalEvaluation(board);
+        assertEquals(0, evaluation.evaluate(board, board.WHITE));
+        board.execute(move(pos("e2"), pos("e4")), board.WHITE);
+        board.execute(move(pos("e7"), pos("e5")), board.BLACK);
+        assertEquals(0, evaluation.evaluate(board, board.WHITE));
+    }
+
+    @Test
+    public void testIncremental() {
+        board.addPiece(PieceTypes.ARTILLERY, board.WHITE, pos("c4"));
+        board.addPiece(PieceTypes.ARCHER, board.BLACK, pos("f5"));
+        final IncrementalEvaluation evaluation = new IncrementalEvaluation(board);
+        Player player = board.WHITE;
+        for (int ply = 0; ply < 40; ply++) {
+            final List<Board.Operation> ops = board.generateMoves(player).collect(Collectors.toList());
+            if (ops.isEmpty()) {
+                break;
+            }
+            final Board.Operation op = ops.stream().filter(o -> o.getClass() == Board.Operation.Attack.class)
+                    .findFirst().orElse(ops.get(ply * 7 % ops.size()));
+            board.execute(op, player);
+            assertUpToDate(evaluation);
+            player = board.theOther(player);
+        }
+        while (!board.getHistory().isEmpty()) {
+            board.undo();
+            assertUpToDate(evaluation);
+        }
+    }
+
+    @Test
+    public void testMaterial() {
+        final IncrementalEvaluation evaluation = new IncrementalEvaluation(board);
+        board.execute(attack(pos("d1"), pos("d7")), board.WHITE);
+        final int positional = evaluation.evaluate(board, board.WHITE) - new MaterialEvaluation().evaluate(board, board.WHITE);
+        assertTrue(Math.abs(positional) < 100);
+        assertEquals(-evaluation.evaluate(board, board.WHITE), evaluation.evaluate(board, board.BLACK));
+    }
+
+    @Test
+    public void testPawnStructure() {
+        final Board board = new Board(8, 8, Player.black(), Player.white());
+        board.addPiece(PieceTypes.PAWN, board.WHITE, pos("a2"));
+        board.addPiece(PieceTypes.PAWN, board.WHITE, pos("a3"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("h7"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("g6"));
+        // white: doubled and isolated a-pawns, both passed; black: h7 defends g6, both passed
+        final int white = PawnStructure.DOUBLED + 2 * PawnStructure.ISOLATED + PawnStructure.PASSED * (1 + 2);
+        final int black = PawnStructure.CHAIN + PawnStructure.PASSED * (1 + 2);
+        assertEquals(white - black, PawnStructure.evaluate(board));
+    }
+
+    @Test
+    public void testPawnTable() {
+        final IncrementalEvaluation evaluation = new IncrementalEvaluation(board);
+        final int before = evaluation.evaluate(board, board.WHITE);
+        for (int i = 0; i < 5; i++) {
+            board.execute(move(pos("g1"), pos("f3")), board.WHITE);
+            evaluation.evaluate(board, board.WHITE);
+            board.execute(move(pos("f3"), pos("g1")), board.WHITE);
+            evaluation.evaluate(board, board.WHITE);
+        }
+        assertEquals(before, evaluation.evaluate(board, board.WHITE));
+        assertTrue(evaluation.getPawnTable().getHitRate() > 0.9);
+        board.execute(move(pos("e2"), pos("e4")), board.WHITE);
+        assertEquals(new IncrementalEvaluation(board).evaluate(board, board.BLACK), evaluation.evaluate(board, board.BLACK));
+    }
+
+    @Test
+    public void testNeuralEvaluation() throws IOException {
+        final Path path = Files.createTempFile("network", ".nnue");
+        try {
+            NeuralNetwork.random(8, 8, 32, 8, 242).save(path);
+            final NeuralNetwork network = NeuralNetwork.load(path);
+            final NeuralEvaluation evaluation = new NeuralEvaluation(board, network);
+            assertEquals(evaluation.evaluate(board, board.WHITE), evaluation.evaluate(board, board.BLACK));
+            board.addPiece(PieceTypes.ARCHER, board.WHITE, pos("d4"));
+            Player player = board.WHITE;
+            for (int ply = 0; ply < 20; ply++) {
+                final List<Board.Operation> ops = board.generateMoves(player).collect(Collectors.toList());
+                board.execute(ops.get(ply * 5 % ops.size()), player);
+                final NeuralEvaluation fresh = new NeuralEvaluation(board, network);
+                assertEquals(fresh.evaluate(board, player), evaluation.evaluate(board, player));
+                fresh.detach();
+                player = board.theOther(player);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import models.Board;
+import models.GameRecord;
+import models.Notation;
+import models.Player;
+import models.PositionFormat;
+import org.junit.Test;
+import util.Pair;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static util.Shorthand.pos;
+
+public class GameRecordTest {
+
+    private static Board play(Board board, Player first, String... moves) {
+        Player player = first;
+        for (String move : moves) {
+            board.execute(Notation.parseSan(board, player, move), player);
+            player = board.theOther(player);
+        }
+        return board;
+    }
+
+    @Test
+    public void testDefaultBoard() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        play(board, board.WHITE, "e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#");
+        final GameRecord record = GameRecord.of(board);
+        // 4 bytes of header and 2 per ply
+        assertEquals(4 + 2 * 7, record.getBytes().length);
+        final Board replayed = record.replay();
+        assertEquals(board.getKey(board.BLACK), replayed.getKey(replayed.BLACK));
+        assertEquals(7, replayed.getHistory().size());
+        assertTrue(replayed.getHistory().peek().first instanceof Board.Operation.Attack);
+    }
+
+    @Test
+    public void testConcatenated() {
+        final Board first = play(Board.defaultBoard(Player.black(), Player.white()), null);
+        final Pair<Board, Player> setUp = PositionFormat.parse("10x6 k9/2c*7/10/10/1A8/K8C b 3 2");
+        final Board second = play(setUp.first, setUp.second, "Kb6", "Kb1");
+        final ByteBuffer buffer = ByteBuffer.allocate(GameRecord.maxSize(first) + GameRecord.maxSize(second));
+        GameRecord.encode(first, buffer);
+        GameRecord.encode(second, buffer);
+        buffer.flip();
+
+        final GameRecord.Decoder empty = new GameRecord.Decoder(buffer);
+        assertEquals(PositionFormat.INITIAL, empty.getPosition());
+        assertFalse(empty.hasNext());
+        final GameRecord.Decoder decoder = new GameRecord.Decoder(buffer);
+        assertEquals(10, decoder.N_COLS);
+        assertEquals(2, decoder.PLIES);
+        assertEquals("10x6 k9/2c*7/10/10/1A8/K8C b 3 2", decoder.getPosition());
+        final Board replayed = decoder.replay();
+        assertEquals(second.getKey(second.BLACK), replayed.getKey(replayed.BLACK));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegal() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        play(board, board.WHITE, "e4");
+        final byte[] bytes = GameRecord.of(board).getBytes();
+        final int code = board.encode(Board.Operation.move(pos("e2"), pos("e5")));
+        bytes[bytes.length - 2] = (byte) code;
+        bytes[bytes.length - 1] = (byte) (code >>> 8);
+        new GameRecord(bytes).replay();
+    }
+}
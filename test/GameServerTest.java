@@ -0,0 +1,151 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import server.GameServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GameServerTest {
+
+    private GameServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new GameServer(0).start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(10000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = new PrintWriter(socket.getOutputStream(), true);
+        }
+
+        String send(String command) throws IOException {
+            out.println(command);
+            return in.readLine();
+        }
+
+        String read() throws IOException {
+            return in.readLine();
+        }
+
+        /**
+         * @return the reply to command, skipping the events received before it
+         */
+        String request(String command) throws IOException {
+            out.println(command);
+            return reply();
+        }
+
+        String reply() throws IOException {
+            String line;
+            while (!(line = in.readLine()).startsWith("OK") && !line.startsWith("ERR")) {
+            }
+            return line;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testTwoPlayers() throws Exception {
+        try (Client white = new Client(server.getPort()); Client black = new Client(server.getPort())) {
+            final String created = white.send("NEW w");
+            assertTrue(created, created.matches("OK \\d+ w"));
+            final String id = created.split(" ")[1];
+            assertEquals("OK " + id + " b", black.send("JOIN " + id));
+            assertEquals("JOINED b", white.read());
+            assertEquals("ERR not your turn", black.send("MOVE e5"));
+            assertEquals("OK e4", white.send("MOVE e4"));
+            assertEquals("MOVED e4", black.read());
+            assertTrue(black.send("MOVE e4").startsWith("ERR "));
+            assertEquals("OK e5", black.send("move e5"));
+            assertEquals("MOVED e5", white.read());
+            assertEquals("OK 8x8 rnbqkbnr/pppp1ppp/8/4p*3/4P*3/8/PPPP1PPP/RNBQKBNR w 2 2", white.send("SHOW"));
+            assertEquals("OK bye", black.send("QUIT"));
+            assertEquals("LEFT", white.read());
+        }
+    }
+
+    @Test
+    public void testBothSides() throws Exception {
+        try (Client client = new Client(server.getPort())) {
+            assertTrue(client.send("NEW").endsWith(" wb"));
+            assertEquals(1, server.getGames());
+            assertEquals(20, client.send("MOVES").split(" ").length - 1);
+            for (String move : new String[]{"e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6"}) {
+                assertEquals("OK " + move, client.send("MOVE " + move));
+            }
+            assertEquals("OK Qxf7# 1-0", client.send("MOVE Qxf7"));
+            assertTrue(client.send("MOVE Ke7").startsWith("ERR game over"));
+            assertEquals("ERR already in game " + 1, client.send("NEW").replaceAll("game \\d+", "game 1"));
+            assertEquals("OK", client.send("LEAVE"));
+            assertEquals(0, server.getGames());
+            assertTrue(client.send("NEW b 4x4 k3/4/4/K3 b 1 1").endsWith(" b"));
+            assertEquals("ERR unknown command PLAY", client.send("PLAY"));
+        }
+    }
+
+    @Test
+    public void testJoinWhileLeaving() throws Exception {
+        try (Client host = new Client(server.getPort()); Client guest = new Client(server.getPort())) {
+            for (int i = 0; i < 200; i++) {
+                final String id = host.request("NEW w").split(" ")[1];
+                // both commands are in flight at once, so the join may come before or after the game is emptied
+                host.out.println("LEAVE");
+                guest.out.println("JOIN " + id);
+                assertEquals("OK", host.reply());
+                final String joined = guest.reply();
+                if (joined.startsWith("OK")) {
+                    assertEquals("OK " + id + " b", joined);
+                    assertEquals(1, server.getGames());
+                    assertEquals("OK", guest.request("LEAVE"));
+                } else {
+                    assertEquals("ERR no game " + id, joined);
+                }
+                assertEquals(0, server.getGames());
+            }
+        }
+    }
+
+    @Test
+    public void testSpectator() throws Exception {
+        try (Client players = new Client(server.getPort()); Client spectator = new Client(server.getPort())) {
+            final String id = players.send("NEW").split(" ")[1];
+            assertEquals("OK e4", players.send("MOVE e4"));
+            assertEquals("OK " + id, spectator.send("WATCH " + id));
+            assertEquals("SYNC 1 8x8 rnbqkbnr/pppppppp/8/8/4P*3/8/PPPP1PPP/RNBQKBNR b 2 1", spectator.read());
+            assertEquals("OK d5", players.send("MOVE d5"));
+            assertEquals("DIFF 2 d7d5", spectator.read());
+            assertEquals("OK exd5", players.send("MOVE exd5"));
+            assertEquals("DIFF 3 e4xd5", spectator.read());
+            assertEquals("ERR already watching", spectator.send("WATCH " + id));
+            assertEquals("OK", spectator.send("UNWATCH"));
+            assertEquals("OK Qxd5", players.send("MOVE Qxd5"));
+            assertEquals("ERR not watching", spectator.send("UNWATCH"));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import models.Board;
+import models.GameSnapshot;
+import models.Notation;
+import models.Piece;
+import models.Player;
+import models.PositionFormat;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static util.Shorthand.pos;
+
+public class GameSnapshotTest {
+
+    private static Board play(String... moves) {
+        final Board board = Board.defaultBoard(Player.black("alice"), Player.white("bob"));
+        Player player = board.WHITE;
+        for (String move : moves) {
+            board.execute(Notation.parseSan(board, player, move), player);
+            player = board.theOther(player);
+        }
+        return board;
+    }
+
+    @Test
+    public void testRestore() {
+        final Board board = play("e4", "d5", "exd5", "Qxd5", "Nc3", "Qe5+", "Be2", "Qxe2+");
+        final Board restored = GameSnapshot.read(GameSnapshot.write(board));
+        assertEquals("alice", restored.BLACK.ID);
+        assertEquals("bob", restored.WHITE.ID);
+        assertEquals(PositionFormat.write(board, board.WHITE), PositionFormat.write(restored, restored.WHITE));
+        assertEquals(board.getKey(board.WHITE), restored.getKey(restored.WHITE));
+        assertEquals(board.getHistory().size(), restored.getHistory().size());
+        assertEquals(16, restored.WHITE.getPieces(true).count());
+        assertEquals(14, restored.WHITE.getPieces().count());
+        assertTrue(restored.WHITE.getKing() == restored.get(pos("e1")));
+        assertEquals(board.generateMoves(board.WHITE).count(), restored.generateMoves(restored.WHITE).count());
+        for (Piece piece : restored) {
+            assertTrue(piece == null || piece.PLAYER == restored.BLACK || piece.PLAYER == restored.WHITE);
+        }
+
+        // undoing the restored game goes back through the captures to the default board
+        while (!restored.getHistory().isEmpty()) {
+            restored.undo();
+        }
+        final Board initial = play();
+        assertEquals(PositionFormat.write(initial, initial.WHITE), PositionFormat.write(restored, restored.WHITE));
+        assertEquals(initial.getKey(initial.WHITE), restored.getKey(restored.WHITE));
+        assertEquals(16, restored.WHITE.getPieces().count());
+        assertEquals(16, restored.BLACK.getPieces().count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        final byte[] snapshot = GameSnapshot.write(play("e4", "d5", "exd5"));
+        GameSnapshot.read(java.util.Arrays.copyOf(snapshot, snapshot.length - 2));
+    }
+
+    @Test
+    public void testMalformedCount() {
+        // an 8x8 board, two players with empty IDs, then a count of pieces of -1 and of Integer.MAX_VALUE
+        for (int last : new int[]{0x0F, 0x07}) {
+            final byte[] snapshot = {8, 8, 0, 0, 0, 0, -1, -1, -1, -1, (byte) last, 0, 0, 0, 0, 0, 0};
+            try {
+                GameSnapshot.read(snapshot);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Malformed snapshot"));
+            }
+        }
+    }
+}
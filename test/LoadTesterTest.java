@@ -0,0 +1,60 @@
+import org.junit.Test;
+import server.GameServer;
+import server.LoadTester;
+import util.Histogram;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadTesterTest {
+
+    @Test
+    public void testHistogram() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int value = 1; value <= 100000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000.5, histogram.getMean(), 1e-9);
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            final double expected = percentile * 1000;
+            assertTrue(percentile + ": " + histogram.getPercentile(percentile),
+                    Math.abs(histogram.getPercentile(percentile) - expected) <= expected * 0.04);
+        }
+        assertEquals(100000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        try (GameServer server = new GameServer(0).start()) {
+            final LoadTester tester = new LoadTester("127.0.0.1", server.getPort()).clients(20).games(2).maxPlies(60).seed(1).run();
+            assertEquals(0, tester.getErrors());
+            assertTrue(tester.getMoves() > 20);
+            assertEquals(tester.getMoves(), tester.getLatencies().getCount());
+            final String report = tester.report();
+            assertTrue(report, report.contains("\"games\": 20,"));
+            assertTrue(report, report.contains("\"finishedGames\": 20,"));
+            assertTrue(report, report.contains("\"p99_9\": "));
+            // every game has ended and been removed
+            assertEquals(0, server.getGames());
+        }
+    }
+
+    @Test
+    public void testReportFormat() {
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            final String report = new LoadTester("a\"b\\c", 1).report();
+            assertTrue(report, report.contains("\"host\": \"a\\\"b\\\\c\","));
+            assertTrue(report, report.contains("\"elapsedSeconds\": 0.000,"));
+            assertTrue(report, report.contains("\"mean\": 0.0,"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+}
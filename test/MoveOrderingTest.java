@@ -0,0 +1,194 @@
+import engine.MoveOrdering;
+import engine.MovePicker;
+import engine.PieceValues;
+import models.Board;
+import models.Piece;
+import models.PieceType;
+import models.PieceTypes;
+import models.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static models.Board.Operation.attack;
+import static models.Board.Operation.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static util.Shorthand.pos;
+
+public class MoveOrderingTest {
+
+    private Board board;
+    private Player white;
+
+    /**
+     * A knight counting how often its operations are generated
+     */
+    private static final class CountingKnight implements PieceType {
+        private int moves = 0;
+        private int attacks = 0;
+        private int quiets = 0;
+
+        @Override
+        public Stream<Board.Operation> generateMoves(Board board, Point currLoc, Piece self, boolean checkChecks) {
+            moves++;
+            return PieceType.super.generateMoves(board, currLoc, self, checkChecks);
+        }
+
+        @Override
+        public Stream<Board.Operation> generateAttacks(Board board, Point currLoc, Piece self, boolean checkChecks) {
+            attacks++;
+            return PieceType.super.generateAttacks(board, currLoc, self, checkChecks);
+        }
+
+        @Override
+        public Stream<Board.Operation> generateQuiets(Board board, Point currLoc, Piece self, boolean checkChecks) {
+            quiets++;
+            return PieceType.super.generateQuiets(board, currLoc, self, checkChecks);
+        }
+
+        @Override
+        public Stream<MovementRule> getMovementRules() {
+            return PieceTypes.KNIGHT.getMovementRules();
+        }
+
+        @Override
+        public String toString() {
+            return "CountingKnight";
+        }
+    }
+
+    /**
+     * White can take the rook on d5 with the pawn or the queen, and the defended pawn on a4 with the queen
+     */
+    @Before
+    public void setup() {
+        white = Player.white();
+        board = new Board(8, 8, Player.black(), white);
+        board.addPiece(PieceTypes.KING, board.WHITE, pos("e1"));
+        board.addPiece(PieceTypes.QUEEN, board.WHITE, pos("d1"));
+        board.addPiece(PieceTypes.PAWN, board.WHITE, pos("e4"));
+        board.addPiece(PieceTypes.KING, board.BLACK, pos("e8"));
+        board.addPiece(PieceTypes.ROOK, board.BLACK, pos("d5"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("b5"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("a4"));
+        for (String moved : new String[]{"e4", "b5", "a4"}) {
+            board.get(pos(moved)).incrementNumOperations();
+        }
+    }
+
+    @Test
+    public void testPieceValues() {
+        assertTrue(PieceValues.of(PieceTypes.PAWN) < PieceValues.of(PieceTypes.KNIGHT));
+        assertTrue(PieceValues.of(PieceTypes.KNIGHT) < PieceValues.of(PieceTypes.ROOK));
+        assertTrue(PieceValues.of(PieceTypes.ROOK) < PieceValues.of(PieceTypes.QUEEN));
+        assertTrue(PieceValues.of(PieceTypes.QUEEN) < PieceValues.of(PieceTypes.KING));
+        assertEquals(PieceValues.UNKNOWN, PieceValues.of(new CountingKnight()));
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        final Board.Operation quiet = move(pos("d1"), pos("c2")), capture = attack(pos("e4"), pos("d5"));
+        assertEquals(board.coord(pos("d1")) * board.size() + board.coord(pos("c2")), board.encode(quiet));
+        assertEquals(move(pos("d1"), pos("c2")), board.decode(board.encode(quiet)));
+        assertEquals(Board.Operation.Move.class, board.decode(board.encode(quiet)).getClass());
+        assertEquals(capture, board.decode(board.encode(capture)));
+        assertEquals(Board.Operation.Attack.class, board.decode(board.encode(capture)).getClass());
+    }
+
+    @Test
+    public void testMvvLva() {
+        final Board.Operation pawnTakesRook = attack(pos("e4"), pos("d5"));
+        final Board.Operation queenTakesRook = attack(pos("d1"), pos("d5"));
+        final Board.Operation queenTakesPawn = attack(pos("d1"), pos("a4"));
+        assertTrue(MoveOrdering.mvvLva(board, pawnTakesRook) > MoveOrdering.mvvLva(board, queenTakesRook));
+        assertTrue(MoveOrdering.mvvLva(board, queenTakesRook) > MoveOrdering.mvvLva(board, queenTakesPawn));
+        // the queen taking the defended pawn loses material, so the quiescence picker leaves it out
+        final List<Board.Operation> captures = new ArrayList<>();
+        MovePicker.captures(board, white).forEachRemaining(captures::add);
+        assertEquals(List.of(pawnTakesRook, queenTakesRook), captures);
+    }
+
+    @Test
+    public void testKillersAndHistory() {
+        final MoveOrdering ordering = new MoveOrdering(board);
+        final Board.Operation first = move(pos("d1"), pos("c2")), second = move(pos("d1"), pos("b3"));
+        assertEquals(-1, ordering.killer(3, 0));
+        ordering.storeKiller(3, first);
+        ordering.storeKiller(3, first);
+        ordering.storeKiller(3, second);
+        assertEquals(board.encode(second), ordering.killer(3, 0));
+        assertEquals(board.encode(first), ordering.killer(3, 1));
+        assertTrue(ordering.isKiller(3, first));
+        assertFalse(ordering.isKiller(4, first));
+        // captures are ordered by MVV-LVA and never become killers
+        ordering.storeKiller(4, attack(pos("e4"), pos("d5")));
+        assertEquals(-1, ordering.killer(4, 0));
+
+        ordering.updateHistory(white, first, 3);
+        ordering.updateHistory(white, first, 2);
+        assertEquals(13, ordering.history(white, first));
+        assertEquals(0, ordering.history(board.BLACK, first));
+        // a score past the limit halves the history tables but keeps the killers of the running search
+        ordering.updateHistory(white, second, 1100);
+        assertEquals(1100 * 1100 / 2, ordering.history(white, second));
+        assertEquals(6, ordering.history(white, first));
+        assertTrue(ordering.isKiller(3, first));
+        // between searches the killers are forgotten
+        ordering.age();
+        assertEquals(3, ordering.history(white, first));
+        assertFalse(ordering.isKiller(3, first));
+    }
+
+    @Test
+    public void testStages() {
+        final MoveOrdering ordering = new MoveOrdering(board);
+        ordering.storeKiller(0, move(pos("d1"), pos("c2")));
+        ordering.updateHistory(white, move(pos("e1"), pos("f1")), 5);
+        final int hashMove = board.encode(move(pos("d1"), pos("b3")));
+        final List<Board.Operation> picked = new ArrayList<>();
+        new MovePicker(board, white, ordering, 0, hashMove).forEachRemaining(picked::add);
+        assertEquals(List.of(move(pos("d1"), pos("b3")), attack(pos("e4"), pos("d5")), attack(pos("d1"), pos("d5")),
+                move(pos("d1"), pos("c2")), move(pos("e1"), pos("f1"))), picked.subList(0, 5));
+        // the losing capture comes after the quiet moves
+        assertEquals(attack(pos("d1"), pos("a4")), picked.get(picked.size() - 1));
+        final List<Board.Operation> legal = board.generateMoves(white).collect(Collectors.toList());
+        assertEquals(legal.size(), picked.size());
+        assertEquals(new HashSet<>(legal), new HashSet<>(picked));
+    }
+
+    @Test
+    public void testHashCaptureNotRepeated() {
+        final int hashMove = board.encode(attack(pos("d1"), pos("d5")));
+        final List<Board.Operation> picked = new ArrayList<>();
+        new MovePicker(board, white, new MoveOrdering(board), 0, hashMove).forEachRemaining(picked::add);
+        assertEquals(List.of(attack(pos("d1"), pos("d5")), attack(pos("e4"), pos("d5"))), picked.subList(0, 2));
+        assertEquals(picked.size(), new HashSet<>(picked).size());
+    }
+
+    @Test
+    public void testLazyStages() {
+        final CountingKnight knight = new CountingKnight();
+        board.addPiece(knight, white, pos("g1"));
+        final MovePicker picker = new MovePicker(board, white, new MoveOrdering(board), 0,
+                board.encode(move(pos("e1"), pos("f1"))));
+        assertEquals(move(pos("e1"), pos("f1")), picker.next());
+        assertEquals(0, knight.attacks + knight.quiets + knight.moves);
+        assertEquals(attack(pos("e4"), pos("d5")), picker.next());
+        assertEquals(1, knight.attacks);
+        assertEquals(0, knight.quiets);
+        // the quiet moves are generated once, without generating the captures again
+        picker.forEachRemaining(op -> {
+        });
+        assertEquals(1, knight.attacks);
+        assertEquals(1, knight.quiets);
+        assertEquals(0, knight.moves);
+    }
+}
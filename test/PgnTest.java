@@ -0,0 +1,112 @@
+import models.Board;
+import models.Notation;
+import models.PgnGame;
+import models.PgnReader;
+import models.PgnValidator;
+import models.PgnWriter;
+import models.Player;
+import models.PositionFormat;
+import org.junit.Test;
+import util.Pair;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PgnTest {
+
+    private static final String[] SCHOLAR = {"e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#"};
+
+    private static Board play(String... moves) {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        Player player = board.WHITE;
+        for (String move : moves) {
+            board.execute(Notation.parseSan(board, player, move), player);
+            player = board.theOther(player);
+        }
+        return board;
+    }
+
+    @Test
+    public void testSanRoundTrip() {
+        final Board board = play("Nf3", "d5", "d3", "e5", "Nfd2");
+        // the knight on b1 could reach d2 as well
+        assertEquals(Arrays.asList("Nf3", "d5", "d3", "e5", "Nfd2"), PgnWriter.toGame(board, Map.of()).getMoves());
+        final Board.Operation op = Notation.parseSan(board, board.BLACK, "Bb4");
+        assertEquals("Bb4", Notation.toSan(board, op, board.BLACK));
+        board.execute(op, board.BLACK);
+        assertEquals("c3", Notation.toSan(board, Notation.parseSan(board, board.WHITE, "c3"), board.WHITE));
+        assertEquals("Ba5", Notation.toSan(board, Notation.parseSan(board, board.BLACK, "Ba5"), board.BLACK));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAmbiguous() {
+        play("Nf3", "d5", "d3", "e5", "Nd2");
+    }
+
+    @Test
+    public void testInitialPosition() {
+        final Board board = play(SCHOLAR);
+        final Board start = board.initialPosition();
+        final Board fresh = play();
+        assertEquals(fresh.getKey(fresh.WHITE), start.getKey(start.WHITE));
+        assertEquals(PositionFormat.write(fresh, fresh.WHITE), PositionFormat.write(start, start.WHITE));
+        assertEquals(32, start.WHITE.getPieces().count() + start.BLACK.getPieces().count());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final Board mate = play(SCHOLAR);
+        final PgnGame game = PgnWriter.toGame(mate, Map.of("White", "A \"quoted\" name"));
+        assertEquals("1-0", game.getResult());
+        assertEquals(Arrays.asList(SCHOLAR), game.getMoves());
+
+        final Pair<Board, Player> setUp = PositionFormat.parse("6x6 k5/6/6/6/1R4/K1R3 b 4 3");
+        final Board board = setUp.first;
+        board.execute(Notation.parseSan(board, board.BLACK, "Ka5"), board.BLACK);
+        final String text = PgnWriter.write(board, Map.of("Event", "variant"));
+        assertTrue(text.contains("[FEN \"6x6 k5/6/6/6/1R4/K1R3 b 4 3\"]"));
+        assertTrue(text.contains("1... Ka5 *"));
+
+        final Path file = Files.createTempFile("games", ".pgn");
+        try {
+            final String illegal = "[Event \"illegal\"]\n\n1. e4 {a comment} e5 (1... c5 2. Nf3) 2. Ke3 $2 0-1\n\n";
+            Files.write(file, (PgnWriter.write(game) + text + illegal + "1.d4 d5 2.c4").getBytes(StandardCharsets.ISO_8859_1));
+            final List<PgnGame> games = new ArrayList<>();
+            try (PgnReader reader = PgnReader.open(file)) {
+                reader.forEachRemaining(games::add);
+            }
+            assertEquals(4, games.size());
+            assertEquals("A \"quoted\" name", games.get(0).getTag("White"));
+            assertEquals(Arrays.asList(SCHOLAR), games.get(0).getMoves());
+            assertEquals(mate.getKey(), games.get(0).replay().getKey());
+            assertEquals(board.getKey(), games.get(1).replay().getKey());
+            assertEquals(Arrays.asList("e4", "e5", "Ke3"), games.get(2).getMoves());
+            assertEquals("0-1", games.get(2).getResult());
+            assertEquals(Arrays.asList("d4", "d5", "c4"), games.get(3).getMoves());
+            assertEquals(PgnGame.UNKNOWN, games.get(3).getResult());
+
+            final List<String> invalid = new ArrayList<>();
+            final PgnValidator.Summary summary = new PgnValidator().threads(2).batch(1)
+                    .validate(games.iterator(), (g, e) -> {
+                        synchronized (invalid) {
+                            invalid.add(g.getTag("Event") + ": " + e.getMessage());
+                        }
+                    });
+            assertEquals(4, summary.GAMES);
+            assertEquals(1, summary.INVALID);
+            assertEquals(7 + 1 + 3, summary.PLIES);
+            assertEquals(Arrays.asList("illegal: Ply 3: Illegal operation: Ke3"), invalid);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
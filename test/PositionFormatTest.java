@@ -0,0 +1,64 @@
+import models.Board;
+import models.PieceTypes;
+import models.Player;
+import models.PositionFormat;
+import org.junit.Test;
+import util.Pair;
+
+import static models.Board.Operation.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static util.Shorthand.pos;
+
+public class PositionFormatTest {
+
+    private static final String INITIAL = "8x8 rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w 1 1";
+
+    @Test
+    public void testWriteDefault() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        assertEquals(INITIAL, PositionFormat.write(board, board.WHITE));
+        board.execute(move(pos("e2"), pos("e4")), board.WHITE);
+        assertEquals("8x8 rnbqkbnr/pppppppp/8/8/4P*3/8/PPPP1PPP/RNBQKBNR b 2 1", PositionFormat.write(board, board.BLACK));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        board.execute(move(pos("e2"), pos("e4")), board.WHITE);
+        board.execute(move(pos("g8"), pos("f6")), board.BLACK);
+        final Pair<Board, Player> parsed = PositionFormat.parse(PositionFormat.write(board, board.WHITE));
+        final Board copy = parsed.first;
+        assertTrue(parsed.second == copy.WHITE);
+        assertEquals(board.getKey(board.WHITE), copy.getKey(copy.WHITE));
+        assertEquals(1, copy.get(pos("e4")).getNumOperations());
+        assertEquals(0, copy.get(pos("d2")).getNumOperations());
+        assertEquals(board.generateMoves(board.WHITE).count(), copy.generateMoves(copy.WHITE).count());
+    }
+
+    @Test
+    public void testVariantBoard() {
+        final String text = "10x6 k9/2c*7/10/10/1A8/K8C w 3 2";
+        final Pair<Board, Player> parsed = PositionFormat.parse("  " + text + "\n", 2, 2 + text.length());
+        final Board board = parsed.first;
+        assertEquals(10, board.N_COLS);
+        assertEquals(6, board.N_ROWS);
+        assertEquals(PieceTypes.ARTILLERY, board.get(pos("c5")).TYPE);
+        assertTrue(board.get(pos("c5")).PLAYER == board.BLACK);
+        assertEquals(PieceTypes.ARCHER, board.get(pos("b2")).TYPE);
+        assertEquals(PieceTypes.ARTILLERY, board.get(pos("j1")).TYPE);
+        assertEquals(3, board.WHITE.getTurnCount());
+        assertEquals(2, board.BLACK.getTurnCount());
+        assertEquals(text, PositionFormat.write(board, parsed.second));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortRow() {
+        PositionFormat.parse("8x8 rnbqkbnr/ppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w 1 1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPiece() {
+        PositionFormat.parse("2x1 Kz w 1 1");
+    }
+}
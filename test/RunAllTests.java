@@ -2,7 +2,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({PieceTypesTest.class, OperationTest.class})
+@Suite.SuiteClasses({PieceTypesTest.class, OperationTest.class, BoardTest.class, MoveOrderingTest.class, StaticExchangeTest.class, SearchTest.class, EvaluationTest.class, PositionFormatTest.class, PgnTest.class, GameRecordTest.class, GameSnapshotTest.class, GameServerTest.class, BroadcasterTest.class, VersionedBoardTest.class, AnalysisServerTest.class, LoadTesterTest.class, TournamentTest.class})
 public class RunAllTests {
 
 }
@@ -0,0 +1,281 @@
+import engine.IncrementalEvaluation;
+import engine.MateSolver;
+import engine.MaterialEvaluation;
+import engine.MonteCarloSearch;
+import engine.OpeningBook;
+import engine.OpeningBookBuilder;
+import engine.Ponderer;
+import engine.Search;
+import engine.Tablebase;
+import engine.Tablebases;
+import engine.TimeManager;
+import models.Board;
+import models.PieceTypes;
+import models.Player;
+import org.junit.Test;
+import util.Pair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static models.Board.Operation.attack;
+import static models.Board.Operation.move;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static util.Shorthand.pos;
+
+public class SearchTest {
+
+    @Test
+    public void testMateInOne() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final List<Pair<Board.Operation, Player>> moves = List.of(
+                Pair.of(move(pos("e2"), pos("e4")), board.WHITE),
+                Pair.of(move(pos("e7"), pos("e5")), board.BLACK),
+                Pair.of(move(pos("f1"), pos("c4")), board.WHITE),
+                Pair.of(move(pos("b8"), pos("c6")), board.BLACK),
+                Pair.of(move(pos("d1"), pos("h5")), board.WHITE),
+                Pair.of(move(pos("g8"), pos("f6")), board.BLACK)
+        );
+        board.execute(moves.stream());
+        final Search search = new Search(board, new MaterialEvaluation());
+        assertEquals(Search.MATE - 1, search.search(board.WHITE, 2));
+        assertEquals(attack(pos("h5"), pos("f7")), search.getBestMove());
+        assertEquals(Search.MATE - 1, search.iterate(board.WHITE, 4));
+        assertEquals(attack(pos("h5"), pos("f7")), search.getBestMove());
+    }
+
+    @Test
+    public void testQuiescence() {
+        final Board board = new Board(8, 8, Player.black(), Player.white());
+        board.addPiece(PieceTypes.KING, board.WHITE, pos("h1"));
+        board.addPiece(PieceTypes.KING, board.BLACK, pos("h8"));
+        board.addPiece(PieceTypes.QUEEN, board.WHITE, pos("d1"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("d5"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("e6"));
+        final Search search = new Search(board, new MaterialEvaluation());
+        assertEquals(700, search.search(board.WHITE, 1));
+        assertNotEquals(attack(pos("d1"), pos("d5")), search.getBestMove());
+    }
+
+    @Test
+    public void testSelectiveSearch() {
+        final Board full = Board.defaultBoard(Player.black(), Player.white());
+        final Search fullSearch = new Search(full, new IncrementalEvaluation(full));
+        for (Search.Feature feature : Search.Feature.values()) {
+            fullSearch.disable(feature);
+        }
+        fullSearch.iterate(full.WHITE, 7);
+
+        final Board selective = Board.defaultBoard(Player.black(), Player.white());
+        final Board before = new Board(selective);
+        final Search selectiveSearch = new Search(selective, new IncrementalEvaluation(selective));
+        selectiveSearch.iterate(selective.WHITE, 7);
+        // 398159 nodes against 15932 from the initial position at depth 7
+        assertTrue(selectiveSearch.getNodes() + " of " + fullSearch.getNodes(),
+                10 * selectiveSearch.getNodes() <= fullSearch.getNodes());
+        assertEquals(before, selective);
+        assertTrue(selective.getHistory().isEmpty());
+        assertEquals(1, selective.WHITE.getTurnCount());
+    }
+
+    @Test
+    public void testTimeManager() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final Board b0 = new Board(board);
+        final Search search = new Search(board, new IncrementalEvaluation(board));
+        final TimeManager manager = new TimeManager(2000, 0);
+        search.iterate(board.WHITE, Search.MAX_PLY - 1, manager);
+        assertTrue(manager.elapsed() <= manager.getMaximum() + 100);
+        assertNotNull(search.getBestMove());
+        assertTrue(board.isLegal(search.getBestMove(), board.WHITE));
+        assertEquals(b0, board);
+    }
+
+    @Test
+    public void testPonderHit() throws InterruptedException {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final Search search = new Search(board, new IncrementalEvaluation(board));
+        search.iterate(board.WHITE, 4);
+        final Board.Operation best = search.getBestMove();
+        final Board.Operation predicted = Ponderer.predict(board, board.WHITE, best, search.getTable());
+        assertNotNull(predicted);
+        board.execute(best, board.WHITE);
+        final Ponderer ponderer = new Ponderer(search.getTable(), IncrementalEvaluation::new);
+        ponderer.start(board, board.BLACK, predicted);
+        Thread.sleep(50);
+        final Board.Operation reply = ponderer.respond(board, predicted, new TimeManager(2000, 0));
+        board.execute(predicted, board.BLACK);
+        assertNotNull(reply);
+        assertTrue(board.isLegal(reply, board.WHITE));
+        board.execute(reply, board.WHITE);
+        final List<Board.Operation> replies = board.generateMoves(board.BLACK).limit(2).collect(Collectors.toList());
+        ponderer.start(board, board.BLACK, replies.get(0));
+        assertNull(ponderer.respond(board, replies.get(1), new TimeManager(2000, 0)));
+        assertFalse(ponderer.isPondering());
+    }
+
+    @Test
+    public void testMonteCarlo() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final List<Pair<Board.Operation, Player>> moves = List.of(
+                Pair.of(move(pos("e2"), pos("e4")), board.WHITE),
+                Pair.of(move(pos("e7"), pos("e5")), board.BLACK),
+                Pair.of(move(pos("f1"), pos("c4")), board.WHITE),
+                Pair.of(move(pos("b8"), pos("c6")), board.BLACK),
+                Pair.of(move(pos("d1"), pos("h5")), board.WHITE),
+                Pair.of(move(pos("g8"), pos("f6")), board.BLACK)
+        );
+        board.execute(moves.stream());
+        final MonteCarloSearch search = new MonteCarloSearch(board, board.WHITE).threads(2).playoutLimit(20);
+        assertEquals(attack(pos("h5"), pos("f7")), search.playouts(3000));
+        assertTrue(search.getValue() > 0.5);
+        search.advance(move(pos("a2"), pos("a3")));
+        search.playouts(200);
+        final int visits = search.getVisits();
+        assertTrue(visits >= 200);
+        final Board.Operation reply = search.playouts(200);
+        search.advance(reply);
+        assertTrue(search.getVisits() > 0);
+    }
+
+    @Test
+    public void testMateSolver() {
+        final Board board = new Board(8, 8, Player.black(), Player.white());
+        board.addPiece(PieceTypes.KING, board.WHITE, pos("e1"));
+        board.addPiece(PieceTypes.ROOK, board.WHITE, pos("a6"));
+        board.addPiece(PieceTypes.ROOK, board.WHITE, pos("b5"));
+        board.addPiece(PieceTypes.KING, board.BLACK, pos("h8"));
+        final Board b0 = new Board(board);
+        final MateSolver solver = new MateSolver(board, 16);
+        assertEquals(MateSolver.Status.DISPROVEN, solver.solve(board.WHITE, 1).STATUS);
+        final MateSolver.Result result = solver.solve(board.WHITE, 3);
+        assertEquals(MateSolver.Status.PROVEN, result.STATUS);
+        assertEquals(2, result.getMoves());
+        assertEquals(b0, board);
+        Player player = board.WHITE;
+        for (Board.Operation op : result.LINE) {
+            assertTrue(board.isLegal(op, player));
+            board.execute(op, player);
+            player = board.theOther(player);
+        }
+        assertTrue(board.inCheck(board.BLACK));
+        assertEquals(0, board.generateMoves(board.BLACK).count());
+    }
+
+    @Test
+    public void testTablebase() throws IOException {
+        final Tablebases tablebases = new Tablebases().threads(2);
+        final Tablebase table = tablebases.generate(4, 4, "KQvK");
+        assertNotNull(tablebases.get(4, 4, "KvK"));
+        final Board board = new Board(4, 4, Player.black(), Player.white());
+        board.addPiece(PieceTypes.KING, board.WHITE, pos("c2"));
+        board.addPiece(PieceTypes.QUEEN, board.WHITE, pos("d1"));
+        board.addPiece(PieceTypes.KING, board.BLACK, pos("a4"));
+        final int value = table.probe(board, board.WHITE);
+        assertTrue(Tablebase.isWin(value));
+        final MateSolver.Result result = new MateSolver(board, 16).solve(board.WHITE, 4);
+        assertEquals(MateSolver.Status.PROVEN, result.STATUS);
+        assertEquals((Tablebase.distance(value) + 1) / 2, result.getMoves());
+        board.execute(result.LINE.get(0), board.WHITE);
+        assertEquals(-Tablebase.distance(value), table.probe(board, board.BLACK));
+        board.undo();
+
+        final Board mirror = new Board(4, 4, Player.black(), Player.white());
+        mirror.addPiece(PieceTypes.KING, mirror.BLACK, pos("c3"));
+        mirror.addPiece(PieceTypes.QUEEN, mirror.BLACK, pos("d4"));
+        mirror.addPiece(PieceTypes.KING, mirror.WHITE, pos("a1"));
+        mirror.WHITE.increment();
+        assertEquals(value, tablebases.probe(mirror, mirror.BLACK));
+        assertEquals(table, tablebases.generate(4, 4, "KvKQ"));
+
+        final Path directory = Files.createTempDirectory("tablebases");
+        try {
+            tablebases.save(directory);
+            final Tablebases loaded = Tablebases.load(directory);
+            assertEquals(value, loaded.probe(board, board.WHITE));
+            final Search search = new Search(board, new MaterialEvaluation());
+            search.setTablebases(loaded);
+            assertEquals(Search.MATE - Tablebase.distance(value), search.search(board.WHITE, 2));
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testTablebaseUnmovedPawn() {
+        final Tablebases tablebases = new Tablebases().threads(2);
+        tablebases.generate(4, 4, "KPvK");
+        final Board board = new Board(4, 4, Player.black(), Player.white());
+        board.addPiece(PieceTypes.KING, board.WHITE, pos("a1"));
+        board.addPiece(PieceTypes.PAWN, board.WHITE, pos("c2"));
+        board.addPiece(PieceTypes.KING, board.BLACK, pos("a4"));
+        // the pawn could still advance two rows, which the table does not cover
+        assertEquals(Tablebase.NONE, tablebases.probe(board, board.WHITE));
+        board.execute(move(pos("a1"), pos("b1")), board.WHITE);
+        board.execute(move(pos("a4"), pos("a3")), board.BLACK);
+        assertEquals(Tablebase.NONE, tablebases.probe(board, board.WHITE));
+        board.execute(move(pos("c2"), pos("c3")), board.WHITE);
+        assertNotEquals(Tablebase.NONE, tablebases.probe(board, board.BLACK));
+    }
+
+    @Test
+    public void testOpeningBook() throws IOException {
+        final Board start = Board.defaultBoard(Player.black(), Player.white());
+        final OpeningBookBuilder builder = new OpeningBookBuilder(8, 8).maxPlies(4);
+        builder.addGame(start, List.<Pair<Board.Operation, Player>>of(
+                Pair.of(move(pos("e2"), pos("e4")), start.WHITE),
+                Pair.of(move(pos("e7"), pos("e5")), start.BLACK)).stream());
+        builder.addGame(start, List.<Pair<Board.Operation, Player>>of(
+                Pair.of(move(pos("e2"), pos("e4")), start.WHITE),
+                Pair.of(move(pos("c7"), pos("c5")), start.BLACK)).stream());
+        builder.addGame(start, List.<Pair<Board.Operation, Player>>of(Pair.of(move(pos("d2"), pos("d4")), start.WHITE)).stream());
+        builder.selfPlay(start, start.WHITE, 2, 1, board -> new Search(board, new MaterialEvaluation()), new Random(1));
+        final Path path = Files.createTempFile("book", ".bin");
+        final OpeningBook book;
+        try {
+            builder.write(path);
+            book = OpeningBook.load(path);
+        } finally {
+            Files.delete(path);
+        }
+        assertEquals(builder.size(), book.size());
+
+        final int entry = book.probe(start.getKey(start.WHITE));
+        assertTrue(entry != -1);
+        assertEquals(start.encode(move(pos("e2"), pos("e4"))), book.move(entry));
+        assertTrue(book.weight(entry) >= 2);
+        assertTrue(book.hasNext(entry));
+        assertEquals(-1, book.probe(start.getKey(start.BLACK)));
+        start.execute(move(pos("e2"), pos("e4")), start.WHITE);
+        final Board.Operation reply = book.choose(start, start.BLACK, new Random(2));
+        assertTrue(move(pos("e7"), pos("e5")).equals(reply) || move(pos("c7"), pos("c5")).equals(reply));
+        // a pawn that has moved cannot advance two rows, although the key of the position is the same
+        for (String moved : new String[]{"e7", "c7"}) {
+            final Board copy = start.copy();
+            copy.get(pos(moved)).incrementNumOperations();
+            for (int seed = 0; seed < 20; seed++) {
+                final Board.Operation legal = book.choose(copy, copy.BLACK, new Random(seed));
+                assertNotNull(legal);
+                assertTrue(copy.isLegal(legal, copy.BLACK));
+            }
+        }
+
+        final OpeningBookBuilder extended = new OpeningBookBuilder(book);
+        assertEquals(book.size(), extended.size());
+    }
+}
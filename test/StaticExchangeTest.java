@@ -0,0 +1,70 @@
+import engine.PieceValues;
+import engine.StaticExchange;
+import models.Board;
+import models.PieceTypes;
+import models.Player;
+import org.junit.Before;
+import org.junit.Test;
+
+import static models.Board.Operation.attack;
+import static models.Board.Operation.move;
+import static org.junit.Assert.assertEquals;
+import static util.Shorthand.pos;
+
+public class StaticExchangeTest {
+
+    private Board board;
+
+    @Before
+    public void setup() {
+        board = new Board(8, 8, Player.black(), Player.white());
+        board.addPiece(PieceTypes.KING, board.WHITE, pos("h1"));
+        board.addPiece(PieceTypes.KING, board.BLACK, pos("h8"));
+    }
+
+    @Test
+    public void testEqualTrade() {
+        Board board = Board.defaultBoard(Player.black(), Player.white());
+        board.execute(move(pos("e2"), pos("e4")), board.WHITE);
+        board.execute(move(pos("d7"), pos("d5")), board.BLACK);
+        final Board before = new Board(board);
+        assertEquals(0, StaticExchange.evaluate(board, attack(pos("e4"), pos("d5")), board.WHITE));
+        assertEquals(before, board);
+        assertEquals(2, board.WHITE.getTurnCount());
+    }
+
+    @Test
+    public void testLosingCapture() {
+        board.addPiece(PieceTypes.QUEEN, board.WHITE, pos("d1"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("d5"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("e6"));
+        assertEquals(PieceValues.PAWN - PieceValues.QUEEN, StaticExchange.evaluate(board, attack(pos("d1"), pos("d5")), board.WHITE));
+    }
+
+    @Test
+    public void testUndefended() {
+        board.addPiece(PieceTypes.ROOK, board.WHITE, pos("a1"));
+        board.addPiece(PieceTypes.KNIGHT, board.BLACK, pos("a6"));
+        assertEquals(PieceValues.KNIGHT, StaticExchange.evaluate(board, attack(pos("a1"), pos("a6")), board.WHITE));
+    }
+
+    @Test
+    public void testXRay() {
+        board.addPiece(PieceTypes.ROOK, board.WHITE, pos("a1"));
+        board.addPiece(PieceTypes.ROOK, board.WHITE, pos("a2"));
+        board.addPiece(PieceTypes.ROOK, board.BLACK, pos("a6"));
+        board.addPiece(PieceTypes.ROOK, board.BLACK, pos("a8"));
+        assertEquals(PieceValues.ROOK, StaticExchange.evaluate(board, attack(pos("a2"), pos("a6")), board.WHITE));
+    }
+
+    @Test
+    public void testArtilleryRecapture() {
+        board.addPiece(PieceTypes.ROOK, board.WHITE, pos("c1"));
+        board.addPiece(PieceTypes.KNIGHT, board.BLACK, pos("c5"));
+        board.addPiece(PieceTypes.PAWN, board.BLACK, pos("c6"));
+        board.addPiece(PieceTypes.ARTILLERY, board.BLACK, pos("c7"));
+        assertEquals(PieceValues.KNIGHT, StaticExchange.evaluate(board, attack(pos("c1"), pos("c5")), board.WHITE));
+        board.BLACK.increment();
+        assertEquals(PieceValues.KNIGHT - PieceValues.ROOK, StaticExchange.evaluate(board, attack(pos("c1"), pos("c5")), board.WHITE));
+    }
+}
@@ -0,0 +1,64 @@
+import engine.Sprt;
+import engine.Tournament;
+import models.Board;
+import models.GameRecord;
+import models.PositionFormat;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TournamentTest {
+
+    @Test
+    public void testSprt() {
+        final Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide());
+        assertEquals(-2.944, sprt.lowerBound(), 1e-3);
+        assertEquals(2.944, sprt.upperBound(), 1e-3);
+        for (int i = 0; i < 100; i++) {
+            sprt.add(1);
+            sprt.add(0.5);
+            sprt.add(0);
+        }
+        assertEquals(0, sprt.elo(), 1e-9);
+        assertTrue(sprt.llr() < 0);
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide());
+        for (int i = 0; i < 100; i++) {
+            sprt.add(1);
+            sprt.add(0.5);
+        }
+        // 200-200-100: a score of 60%, about 70 Elo
+        assertEquals(70.4, sprt.elo(), 0.1);
+        assertTrue(sprt.eloMargin() > 0 && sprt.eloMargin() < 40);
+        assertEquals(Sprt.Decision.H1, sprt.decide());
+    }
+
+    @Test
+    public void testMatch() throws Exception {
+        final List<String> openings = Arrays.asList(PositionFormat.INITIAL, "8x8 4k3/8/8/8/8/8/3PP3/4K3 w 1 1");
+        final List<String> records = new ArrayList<>();
+        final Sprt sprt = new Tournament(Tournament.Engine.parse("2").tableBits(10),
+                Tournament.Engine.parse("1-NULL_MOVE").tableBits(10), openings)
+                .threads(2).games(4).maxPlies(30).stopEarly(false).run(records::add);
+        assertEquals(4, records.size());
+        assertEquals(4, sprt.getGames());
+        final boolean[] seen = new boolean[4];
+        for (String record : records) {
+            final String[] fields = record.split(" ");
+            final int game = Integer.parseInt(fields[0]);
+            seen[game] = true;
+            assertEquals(game % 2 == 0 ? "2" : "1-NULL_MOVE", fields[1]);
+            assertTrue(record, fields[3].matches("1-0|0-1|1/2-1/2"));
+            final Board board = new GameRecord(Base64.getDecoder().decode(fields[5])).replay();
+            assertTrue(record, board.getHistory().size() <= 30);
+            assertTrue(fields[4].equals("plies") == (board.getHistory().size() == 30));
+        }
+        assertTrue(seen[0] && seen[1] && seen[2] && seen[3]);
+    }
+}
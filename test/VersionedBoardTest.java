@@ -0,0 +1,98 @@
+import models.Board;
+import models.Notation;
+import models.Player;
+import models.PositionFormat;
+import models.VersionedBoard;
+import org.junit.Test;
+import util.Pair;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VersionedBoardTest {
+
+    @Test
+    public void testVersions() {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final VersionedBoard versions = new VersionedBoard(board, board.WHITE);
+        assertEquals(0, versions.current().VERSION);
+        assertEquals(PositionFormat.INITIAL, versions.current().position());
+        board.execute(Notation.parseSan(board, board.WHITE, "e4"), board.WHITE);
+        final VersionedBoard.Version version = versions.current();
+        assertEquals(1, version.VERSION);
+        assertEquals(PositionFormat.write(board, board.BLACK), version.position());
+        assertEquals(board.getKey(board.BLACK), version.KEY);
+        final Pair<Board, Player> copy = version.toBoard();
+        assertNotSame(board, copy.first);
+        assertEquals(board.getKey(board.BLACK), copy.first.getKey(copy.second));
+        board.undo();
+        assertEquals(2, versions.current().VERSION);
+        assertEquals(PositionFormat.INITIAL, versions.current().position());
+        assertEquals("8x8 rnbqkbnr/pppppppp/8/8/4P*3/8/PPPP1PPP/RNBQKBNR b 2 1", version.position());
+        versions.close();
+        board.execute(Notation.parseSan(board, board.WHITE, "d4"), board.WHITE);
+        assertEquals(2, versions.current().VERSION);
+    }
+
+    /**
+     * Every version read while the game thread plays must be a position the game went through
+     */
+    @Test
+    public void testConcurrentReader() throws Exception {
+        final Board board = Board.defaultBoard(Player.black(), Player.white());
+        final VersionedBoard versions = new VersionedBoard(board, board.WHITE);
+        final String[] game = {"e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "d3", "Be7"};
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final Set<Long> seen = new HashSet<>();
+        final Thread reader = new Thread(() -> {
+            long last = -1;
+            while (!done.get() && failure.get() == null) {
+                final VersionedBoard.Version version = versions.current();
+                if (version.VERSION < last) {
+                    failure.set("version " + version.VERSION + " after " + last);
+                }
+                last = version.VERSION;
+                // the key of the pieces of the version, not its KEY, so that a torn version is caught
+                final Pair<Board, Player> copy = version.toBoard();
+                seen.add(copy.first.getKey(copy.second));
+            }
+        });
+        final Set<Long> played = new HashSet<>();
+        played.add(board.getKey(board.WHITE));
+        reader.start();
+        int plies = 0;
+        for (int i = 0; i < 200; i++) {
+            Player player = board.WHITE;
+            for (String san : game) {
+                board.execute(Notation.parseSan(board, player, san), player);
+                player = board.theOther(player);
+                played.add(board.getKey(player));
+                plies++;
+            }
+            while (!board.getHistory().isEmpty()) {
+                board.undo();
+                player = board.theOther(player);
+                played.add(board.getKey(player));
+                plies++;
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(2 * 200 * game.length, plies);
+        assertEquals(game.length + 1, played.size());
+        assertFalse(seen.isEmpty());
+        assertTrue(played.containsAll(seen));
+        assertEquals(plies, versions.current().VERSION);
+        assertEquals(PositionFormat.INITIAL, versions.current().position());
+    }
+}